@@ -0,0 +1,87 @@
+package com.kmeans.kmeans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One assignment step, i.e. finding the nearest centroid of every row, for every distance, with
+ * the features stored in double or single precision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class AssignmentBenchmark
+{
+    @Param({"100000", "1000000"})
+    private int n;
+
+    @Param({"8", "64"})
+    private int k;
+
+    // a million rows of 1024 columns take 8 GB, run them with a larger -Xmx or exclude them with -p
+    @Param({"2", "16", "256", "1024"})
+    private int d;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    @Param({"euclidean", "squaredEuclidean", "manhattan", "cosine"})
+    private String distanceName;
+
+    @Param({"false", "true"})
+    private boolean singlePrecision;
+
+    private Dataset dataset;
+    private Distance distance;
+    private double[] centroids;
+    private int[] labels;
+    private double[] distances;
+    private AssignmentEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        dataset = SyntheticData.blobs(n, d, k, 1);
+        if (singlePrecision)
+            dataset = FloatDataset.copyOf(dataset);
+        distance = SyntheticData.distance(distanceName);
+        centroids = SyntheticData.centroids(dataset, k, distance);
+        labels = new int[n];
+        distances = new double[n];
+        engine = new AssignmentEngine(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        engine.close();
+    }
+
+    @Benchmark
+    public int assign()
+    {
+        return engine.assign(dataset, centroids, k, distance, labels);
+    }
+
+    @Benchmark
+    public int assignWithDistances()
+    {
+        return engine.assign(dataset, centroids, k, distance, labels, distances);
+    }
+}
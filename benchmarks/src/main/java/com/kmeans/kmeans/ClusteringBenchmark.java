@@ -0,0 +1,82 @@
+package com.kmeans.kmeans;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full runs until convergence, from the same initial centroids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ClusteringBenchmark
+{
+    private static final int MAX_ITERATIONS = 100;
+
+    @Param({"100000", "1000000"})
+    private int n;
+
+    @Param({"8", "64"})
+    private int k;
+
+    // a million rows of 1024 columns take 8 GB, run them with a larger -Xmx or exclude them with -p
+    @Param({"2", "16", "256", "1024"})
+    private int d;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Dataset dataset;
+    private List<Centroid> centroids;
+    private AssignmentEngine engine;
+    private final Distance distance = new EuclideanDistance();
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        dataset = SyntheticData.blobs(n, d, k, 1);
+        engine = new AssignmentEngine(threads);
+        centroids = CentroidSeeding.kMeansPlusPlus(dataset, k, distance, 1, engine);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        engine.close();
+    }
+
+    @Benchmark
+    public ClusteringResult lloyd() throws InterruptedException
+    {
+        return KMeans.runClustering(dataset, centroids, distance, MAX_ITERATIONS, engine);
+    }
+
+    @Benchmark
+    public ClusteringResult hamerly() throws InterruptedException
+    {
+        return HamerlyKMeans.runClustering(dataset, centroids, distance, MAX_ITERATIONS, engine);
+    }
+
+    @Benchmark
+    public ClusteringResult miniBatch()
+    {
+        return MiniBatchKMeans.runClustering(dataset, centroids, distance, 1024, MAX_ITERATIONS, 0, 42, engine);
+    }
+}
@@ -0,0 +1,120 @@
+package com.kmeans.kmeans;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A single distance calculation, on every kind of input a {@link Distance} accepts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceBenchmark
+{
+    /**
+     * Number of vector pairs, so that the loop doesn't always hit the same cache lines.
+     */
+    private static final int PAIRS = 256;
+
+    @Param({"2", "16", "128"})
+    private int d;
+
+    @Param({"euclidean", "squaredEuclidean", "manhattan", "cosine"})
+    private String distanceName;
+
+    private Distance distance;
+    private double[] a;
+    private double[] b;
+    private float[] aFloats;
+    private float[] bFloats;
+    private Map<String, Double>[] aMaps;
+    private Map<String, Double>[] bMaps;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        distance = SyntheticData.distance(distanceName);
+        SplittableRandom random = new SplittableRandom(1);
+        a = new double[PAIRS * d];
+        b = new double[PAIRS * d];
+        aFloats = new float[PAIRS * d];
+        bFloats = new float[PAIRS * d];
+        aMaps = new Map[PAIRS];
+        bMaps = new Map[PAIRS];
+        for (int pair = 0; pair < PAIRS; pair++)
+        {
+            aMaps[pair] = new HashMap<>();
+            bMaps[pair] = new HashMap<>();
+            for (int column = 0; column < d; column++)
+            {
+                int i = pair * d + column;
+                a[i] = random.nextDouble();
+                b[i] = random.nextDouble();
+                aFloats[i] = (float) a[i];
+                bFloats[i] = (float) b[i];
+                aMaps[pair].put("x" + column, a[i]);
+                bMaps[pair].put("x" + column, b[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public double doubles()
+    {
+        double sum = 0;
+        for (int offset = 0; offset < a.length; offset += d)
+            sum += distance.calculate(a, offset, b, offset, d);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public double doublesRanking()
+    {
+        double sum = 0;
+        for (int offset = 0; offset < a.length; offset += d)
+            sum += distance.rankingDistance(a, offset, b, offset, d);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public double floats()
+    {
+        double sum = 0;
+        for (int offset = 0; offset < aFloats.length; offset += d)
+            sum += distance.calculate(aFloats, offset, bFloats, offset, d);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public double maps()
+    {
+        double sum = 0;
+        for (int pair = 0; pair < PAIRS; pair++)
+            sum += distance.calculate(aMaps[pair], bMaps[pair]);
+        return sum;
+    }
+}
@@ -0,0 +1,99 @@
+package com.kmeans.kmeans;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading a dataset file, as text or as a binary cache, and reading it as records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class LoadBenchmark
+{
+    @Param({"100000", "1000000"})
+    private int n;
+
+    @Param({"2", "16"})
+    private int d;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Path directory;
+    private Path csv;
+    private Path columnar;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        directory = Files.createTempDirectory("kmeans-benchmark");
+        csv = directory.resolve("dataset.csv");
+        columnar = directory.resolve("dataset.kmds");
+
+        DenseDataset dataset = SyntheticData.blobs(n, d, 8, 1);
+        SyntheticData.writeCsv(dataset, csv);
+        ColumnarFormat.write(dataset, columnar, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(columnar);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Dataset parseCsv() throws IOException
+    {
+        return new MappedCsvLoader(threads).load(csv);
+    }
+
+    /**
+     * Opening is lazy, so every value is read once.
+     */
+    @Benchmark
+    public double openColumnar() throws IOException
+    {
+        MappedColumnarDataset dataset = ColumnarFormat.open(columnar);
+        double sum = 0;
+        for (int row = 0; row < dataset.size(); row++)
+        {
+            for (int column = 0; column < dataset.dimensions(); column++)
+                sum += dataset.get(row, column);
+        }
+        return sum;
+    }
+
+    /**
+     * What {@link KMeans#retreiveRecordsFromDataset()} does, on the generated file instead of the
+     * bundled one.
+     */
+    @Benchmark
+    public void retrieveRecords(Blackhole blackhole) throws IOException
+    {
+        for (Record record : KMeans.loadDataset(csv).asRecords())
+            blackhole.consume(record.getCoordinates());
+    }
+}
@@ -0,0 +1,70 @@
+package com.kmeans.kmeans;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One update step, i.e. moving every centroid to the average of its rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RelocationBenchmark
+{
+    @Param({"100000", "1000000"})
+    private int n;
+
+    @Param({"8", "64"})
+    private int k;
+
+    // a million rows of 1024 columns take 8 GB, run them with a larger -Xmx or exclude them with -p
+    @Param({"2", "16", "256", "1024"})
+    private int d;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private final Distance distance = new EuclideanDistance();
+    private Dataset dataset;
+    private double[] centroids;
+    private int[] labels;
+    private AssignmentEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        dataset = SyntheticData.blobs(n, d, k, 1);
+        centroids = SyntheticData.centroids(dataset, k, distance);
+        labels = new int[n];
+        engine = new AssignmentEngine(threads);
+        engine.assign(dataset, centroids, k, distance, labels);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        engine.close();
+    }
+
+    @Benchmark
+    public double[] relocateCentroids()
+    {
+        return distance.relocateCentroids(dataset, labels, centroids, k, engine);
+    }
+}
@@ -0,0 +1,78 @@
+package com.kmeans.kmeans;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Choosing the initial centroids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SeedingBenchmark
+{
+    @Param({"100000", "1000000"})
+    private int n;
+
+    @Param({"8", "64"})
+    private int k;
+
+    // a million rows of 1024 columns take 8 GB, run them with a larger -Xmx or exclude them with -p
+    @Param({"2", "16", "256", "1024"})
+    private int d;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Dataset dataset;
+    private AssignmentEngine engine;
+    private final Distance distance = new EuclideanDistance();
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        dataset = SyntheticData.blobs(n, d, k, 1);
+        engine = new AssignmentEngine(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        engine.close();
+    }
+
+    @Benchmark
+    public List<Centroid> randomCentroids()
+    {
+        return KMeans.randomCentroids(dataset, k);
+    }
+
+    @Benchmark
+    public List<Centroid> kMeansPlusPlus()
+    {
+        return CentroidSeeding.kMeansPlusPlus(dataset, k, distance, 42, engine);
+    }
+
+    @Benchmark
+    public List<Centroid> kMeansParallel()
+    {
+        return CentroidSeeding.kMeansParallel(dataset, k, distance, CentroidSeeding.DEFAULT_ROUNDS, 2.0 * k, 42, engine);
+    }
+}
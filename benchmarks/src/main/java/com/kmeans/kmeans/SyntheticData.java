@@ -0,0 +1,105 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates datasets of gaussian blobs, so that the benchmarks don't depend on a file of a
+ * given size being around. The same arguments always give the same dataset.
+ */
+final class SyntheticData
+{
+    /**
+     * The blob centres are drawn in [0, SPREAD) on every axis.
+     */
+    private static final double SPREAD = 100;
+
+    /**
+     * Standard deviation of every blob.
+     */
+    private static final double DEVIATION = 5;
+
+    private SyntheticData()
+    {
+    }
+
+    /**
+     * @param n     number of rows
+     * @param d     number of columns
+     * @param blobs number of gaussian blobs the rows are drawn around
+     * @param seed  seed of the random draws
+     * @return the dataset
+     */
+    static DenseDataset blobs(int n, int d, int blobs, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] centres = new double[blobs * d];
+        for (int i = 0; i < centres.length; i++)
+            centres[i] = random.nextDouble() * SPREAD;
+
+        String[] descriptions = new String[n];
+        double[] values = new double[n * d];
+        for (int row = 0; row < n; row++)
+        {
+            descriptions[row] = "row" + row;
+            int blob = random.nextInt(blobs);
+            for (int column = 0; column < d; column++)
+                values[row * d + column] = centres[blob * d + column] + random.nextGaussian() * DEVIATION;
+        }
+        return new DenseDataset(schema(d), descriptions, values);
+    }
+
+    /**
+     * Writes a dataset in the semicolon-separated format of the application.
+     */
+    static void writeCsv(Dataset dataset, Path file) throws IOException
+    {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write("id");
+            for (String name : dataset.schema().names())
+                writer.write(";" + name);
+            writer.newLine();
+
+            for (int row = 0; row < dataset.size(); row++)
+            {
+                writer.write(dataset.description(row));
+                for (int column = 0; column < dataset.dimensions(); column++)
+                    writer.write(";" + dataset.get(row, column));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @param name one of euclidean, squaredEuclidean, manhattan or cosine
+     * @return the distance of that name
+     */
+    static Distance distance(String name)
+    {
+        return Distances.byName(name);
+    }
+
+    /**
+     * @return k centroids chosen with k-means++, the same for the same dataset
+     */
+    static double[] centroids(Dataset dataset, int k, Distance distance)
+    {
+        List<Centroid> centroids = CentroidSeeding.kMeansPlusPlus(dataset, k, distance, 42, AssignmentEngine.sequential());
+        return KMeans.toBuffer(centroids, dataset.dimensions());
+    }
+
+    private static Schema schema(int d)
+    {
+        List<String> names = new ArrayList<>(d);
+        for (int column = 0; column < d; column++)
+            names.add("x" + column);
+        return new Schema(names);
+    }
+}
@@ -0,0 +1,426 @@
+package com.kmeans.kmeans;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Data-parallel assignment step of the K-Means algorithm. The rows of the dataset are split
+ * into cache-sized chunks, and each fork/join task finds the nearest centroid of every row of
+ * its chunk. The result is written to a primitive label array.
+ */
+public class AssignmentEngine implements AutoCloseable
+{
+    /**
+     * Target number of feature bytes scanned by one task, small enough to stay in the L2 cache.
+     */
+    private static final int CHUNK_BYTES = 256 * 1024;
+
+    /**
+     * Lower bound for the number of rows of one task, so that tiny rows don't produce
+     * millions of tasks.
+     */
+    private static final int MIN_CHUNK_ROWS = 1024;
+
+    /**
+     * The pool running the tasks, or null for the sequential fallback.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Whether {@link #pool} was created by this engine and should be shut down on close.
+     */
+    private final boolean ownsPool;
+
+    /**
+     * Creates an engine with its own pool.
+     *
+     * @param parallelism number of worker threads, 1 for the sequential fallback
+     */
+    public AssignmentEngine(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism should be a positive number");
+
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+        this.ownsPool = pool != null;
+    }
+
+    /**
+     * Creates an engine running its tasks on an existing pool, which is not shut down on close.
+     *
+     * @param pool the fork/join pool
+     */
+    public AssignmentEngine(ForkJoinPool pool)
+    {
+        if (pool == null)
+            throw new IllegalArgumentException("The fork/join pool is required");
+
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    /**
+     * @return an engine running on the common fork/join pool
+     */
+    public static AssignmentEngine common()
+    {
+        return new AssignmentEngine(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @return an engine assigning every row on the calling thread
+     */
+    public static AssignmentEngine sequential()
+    {
+        return new AssignmentEngine(1);
+    }
+
+    /**
+     * @return number of worker threads
+     */
+    public int getParallelism()
+    {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Assigns every row of the dataset to its nearest centroid.
+     *
+     * @param dataset   The dataset.
+     * @param centroids Row-major buffer of all centroids.
+     * @param k         Number of centroids.
+     * @param distance  To calculate the distance between two items.
+     * @param labels    The cluster index of every row, updated in place.
+     * @return number of rows whose label changed
+     */
+    public int assign(Dataset dataset, double[] centroids, int k, Distance distance, int[] labels)
+    {
+        return assign(dataset, centroids, k, distance, labels, null);
+    }
+
+    /**
+     * Assigns every row of the dataset to its nearest centroid, and keeps the distance to it.
+     *
+     * @param dataset   The dataset.
+     * @param centroids Row-major buffer of all centroids.
+     * @param k         Number of centroids.
+     * @param distance  To calculate the distance between two items.
+     * @param labels    The cluster index of every row, updated in place.
+     * @param distances Receives the distance of every row to its centroid, may be null.
+     * @return number of rows whose label changed
+     */
+    public int assign(Dataset dataset, double[] centroids, int k, Distance distance, int[] labels, double[] distances)
+    {
+        double[] norms = centroidNorms(centroids, k, dataset.dimensions(), distance);
+        float[] singles = singlePrecision(dataset, centroids, k);
+        return (int) forEachChunk(labels.length, dataset.dimensions(),
+                (from, to) -> assign(dataset, centroids, norms, singles, k, distance, labels, distances, from, to));
+    }
+
+    /**
+     * Assigns every row of the dataset to its nearest centroid with the help of an index, and
+     * keeps the distance to it.
+     *
+     * @param dataset   The dataset.
+     * @param index     The index of the current centroids.
+     * @param labels    The cluster index of every row, updated in place.
+     * @param distances Receives the distance of every row to its centroid, may be null.
+     * @return number of rows whose label changed
+     */
+    public int assign(Dataset dataset, CentroidIndex index, int[] labels, double[] distances)
+    {
+        return (int) forEachChunk(labels.length, dataset.dimensions(),
+                (from, to) -> index.assign(dataset, labels, distances, from, to));
+    }
+
+    /**
+     * Splits the [0, rows) range into cache-sized chunks and applies the function to every
+     * chunk, in parallel when this engine has more than one worker.
+     *
+     * @param rows       number of rows
+     * @param dimensions number of features per row, to size the chunks
+     * @param function   processes one chunk
+     * @return the sum of the values returned for every chunk
+     */
+    public long forEachChunk(int rows, int dimensions, RangeFunction function)
+    {
+        int chunk = chunkRows(dimensions);
+        if (pool == null || rows <= chunk)
+            return function.apply(0, rows);
+
+        return pool.invoke(new ChunkTask(function, 0, rows, chunk));
+    }
+
+    /**
+     * Splits the [0, rows) range into cache-sized chunks, maps every chunk to a partial result,
+     * in parallel when this engine has more than one worker, and merges the partial results
+     * pairwise. The chunks and the order of the merges only depend on the number of rows and
+     * dimensions, so that a floating-point reduction gives the same result whatever the number of
+     * threads and the order in which the chunks complete.
+     *
+     * @param rows       number of rows
+     * @param dimensions number of features per row, to size the chunks
+     * @param mapper     computes the partial result of one chunk
+     * @param merge      merges the partial results of two consecutive ranges, may reuse either
+     * @return the merged result of all chunks
+     */
+    public <T> T reduceChunks(int rows, int dimensions, RangeMapper<T> mapper, BinaryOperator<T> merge)
+    {
+        int chunk = chunkRows(dimensions);
+        int chunks = Math.max(1, (rows + chunk - 1) / chunk);
+        ReduceTask<T> task = new ReduceTask<>(mapper, merge, rows, chunk, 0, chunks);
+        return pool == null || chunks == 1 ? task.compute() : pool.invoke(task);
+    }
+
+    @Override
+    public void close()
+    {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    /**
+     * @param dimensions number of features per row
+     * @return number of rows processed by a single task
+     */
+    static int chunkRows(int dimensions)
+    {
+        return Math.max(MIN_CHUNK_ROWS, CHUNK_BYTES / (Double.BYTES * Math.max(1, dimensions)));
+    }
+
+    /**
+     * @return the {@link Distance#centroidNorm} of every centroid
+     */
+    static double[] centroidNorms(double[] centroids, int k, int d, Distance distance)
+    {
+        double[] norms = new double[k];
+        for (int centroid = 0; centroid < k; centroid++)
+            norms[centroid] = distance.centroidNorm(centroids, centroid * d, d);
+        return norms;
+    }
+
+    /**
+     * A {@link FloatDataset} is compared to centroids rounded to floats once per pass, so that the
+     * sweep runs on the single-precision kernels.
+     *
+     * @return the centroids rounded to floats for a single-precision dataset, null otherwise
+     */
+    static float[] singlePrecision(Dataset dataset, double[] centroids, int k)
+    {
+        if (!(dataset instanceof FloatDataset))
+            return null;
+
+        int length = k * dataset.dimensions();
+        float[] singles = new float[length];
+        for (int i = 0; i < length; i++)
+            singles[i] = (float) centroids[i];
+        return singles;
+    }
+
+    /**
+     * Assigns the rows of the [from, to) range on the calling thread.
+     *
+     * @param norms   the {@link Distance#centroidNorm} of every centroid
+     * @param singles the centroids rounded by {@link #singlePrecision}, or null
+     * @return number of rows whose label changed
+     */
+    static int assign(Dataset dataset, double[] centroids, double[] norms, float[] singles, int k, Distance distance,
+                      int[] labels, double[] distances, int from, int to)
+    {
+        if (singles != null)
+            return assign((FloatDataset) dataset, singles, k, distance, labels, distances, from, to);
+
+        int d = dataset.dimensions();
+        int changes = 0;
+        for (int row = from; row < to; row++)
+        {
+            int nearest = 0;
+            double minimumDistance = Double.MAX_VALUE;
+            for (int centroid = 0; centroid < k; centroid++)
+            {
+                double currentDistance = dataset.rankingDistance(row, centroids, centroid * d, norms[centroid], distance);
+                if (currentDistance < minimumDistance)
+                {
+                    minimumDistance = currentDistance;
+                    nearest = centroid;
+                }
+            }
+
+            if (distances != null)
+                distances[row] = distance.fromRankingDistance(minimumDistance);
+
+            if (labels[row] != nearest)
+            {
+                labels[row] = nearest;
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Single-precision variant of the range assignment.
+     */
+    private static int assign(FloatDataset dataset, float[] centroids, int k, Distance distance, int[] labels,
+                              double[] distances, int from, int to)
+    {
+        int d = dataset.dimensions();
+        int changes = 0;
+        for (int row = from; row < to; row++)
+        {
+            int nearest = 0;
+            double minimumDistance = Double.MAX_VALUE;
+            for (int centroid = 0; centroid < k; centroid++)
+            {
+                double currentDistance = dataset.rankingDistance(row, centroids, centroid * d, distance);
+                if (currentDistance < minimumDistance)
+                {
+                    minimumDistance = currentDistance;
+                    nearest = centroid;
+                }
+            }
+
+            if (distances != null)
+                distances[row] = distance.fromRankingDistance(minimumDistance);
+
+            if (labels[row] != nearest)
+            {
+                labels[row] = nearest;
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * With the help of the given distance calculator, iterates through centroids and finds the
+     * nearest one to the given row.
+     *
+     * @param dataset   The dataset.
+     * @param row       The row to find a centroid for.
+     * @param centroids Row-major buffer of all centroids.
+     * @param norms     The {@link Distance#centroidNorm} of every centroid.
+     * @param k         Number of centroids.
+     * @param distance  To calculate the distance between two items.
+     * @return The index of the nearest centroid to the given row.
+     */
+    static int nearestCentroid(Dataset dataset, int row, double[] centroids, double[] norms, int k, Distance distance)
+    {
+        int d = dataset.dimensions();
+        double minimumDistance = Double.MAX_VALUE;
+        int nearest = 0;
+        for (int centroid = 0; centroid < k; centroid++)
+        {
+            double currentDistance = dataset.rankingDistance(row, centroids, centroid * d, norms[centroid], distance);
+            if (currentDistance < minimumDistance)
+            {
+                minimumDistance = currentDistance;
+                nearest = centroid;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Computes a partial result from the rows of a [from, to) range on the calling thread.
+     */
+    @FunctionalInterface
+    public interface RangeMapper<T>
+    {
+        /**
+         * @param from first row, inclusive
+         * @param to   last row, exclusive
+         * @return the partial result of the range
+         */
+        T apply(int from, int to);
+    }
+
+    /**
+     * Processes the rows of a [from, to) range on the calling thread.
+     */
+    @FunctionalInterface
+    public interface RangeFunction
+    {
+        /**
+         * @param from first row, inclusive
+         * @param to   last row, exclusive
+         * @return a value summed over all chunks, e.g. the number of label changes
+         */
+        long apply(int from, int to);
+    }
+
+    /**
+     * Splits its row range in halves until it fits in one chunk.
+     */
+    private static class ChunkTask extends RecursiveTask<Long>
+    {
+        private final RangeFunction function;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        ChunkTask(RangeFunction function, int from, int to, int chunk)
+        {
+            this.function = function;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Long compute()
+        {
+            if (to - from <= chunk)
+                return function.apply(from, to);
+
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(function, from, middle, chunk);
+            ChunkTask right = new ChunkTask(function, middle, to, chunk);
+            left.fork();
+            long result = right.compute();
+            return result + left.join();
+        }
+    }
+
+    /**
+     * Reduces the chunks [from, to) of the rows, splitting them at the same indices whether it
+     * runs in a pool or on the calling thread.
+     */
+    private static class ReduceTask<T> extends RecursiveTask<T>
+    {
+        private final RangeMapper<T> mapper;
+        private final BinaryOperator<T> merge;
+        private final int rows;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        ReduceTask(RangeMapper<T> mapper, BinaryOperator<T> merge, int rows, int chunk, int from, int to)
+        {
+            this.mapper = mapper;
+            this.merge = merge;
+            this.rows = rows;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected T compute()
+        {
+            if (to - from == 1)
+                return mapper.apply(from * chunk, (int) Math.min(rows, (long) to * chunk));
+
+            int middle = (from + to) >>> 1;
+            ReduceTask<T> left = new ReduceTask<>(mapper, merge, rows, chunk, from, middle);
+            ReduceTask<T> right = new ReduceTask<>(mapper, merge, rows, chunk, middle, to);
+            if (getPool() == null)
+                return merge.apply(left.compute(), right.compute());
+
+            left.fork();
+            T result = right.compute();
+            return merge.apply(left.join(), result);
+        }
+    }
+}
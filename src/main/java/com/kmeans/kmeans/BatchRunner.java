@@ -0,0 +1,371 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless entry point, clustering a dataset file and writing the result next to nothing but
+ * the output files. Unlike {@link Main}, it neither needs a display nor loads any JavaFX or AWT
+ * class, e.g.
+ * <pre>
+ * java --add-modules jdk.incubator.vector -jar kmeans.jar \
+ *      --input dataset.csv --k 5 --metric euclidean --iterations 1000 --threads 8 --output out
+ * </pre>
+ * writes {@code out/labels.csv}, the cluster of every row, and {@code out/centroids.csv}, the
+ * coordinates of every cluster, both semicolon-separated like the input. With
+ * {@code --workers localhost:7001,localhost:7002} instead of {@code --input}, the dataset is the
+ * union of the shards of these {@link ShardWorker} processes and the run is coordinated by a
+ * {@link DistributedKMeans}. {@code --save-model model.kmm} also saves the centroids as a
+ * {@link KMeansModel}, and {@code --model model.kmm} instead of {@code --k} labels the input with
+ * a saved model, without clustering it again. {@code --quality 1000} also prints the
+ * {@link ClusterQuality} scores, the silhouette being estimated from 1000 sampled rows.
+ */
+public final class BatchRunner
+{
+    private static final String USAGE = """
+            Usage: BatchRunner --input <file>|--workers <host:port,...> --k <clusters> --output <directory>
+                               [--save-model <model file>] [--quality <rows sampled for the silhouette>]
+                   BatchRunner --input <file> --model <model file> --output <directory>
+                               [--metric euclidean|squaredEuclidean|manhattan|cosine|haversine|fastHaversine]
+                               [--iterations <max iterations>] [--threads <threads>] [--seed <seed>]
+                               [--precision double|single]
+                               [--memory-budget <MB kept off-heap before spilling to a temporary file>]""";
+
+    /**
+     * Number of rows drawn from every shard to choose the initial centroids of a distributed run.
+     */
+    private static final int SAMPLE_ROWS = 10_000;
+
+    private BatchRunner()
+    {
+    }
+
+    public static void main(String[] args)
+    {
+        Map<String, String> options;
+        Path input;
+        List<InetSocketAddress> workers;
+        Path output;
+        Path model;
+        Path savedModel;
+        int k;
+        int iterations;
+        int threads;
+        long seed;
+        long memoryBudget;
+        int qualitySample;
+        boolean singlePrecision;
+        Distance distance;
+        try
+        {
+            options = parse(args);
+            workers = options.containsKey("workers") ? addresses(options.get("workers")) : null;
+            input = workers == null ? Path.of(required(options, "input")) : null;
+            output = Path.of(required(options, "output"));
+            model = options.containsKey("model") ? Path.of(options.get("model")) : null;
+            savedModel = options.containsKey("save-model") ? Path.of(options.get("save-model")) : null;
+            if (model != null && (workers != null || savedModel != null))
+                throw new IllegalArgumentException("--model only labels an --input file");
+            k = model == null ? Integer.parseInt(required(options, "k")) : 0;
+            iterations = Integer.parseInt(options.getOrDefault("iterations", "1000"));
+            threads = Integer.parseInt(options.getOrDefault("threads",
+                    Integer.toString(Runtime.getRuntime().availableProcessors())));
+            seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : System.nanoTime();
+            memoryBudget = options.containsKey("memory-budget") ? memoryBudget(options.get("memory-budget")) : -1;
+            qualitySample = Integer.parseInt(options.getOrDefault("quality", "0"));
+            if (qualitySample < 0 || (qualitySample > 0 && model != null))
+                throw new IllegalArgumentException("--quality expects a number of rows, and a clustered --input file");
+            distance = Distances.byName(options.getOrDefault("metric", "euclidean"));
+            if (workers != null && !distance.isMeanRelocation())
+                throw new IllegalArgumentException("--workers only averages the rows, which --metric "
+                        + options.get("metric") + " doesn't allow");
+            singlePrecision = switch (options.getOrDefault("precision", "double"))
+            {
+                case "double" -> false;
+                case "single" -> true;
+                default -> throw new IllegalArgumentException("Unknown precision " + options.get("precision"));
+            };
+
+            // flags that would be silently ignored
+            if (workers != null && (options.containsKey("precision") || memoryBudget >= 0))
+                throw new IllegalArgumentException("--precision and --memory-budget don't apply to the shards of --workers");
+
+            if (singlePrecision && memoryBudget >= 0)
+                throw new IllegalArgumentException("--precision single only applies to a dataset loaded on the heap");
+
+            if (singlePrecision && distance instanceof HaversineDistance)
+                throw new IllegalArgumentException("--precision single doesn't apply to a haversine --metric");
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (workers != null)
+        {
+            runDistributed(workers, k, distance, iterations, seed, output, savedModel);
+            return;
+        }
+
+        if (model != null)
+        {
+            runPrediction(input, model, threads, memoryBudget, singlePrecision, output);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try (AssignmentEngine engine = new AssignmentEngine(threads);
+             OffHeapDataset offHeap = loadOffHeap(input, memoryBudget))
+        {
+            Dataset dataset = offHeap != null ? offHeap : load(input, threads, singlePrecision, distance);
+            List<Centroid> centroids = CentroidSeeding.kMeansPlusPlus(dataset, k, distance, seed, engine);
+            ClusteringResult result = KMeans.runClustering(dataset, centroids, distance,
+                    ConvergenceCriteria.maxIterations(iterations), engine);
+
+            Files.createDirectories(output);
+            writeLabels(result, output.resolve("labels.csv"));
+            writeCentroids(result, output.resolve("centroids.csv"));
+            if (savedModel != null)
+                result.getModel(distance).save(savedModel);
+            System.out.printf("%d rows, %d clusters, %d iterations, inertia %f, %d ms%n", dataset.size(), k,
+                    result.getIterations(), result.getInertia(), (System.nanoTime() - start) / 1_000_000);
+            if (qualitySample > 0)
+                printQuality(result, distance, qualitySample, seed, engine);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.err.println("Clustering failed : " + e.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            System.err.println("Clustering interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the quality scores of a run, the silhouette being exact when the sample covers the
+     * whole dataset.
+     */
+    private static void printQuality(ClusteringResult result, Distance distance, int sample, long seed,
+                                     AssignmentEngine engine)
+    {
+        long start = System.nanoTime();
+        int n = result.getDataset().size();
+        String silhouette = sample >= n
+                ? String.format("%.4f", ClusterQuality.silhouette(result, distance, engine))
+                : ClusterQuality.sampledSilhouette(result, distance, sample, seed, engine).toString();
+        System.out.printf("silhouette %s, Davies-Bouldin %f, Calinski-Harabasz %f, %d ms%n", silhouette,
+                ClusterQuality.daviesBouldin(result, distance, engine),
+                ClusterQuality.calinskiHarabasz(result, distance, engine), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Labels every row of the input with the nearest centroid of a saved model.
+     */
+    private static void runPrediction(Path input, Path modelFile, int threads, long memoryBudget,
+                                      boolean singlePrecision, Path output)
+    {
+        long start = System.nanoTime();
+        try (AssignmentEngine engine = new AssignmentEngine(threads);
+             OffHeapDataset offHeap = loadOffHeap(input, memoryBudget))
+        {
+            KMeansModel model = KMeansModel.load(modelFile);
+            if (singlePrecision && model.getDistance() instanceof HaversineDistance)
+                throw new IllegalArgumentException("--precision single doesn't apply to a haversine model");
+
+            Dataset dataset = offHeap != null ? offHeap : load(input, threads, singlePrecision, model.getDistance());
+            int[] labels = model.predict(dataset, engine);
+
+            Files.createDirectories(output);
+            writeLabels(dataset, labels, output.resolve("labels.csv"));
+            System.out.printf("%d rows labelled with %d clusters, %d ms%n", dataset.size(), model.getK(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.err.println("Prediction failed : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads the input off-heap when a memory budget is given, unless it is a binary dataset.
+     *
+     * @return the dataset, to be closed, or null when the input is loaded by {@link #load}
+     */
+    private static OffHeapDataset loadOffHeap(Path input, long memoryBudget) throws IOException
+    {
+        if (memoryBudget < 0 || ColumnarFormat.isColumnar(input))
+            return null;
+
+        return OffHeapDataset.load(input, memoryBudget, Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Loads the input on the heap. The trigonometry of geographic rows is precomputed for the
+     * haversine distance. Otherwise a binary dataset is mapped as is, and the features of a text
+     * file are stored in single precision when asked.
+     */
+    private static Dataset load(Path input, int threads, boolean singlePrecision, Distance distance) throws IOException
+    {
+        if (distance instanceof HaversineDistance)
+            return GeoDataset.copyOf(KMeans.loadDataset(input, threads));
+
+        return KMeans.loadDataset(input, threads, singlePrecision);
+    }
+
+    private static void runDistributed(List<InetSocketAddress> workers, int k, Distance distance, int iterations,
+                                       long seed, Path output, Path savedModel)
+    {
+        try (DistributedKMeans coordinator = new DistributedKMeans(workers, distance))
+        {
+            long start = System.nanoTime();
+            List<Centroid> centroids = coordinator.sampleCentroids(k, SAMPLE_ROWS, seed);
+            KMeansModel model = coordinator.runClustering(centroids, ConvergenceCriteria.maxIterations(iterations));
+
+            Files.createDirectories(output);
+            coordinator.writeLabels(output.resolve("labels.csv"));
+            writeCentroids(model, null, output.resolve("centroids.csv"));
+            if (savedModel != null)
+                model.save(savedModel);
+            System.out.printf("%d rows on %d workers, %d clusters, %d iterations, inertia %f, %d ms%n",
+                    coordinator.size(), workers.size(), k, model.getIterations(), coordinator.getInertia(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            System.err.println("Clustering failed : " + e.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            System.err.println("Clustering interrupted");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param workers comma-separated host:port pairs
+     */
+    /**
+     * @return the bytes of a budget given in megabytes
+     */
+    private static long memoryBudget(String megabytes)
+    {
+        long budget = Long.parseLong(megabytes);
+        if (budget < 0 || budget > Long.MAX_VALUE >> 20)
+            throw new IllegalArgumentException("--memory-budget expects a number of megabytes within [0, "
+                    + (Long.MAX_VALUE >> 20) + "], got " + megabytes);
+        return budget << 20;
+    }
+
+    private static List<InetSocketAddress> addresses(String workers)
+    {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : workers.split(","))
+        {
+            int colon = worker.lastIndexOf(':');
+            if (colon <= 0)
+                throw new IllegalArgumentException("Expected host:port, got " + worker);
+            addresses.add(new InetSocketAddress(worker.substring(0, colon), Integer.parseInt(worker.substring(colon + 1))));
+        }
+        return addresses;
+    }
+
+    /**
+     * Writes the description and the cluster of every row.
+     */
+    static void writeLabels(ClusteringResult result, Path file) throws IOException
+    {
+        writeLabels(result.getDataset(), result.getLabels(), file);
+    }
+
+    /**
+     * Writes the description and the given cluster of every row.
+     */
+    static void writeLabels(Dataset dataset, int[] labels, Path file) throws IOException
+    {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write("id;cluster");
+            writer.newLine();
+            for (int row = 0; row < labels.length; row++)
+            {
+                writer.write(dataset.description(row));
+                writer.write(';');
+                writer.write(Integer.toString(labels[row]));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes the coordinates and the size of every cluster.
+     */
+    static void writeCentroids(ClusteringResult result, Path file) throws IOException
+    {
+        writeCentroids(result.getModel(), result.getClusterSizes(), file);
+    }
+
+    /**
+     * Writes the coordinates of every cluster, and their size when known.
+     */
+    static void writeCentroids(KMeansModel model, int[] sizes, Path file) throws IOException
+    {
+        Schema schema = model.getSchema();
+        double[] coordinates = model.getCentroidCoordinates();
+        int d = schema.dimensions();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write(sizes == null ? "cluster" : "cluster;size");
+            for (String name : schema.names())
+                writer.write(";" + name);
+            writer.newLine();
+            for (int i = 0; i < model.getK(); i++)
+            {
+                writer.write(sizes == null ? Integer.toString(i) : i + ";" + sizes[i]);
+                for (int column = 0; column < d; column++)
+                    writer.write(";" + coordinates[i * d + column]);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads {@code --name value} pairs.
+     */
+    static Map<String, String> parse(String[] args)
+    {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2)
+        {
+            if (!args[i].startsWith("--") || i + 1 == args.length)
+                throw new IllegalArgumentException("Expected --name value pairs, got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    static String required(Map<String, String> options, String name)
+    {
+        String value = options.get(name);
+        if (value == null)
+            throw new IllegalArgumentException("Missing --" + name);
+        return value;
+    }
+}
@@ -1,23 +1,42 @@
 package com.kmeans.kmeans;
 
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
 /**
  * Encapsulates all coordinates for a particular cluster centroid.
  *
- * @param coordinates The centroid coordinates.
+ * @param schema      The attribute names and their column indexes.
+ * @param coordinates The centroid coordinates, addressed by column index.
  */
-public record Centroid(Map<String, Double> coordinates) {
+public record Centroid(Schema schema, double[] coordinates) {
+
+    public Centroid {
+        if (schema == null || coordinates == null || coordinates.length != schema.dimensions())
+            throw new IllegalArgumentException("A centroid needs one coordinate per attribute");
+    }
 
     public double getCoordinates(String key) {
-        if (key != null && key.trim().length() > 0)
-            return coordinates.get(key);
+        int index = key != null ? schema.indexOf(key) : -1;
+        if (index >= 0)
+            return coordinates[index];
         else
             return 0.0;
     }
 
+    /**
+     * @return a map-based view of the coordinates, ordered by column index
+     */
+    public Map<String, Double> asMap() {
+        Map<String, Double> map = new LinkedHashMap<>(coordinates.length);
+        for (int i = 0; i < coordinates.length; i++)
+            map.put(schema.name(i), coordinates[i]);
+        return map;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -27,16 +46,16 @@ public record Centroid(Map<String, Double> coordinates) {
             return false;
         }
         Centroid centroid = (Centroid) o;
-        return Objects.equals(coordinates(), centroid.coordinates());
+        return Objects.equals(schema(), centroid.schema()) && Arrays.equals(coordinates(), centroid.coordinates());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(coordinates());
+        return 31 * Objects.hashCode(schema()) + Arrays.hashCode(coordinates());
     }
 
     @Override
     public String toString() {
-        return "Centroid " + coordinates;
+        return "Centroid " + asMap();
     }
 }
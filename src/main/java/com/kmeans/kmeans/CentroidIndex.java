@@ -0,0 +1,378 @@
+package com.kmeans.kmeans;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exact nearest-centroid queries in sub-linear time, for large numbers of clusters. The centroids
+ * are organized in a ball tree: every node knows a centre and the radius of a ball containing all
+ * its centroids, so by the triangle inequality a whole node is skipped once its ball is further
+ * than the nearest centroid found so far. The answers are those of a linear scan, the lowest
+ * index winning ties.
+ * <p>
+ * The tree needs a metric distance and only pays off with many clusters and few dimensions, so
+ * the index falls back to a linear scan when the distance isn't a metric, when there are too few
+ * clusters, or when a query pass evaluated nearly as many distances as a linear scan would.
+ */
+public final class CentroidIndex
+{
+    /**
+     * Below this number of clusters, a linear scan is always faster.
+     */
+    static final int MIN_TREE_CLUSTERS = 64;
+
+    /**
+     * Maximum number of centroids of a leaf.
+     */
+    private static final int LEAF_SIZE = 8;
+
+    /**
+     * The tree is abandoned once a pass evaluates more than this fraction of the distances of a
+     * linear scan, since visiting the nodes costs more than scanning.
+     */
+    private static final double MAX_EVALUATION_RATIO = 0.5;
+
+    /**
+     * A node is skipped only when its ball is further than the nearest centroid by more than this
+     * relative margin, so rounding errors can't skip a nearer or equally near centroid.
+     */
+    private static final double PRUNING_MARGIN = 1e-9;
+
+    private final double[] centroids;
+    private final int k;
+    private final int d;
+    private final Distance distance;
+
+    /**
+     * {@link Distance#centroidNorm} of every centroid, for sparse datasets.
+     */
+    private final double[] norms;
+
+    /**
+     * The centroids rounded to floats, computed on the first assignment of a {@link FloatDataset}.
+     */
+    private volatile float[] singles;
+
+    /**
+     * Centroid indexes, ordered so that every node covers a contiguous range.
+     */
+    private final int[] order;
+
+    /**
+     * Row-major centres of the nodes.
+     */
+    private final double[] centres;
+    private final double[] centreNorms;
+    private final double[] radii;
+    private final int[] starts;
+    private final int[] ends;
+
+    /**
+     * Indexes of the two children of every node, -1 for a leaf.
+     */
+    private final int[] firstChildren;
+    private final int[] secondChildren;
+
+    private int nodes;
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+
+    private CentroidIndex(double[] centroids, int k, int d, Distance distance, boolean tree)
+    {
+        this.centroids = centroids;
+        this.k = k;
+        this.d = d;
+        this.distance = distance;
+        this.norms = AssignmentEngine.centroidNorms(centroids, k, d, distance);
+        if (!tree)
+        {
+            order = null;
+            centreNorms = null;
+            centres = null;
+            radii = null;
+            starts = null;
+            ends = null;
+            firstChildren = null;
+            secondChildren = null;
+            return;
+        }
+
+        // the median splits leave at least LEAF_SIZE / 2 centroids per leaf
+        int capacity = 2 * (k / (LEAF_SIZE / 2) + 1);
+        order = new int[k];
+        for (int i = 0; i < k; i++)
+            order[i] = i;
+        centres = new double[capacity * d];
+        centreNorms = new double[capacity];
+        radii = new double[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        firstChildren = new int[capacity];
+        secondChildren = new int[capacity];
+        build(0, k);
+    }
+
+    /**
+     * Indexes the given centroids.
+     *
+     * @param centroids Row-major buffer of all centroids, must not change while the index is used.
+     * @param k         Number of centroids.
+     * @param distance  To calculate the distance between two items.
+     * @return a ball tree, or a linear scan when a tree wouldn't help
+     */
+    public static CentroidIndex build(double[] centroids, int k, Distance distance)
+    {
+        if (centroids == null || k <= 0 || centroids.length % k != 0)
+            throw new IllegalArgumentException("Expected a buffer of " + k + " centroids");
+
+        if (distance == null)
+            throw new IllegalArgumentException("The distance calculator is required");
+
+        return new CentroidIndex(centroids, k, centroids.length / k, distance,
+                distance.isMetric() && k >= MIN_TREE_CLUSTERS);
+    }
+
+    /**
+     * Indexes the relocated centroids with the same distance. An index that has fallen back to a
+     * linear scan stays so, since the relocated centroids are close to the previous ones.
+     *
+     * @param relocated Row-major buffer of the relocated centroids.
+     * @return the index of the relocated centroids
+     */
+    public CentroidIndex rebuild(double[] relocated)
+    {
+        if (relocated == null || relocated.length != k * d)
+            throw new IllegalArgumentException("Expected a buffer of " + k + " centroids");
+
+        boolean helped = isTree() && evaluations.sum() <= MAX_EVALUATION_RATIO * queries.sum() * k;
+        return new CentroidIndex(relocated, k, d, distance, helped);
+    }
+
+    /**
+     * @return false if the queries scan every centroid
+     */
+    public boolean isTree()
+    {
+        return order != null;
+    }
+
+    public int getK()
+    {
+        return k;
+    }
+
+    /**
+     * @return number of distances evaluated by all the queries so far
+     */
+    public long getEvaluations()
+    {
+        return evaluations.sum();
+    }
+
+    /**
+     * Assigns the rows of the [from, to) range on the calling thread.
+     *
+     * @param labels    The cluster index of every row, updated in place.
+     * @param distances Receives the distance of every row to its centroid, may be null.
+     * @return number of rows whose label changed
+     */
+    int assign(Dataset dataset, int[] labels, double[] distances, int from, int to)
+    {
+        if (!isTree())
+        {
+            evaluations.add((long) (to - from) * k);
+            queries.add(to - from);
+            float[] rounded = singles;
+            if (rounded == null && dataset instanceof FloatDataset)
+                singles = rounded = AssignmentEngine.singlePrecision(dataset, centroids, k);
+            return AssignmentEngine.assign(dataset, centroids, norms, rounded, k, distance, labels, distances, from, to);
+        }
+
+        Query query = new Query();
+        int changes = 0;
+        for (int row = from; row < to; row++)
+        {
+            query.reset();
+            search(dataset, row, 0, query);
+
+            if (distances != null)
+                distances[row] = distance.fromRankingDistance(query.ranking);
+
+            if (labels[row] != query.nearest)
+            {
+                labels[row] = query.nearest;
+                changes++;
+            }
+        }
+        evaluations.add(query.evaluations);
+        queries.add(to - from);
+        return changes;
+    }
+
+    /**
+     * @return the index of the nearest centroid to the given row
+     */
+    public int nearest(Dataset dataset, int row)
+    {
+        if (!isTree())
+            return AssignmentEngine.nearestCentroid(dataset, row, centroids, norms, k, distance);
+
+        Query query = new Query();
+        query.reset();
+        search(dataset, row, 0, query);
+        return query.nearest;
+    }
+
+    /**
+     * Visits the children of a node, the nearer one first, or scans the centroids of a leaf.
+     */
+    private void search(Dataset dataset, int row, int node, Query query)
+    {
+        if (firstChildren[node] < 0)
+        {
+            for (int i = starts[node]; i < ends[node]; i++)
+            {
+                int centroid = order[i];
+                double ranking = dataset.rankingDistance(row, centroids, centroid * d, norms[centroid], distance);
+                if (ranking < query.ranking || (ranking == query.ranking && centroid < query.nearest))
+                {
+                    query.ranking = ranking;
+                    query.nearest = centroid;
+                    query.bound = distance.fromRankingDistance(ranking);
+                }
+            }
+            query.evaluations += ends[node] - starts[node];
+            return;
+        }
+
+        int first = firstChildren[node];
+        int second = secondChildren[node];
+        double firstDistance = dataset.distance(row, centres, first * d, centreNorms[first], distance);
+        double secondDistance = dataset.distance(row, centres, second * d, centreNorms[second], distance);
+        query.evaluations += 2;
+
+        if (firstDistance - radii[first] > secondDistance - radii[second])
+        {
+            int swap = first;
+            first = second;
+            second = swap;
+            double swapDistance = firstDistance;
+            firstDistance = secondDistance;
+            secondDistance = swapDistance;
+        }
+
+        if (!isPruned(firstDistance, radii[first], query))
+            search(dataset, row, first, query);
+        if (!isPruned(secondDistance, radii[second], query))
+            search(dataset, row, second, query);
+    }
+
+    /**
+     * @return true if no centroid of the ball can be nearer than, or as near as, the best one
+     */
+    private static boolean isPruned(double centreDistance, double radius, Query query)
+    {
+        double lowerBound = centreDistance - radius;
+        return lowerBound - query.bound > PRUNING_MARGIN * (query.bound + radius + centreDistance);
+    }
+
+    /**
+     * Builds the subtree of the centroids order[from, to) at the next free node.
+     */
+    private void build(int from, int to)
+    {
+        int node = nodes++;
+        starts[node] = from;
+        ends[node] = to;
+
+        // the centre is the mean of the centroids, any point would do for the triangle inequality
+        int offset = node * d;
+        Arrays.fill(centres, offset, offset + d, 0);
+        for (int i = from; i < to; i++)
+        {
+            for (int column = 0; column < d; column++)
+                centres[offset + column] += centroids[order[i] * d + column];
+        }
+        for (int column = 0; column < d; column++)
+            centres[offset + column] /= to - from;
+        centreNorms[node] = distance.centroidNorm(centres, offset, d);
+
+        double radius = 0;
+        for (int i = from; i < to; i++)
+            radius = Math.max(radius, distance.calculate(centres, offset, centroids, order[i] * d, d));
+        radii[node] = radius;
+
+        if (to - from <= LEAF_SIZE)
+        {
+            firstChildren[node] = -1;
+            secondChildren[node] = -1;
+            return;
+        }
+
+        // split at the median of the widest column
+        int widest = 0;
+        double widestSpread = -1;
+        for (int column = 0; column < d; column++)
+        {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++)
+            {
+                double value = centroids[order[i] * d + column];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > widestSpread)
+            {
+                widestSpread = max - min;
+                widest = column;
+            }
+        }
+        sortByColumn(from, to, widest);
+
+        int middle = (from + to) >>> 1;
+        firstChildren[node] = nodes;
+        build(from, middle);
+        secondChildren[node] = nodes;
+        build(middle, to);
+    }
+
+    /**
+     * Sorts order[from, to) by the given column, the centroid index breaking ties.
+     */
+    private void sortByColumn(int from, int to, int column)
+    {
+        Integer[] range = new Integer[to - from];
+        for (int i = from; i < to; i++)
+            range[i - from] = order[i];
+
+        Arrays.sort(range, (a, b) -> {
+            int comparison = Double.compare(centroids[a * d + column], centroids[b * d + column]);
+            return comparison != 0 ? comparison : Integer.compare(a, b);
+        });
+        for (int i = from; i < to; i++)
+            order[i] = range[i - from];
+    }
+
+    /**
+     * Nearest centroid found so far for the current row.
+     */
+    private static final class Query
+    {
+        private int nearest;
+        private double ranking;
+
+        /**
+         * Distance to the nearest centroid so far.
+         */
+        private double bound;
+        private long evaluations;
+
+        void reset()
+        {
+            nearest = 0;
+            ranking = Double.MAX_VALUE;
+            bound = Double.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.kmeans.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Chooses the initial centroids among the records of the dataset. Unlike
+ * {@link KMeans#randomCentroids(Dataset, int)}, both strategies favour records far from the
+ * centroids chosen so far, which avoids empty clusters and saves many iterations. The
+ * distance-to-nearest-centroid updates run on an {@link AssignmentEngine}, and the result only
+ * depends on the seed, not on the number of threads.
+ */
+public final class CentroidSeeding
+{
+    /**
+     * Default number of sampling rounds of k-means||.
+     */
+    public static final int DEFAULT_ROUNDS = 5;
+
+    private CentroidSeeding()
+    {
+    }
+
+    /**
+     * k-means++: the first centroid is a uniformly drawn record, then every next one is drawn
+     * with a probability proportional to its squared distance to the nearest centroid so far.
+     *
+     * @param dataset  The dataset.
+     * @param k        Number of clusters.
+     * @param distance To calculate the distance between two items.
+     * @param seed     Seed of the random draws.
+     * @param engine   Runs the distance updates, possibly in parallel.
+     * @return k centroids
+     */
+    public static List<Centroid> kMeansPlusPlus(Dataset dataset, int k, Distance distance, long seed,
+                                                AssignmentEngine engine)
+    {
+        applyPreconditions(dataset, k, distance, engine);
+
+        int n = dataset.size();
+        int d = dataset.dimensions();
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] centroids = new double[k * d];
+        double[] weights = new double[n];
+        Arrays.fill(weights, Double.MAX_VALUE);
+
+        int chosen = random.nextInt(n);
+        for (int i = 0; ; i++)
+        {
+            copyRow(dataset, chosen, centroids, i * d);
+            if (i == k - 1)
+                break;
+
+            double total = update(dataset, centroids, i * d, distance, weights, engine);
+            chosen = draw(weights, total, random);
+        }
+        return toCentroids(dataset.schema(), centroids, k);
+    }
+
+    /**
+     * k-means||: a few rounds oversample about {@code oversampling} records each, every record
+     * being drawn independently with a probability proportional to its squared distance to the
+     * nearest candidate. The candidates are then weighted by the number of records closest to them
+     * and reduced to k centroids with a weighted k-means++.
+     *
+     * @param dataset      The dataset.
+     * @param k            Number of clusters.
+     * @param distance     To calculate the distance between two items.
+     * @param rounds       Number of sampling rounds, e.g. {@link #DEFAULT_ROUNDS}.
+     * @param oversampling Expected number of candidates drawn per round, usually 2k.
+     * @param seed         Seed of the random draws.
+     * @param engine       Runs the sampling rounds, possibly in parallel.
+     * @return k centroids
+     */
+    public static List<Centroid> kMeansParallel(Dataset dataset, int k, Distance distance, int rounds,
+                                                double oversampling, long seed, AssignmentEngine engine)
+    {
+        applyPreconditions(dataset, k, distance, engine);
+        if (rounds <= 0 || oversampling <= 0)
+            throw new IllegalArgumentException("The rounds and the oversampling factor should be positive");
+
+        int n = dataset.size();
+        int d = dataset.dimensions();
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] weights = new double[n];
+        Arrays.fill(weights, Double.MAX_VALUE);
+        boolean[] selected = new boolean[n];
+
+        int first = random.nextInt(n);
+        selected[first] = true;
+        double[] candidates = new double[d];
+        copyRow(dataset, first, candidates, 0);
+        int count = 1;
+        double total = update(dataset, candidates, 0, distance, weights, engine);
+
+        for (int round = 0; round < rounds && total > 0; round++)
+        {
+            // 1ST STEP : every record is drawn independently, with a deterministic per-row random number
+            double psi = total;
+            int currentRound = round;
+            engine.forEachChunk(n, d, (from, to) -> {
+                for (int row = from; row < to; row++)
+                {
+                    if (!selected[row] && uniform(seed, currentRound, row) * psi < oversampling * weights[row])
+                        selected[row] = true;
+                }
+                return 0;
+            });
+
+            // 2ND STEP : gather the new candidates in row order and move the records closer to them.
+            // A record equal to a candidate has a zero weight, so it can't be drawn twice
+            int previous = count;
+            for (int row = 0; row < n; row++)
+            {
+                if (selected[row] && weights[row] > 0)
+                {
+                    if ((count + 1) * d > candidates.length)
+                        candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                    copyRow(dataset, row, candidates, count * d);
+                    count++;
+                }
+            }
+            if (count == previous)
+                continue;
+
+            double[] buffer = candidates;
+            int from = previous;
+            int to = count;
+            double[] norms = AssignmentEngine.centroidNorms(buffer, to, d, distance);
+            engine.forEachChunk(n, d, (start, end) -> {
+                for (int row = start; row < end; row++)
+                {
+                    for (int candidate = from; candidate < to; candidate++)
+                    {
+                        double current = dataset.distance(row, buffer, candidate * d, norms[candidate], distance);
+                        weights[row] = Math.min(weights[row], distance.squaredError(current));
+                    }
+                }
+                return 0;
+            });
+            total = sum(weights);
+        }
+
+        // 3RD STEP : weight every candidate by the number of records closest to it
+        double[] buffer = candidates;
+        int candidateCount = count;
+        long[] counts = new long[count];
+        double[] norms = AssignmentEngine.centroidNorms(buffer, count, d, distance);
+        engine.forEachChunk(n, d, (from, to) -> {
+            long[] partial = new long[candidateCount];
+            for (int row = from; row < to; row++)
+                partial[AssignmentEngine.nearestCentroid(dataset, row, buffer, norms, candidateCount, distance)]++;
+            synchronized (counts)
+            {
+                for (int i = 0; i < candidateCount; i++)
+                    counts[i] += partial[i];
+            }
+            return 0;
+        });
+
+        return toCentroids(dataset.schema(), reduce(candidates, counts, count, k, d, distance, random), k);
+    }
+
+    /**
+     * Weighted k-means++ over the candidates, falling back to uniform draws when there are not
+     * enough distinct candidates.
+     */
+    private static double[] reduce(double[] candidates, long[] counts, int count, int k, int d, Distance distance,
+                                   SplittableRandom random)
+    {
+        double[] centroids = new double[k * d];
+        double[] weights = new double[count];
+        Arrays.fill(weights, Double.MAX_VALUE);
+
+        int chosen = drawWeighted(counts, random);
+        for (int i = 0; ; i++)
+        {
+            System.arraycopy(candidates, chosen * d, centroids, i * d, d);
+            if (i == k - 1)
+                return centroids;
+
+            double total = 0;
+            for (int candidate = 0; candidate < count; candidate++)
+            {
+                double current = distance.calculate(candidates, candidate * d, centroids, i * d, d);
+                weights[candidate] = Math.min(weights[candidate], distance.squaredError(current));
+                total += weights[candidate] * counts[candidate];
+            }
+
+            if (total <= 0)
+            {
+                chosen = random.nextInt(count);
+                continue;
+            }
+
+            double target = random.nextDouble() * total;
+            chosen = count - 1;
+            for (int candidate = 0; candidate < count; candidate++)
+            {
+                target -= weights[candidate] * counts[candidate];
+                if (target < 0)
+                {
+                    chosen = candidate;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int drawWeighted(long[] counts, SplittableRandom random)
+    {
+        long total = 0;
+        for (long count : counts)
+            total += count;
+
+        long target = random.nextLong(total);
+        for (int i = 0; i < counts.length; i++)
+        {
+            target -= counts[i];
+            if (target < 0)
+                return i;
+        }
+        return counts.length - 1;
+    }
+
+    /**
+     * Lowers the weight of every record to its squared distance to the given centroid.
+     *
+     * @return the sum of all weights
+     */
+    private static double update(Dataset dataset, double[] centroids, int offset, Distance distance, double[] weights,
+                                 AssignmentEngine engine)
+    {
+        double norm = distance.centroidNorm(centroids, offset, dataset.dimensions());
+        engine.forEachChunk(weights.length, dataset.dimensions(), (from, to) -> {
+            for (int row = from; row < to; row++)
+            {
+                double current = dataset.distance(row, centroids, offset, norm, distance);
+                weights[row] = Math.min(weights[row], distance.squaredError(current));
+            }
+            return 0;
+        });
+        return sum(weights);
+    }
+
+    /**
+     * Sums the weights in row order, so that the draws don't depend on the number of threads.
+     */
+    private static double sum(double[] weights)
+    {
+        double total = 0;
+        for (double weight : weights)
+            total += weight;
+        return total;
+    }
+
+    /**
+     * Draws a row with a probability proportional to its weight, or uniformly when every weight
+     * is zero, i.e. when there are fewer distinct records than clusters.
+     */
+    private static int draw(double[] weights, double total, SplittableRandom random)
+    {
+        if (total <= 0)
+            return random.nextInt(weights.length);
+
+        double target = random.nextDouble() * total;
+        for (int row = 0; row < weights.length; row++)
+        {
+            target -= weights[row];
+            if (target < 0)
+                return row;
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * @return a uniform number in [0, 1) that only depends on the seed, the round and the row
+     */
+    private static double uniform(long seed, int round, int row)
+    {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) round << 32) + row + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    private static void copyRow(Dataset dataset, int row, double[] target, int offset)
+    {
+        for (int column = 0; column < dataset.dimensions(); column++)
+            target[offset + column] = dataset.get(row, column);
+    }
+
+    private static List<Centroid> toCentroids(Schema schema, double[] coordinates, int k)
+    {
+        int d = schema.dimensions();
+        List<Centroid> centroids = new ArrayList<>(k);
+        for (int i = 0; i < k; i++)
+            centroids.add(new Centroid(schema, Arrays.copyOfRange(coordinates, i * d, (i + 1) * d)));
+        return centroids;
+    }
+
+    private static void applyPreconditions(Dataset dataset, int k, Distance distance, AssignmentEngine engine)
+    {
+        if (dataset == null || dataset.size() == 0)
+            throw new IllegalArgumentException("The dataset can't be empty");
+
+        if (k <= 1)
+            throw new IllegalArgumentException("It doesn't make sense to have less than or equal to 1 cluster");
+
+        if (distance == null)
+            throw new IllegalArgumentException("The distance calculator is required");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
+    }
+}
@@ -0,0 +1,378 @@
+package com.kmeans.kmeans;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Internal quality scores of a clustering run, computed from its labels and centroids.
+ * <p>
+ * The silhouette compares the mean distance of every row to its own cluster with the mean
+ * distance to the nearest other cluster, so the exact score costs a distance between every pair
+ * of rows. Those distances are computed by tiles: a tile of rows is copied to a buffer that stays
+ * in the L1 cache while a chunk of rows, which stays in the L2 cache, is compared to it, and the
+ * chunks run in parallel. It remains quadratic, so on large datasets
+ * {@link #sampledSilhouette} scores a uniform sample of rows against every row instead.
+ * Davies-Bouldin and Calinski-Harabasz only compare every row to its own centroid, in linear time.
+ */
+public final class ClusterQuality
+{
+    /**
+     * Target number of feature bytes of a tile, small enough to stay in the L1 cache.
+     */
+    private static final int TILE_BYTES = 16 * 1024;
+
+    /**
+     * Quantile of the standard normal distribution bounding a 95% confidence interval.
+     */
+    private static final double Z_95 = 1.959964;
+
+    private ClusterQuality()
+    {
+    }
+
+    /**
+     * Calculates the exact mean silhouette, between -1 and 1, of all rows. A row alone in its
+     * cluster scores 0.
+     *
+     * @param result   The clustering run.
+     * @param distance The distance the run was performed with.
+     * @param engine   Runs the chunks of rows, possibly in parallel.
+     * @return the mean silhouette
+     */
+    public static double silhouette(ClusteringResult result, Distance distance, AssignmentEngine engine)
+    {
+        applyPreconditions(result, distance, engine);
+        Dataset dataset = result.getDataset();
+        int[] labels = result.getLabels();
+        int[] sizes = result.getClusterSizes();
+        int k = result.getK();
+        int n = labels.length;
+        int d = dataset.dimensions();
+        int tileRows = tileRows(d);
+
+        double[] silhouettes = new double[n];
+        engine.forEachChunk(n, d, (from, to) -> {
+            double[] sums = new double[(to - from) * k];
+            double[] tile = new double[tileRows * d];
+            double[] norms = new double[tileRows];
+            for (int start = 0; start < n; start += tileRows)
+            {
+                int end = Math.min(n, start + tileRows);
+                copyRows(dataset, start, end, tile, norms, distance);
+                for (int row = from; row < to; row++)
+                {
+                    int offset = (row - from) * k;
+                    for (int other = start; other < end; other++)
+                    {
+                        if (other != row)
+                            sums[offset + labels[other]] += dataset.distance(row, tile, (other - start) * d,
+                                    norms[other - start], distance);
+                    }
+                }
+            }
+
+            for (int row = from; row < to; row++)
+                silhouettes[row] = silhouette(sums, (row - from) * k, labels[row], sizes);
+            return 0;
+        });
+
+        // summed in row order, so that the score doesn't depend on the number of threads
+        double total = 0;
+        for (double silhouette : silhouettes)
+            total += silhouette;
+        return total / n;
+    }
+
+    /**
+     * Estimates the mean silhouette from a uniform sample of distinct rows, each compared to
+     * every row, so that it costs {@code sampleSize * n} distances instead of {@code n^2}. The
+     * confidence interval follows from the central limit theorem, with the finite population
+     * correction, so it is exact when the sample is the whole dataset.
+     *
+     * @param result     The clustering run.
+     * @param distance   The distance the run was performed with.
+     * @param sampleSize Number of sampled rows, at most the number of rows.
+     * @param seed       Seed of the sample.
+     * @param engine     Runs the chunks of rows, possibly in parallel.
+     * @return the estimated mean silhouette and its 95% confidence interval
+     */
+    public static SilhouetteEstimate sampledSilhouette(ClusteringResult result, Distance distance, int sampleSize,
+                                                       long seed, AssignmentEngine engine)
+    {
+        applyPreconditions(result, distance, engine);
+        Dataset dataset = result.getDataset();
+        int[] labels = result.getLabels();
+        int[] sizes = result.getClusterSizes();
+        int k = result.getK();
+        int n = labels.length;
+        int d = dataset.dimensions();
+        if (sampleSize <= 0 || sampleSize > n)
+            throw new IllegalArgumentException("The sample size should be within [1, " + n + "], got " + sampleSize);
+
+        int[] samples = sample(n, sampleSize, seed);
+        double[] tile = new double[sampleSize * d];
+        double[] norms = new double[sampleSize];
+        for (int i = 0; i < sampleSize; i++)
+            copyRow(dataset, samples[i], tile, norms, i, distance);
+
+        // every chunk of rows is compared to all samples, the distance being symmetric, and the
+        // chunks are merged in a fixed order, so that the estimate doesn't depend on the threads
+        int tileRows = tileRows(d);
+        double[] sums = engine.reduceChunks(n, d, (from, to) -> {
+            double[] partial = new double[sampleSize * k];
+            for (int start = 0; start < sampleSize; start += tileRows)
+            {
+                int end = Math.min(sampleSize, start + tileRows);
+                for (int row = from; row < to; row++)
+                {
+                    int label = labels[row];
+                    for (int i = start; i < end; i++)
+                    {
+                        if (samples[i] != row)
+                            partial[i * k + label] += dataset.distance(row, tile, i * d, norms[i], distance);
+                    }
+                }
+            }
+            return partial;
+        }, ClusterQuality::add);
+
+        double mean = 0;
+        double[] silhouettes = new double[sampleSize];
+        for (int i = 0; i < sampleSize; i++)
+        {
+            silhouettes[i] = silhouette(sums, i * k, labels[samples[i]], sizes);
+            mean += silhouettes[i];
+        }
+        mean /= sampleSize;
+
+        if (sampleSize == 1 || sampleSize == n)
+            return new SilhouetteEstimate(mean, sampleSize == n ? mean : -1, sampleSize == n ? mean : 1, sampleSize);
+
+        double variance = 0;
+        for (double silhouette : silhouettes)
+            variance += (silhouette - mean) * (silhouette - mean);
+        variance /= sampleSize - 1;
+        double error = Z_95 * Math.sqrt(variance / sampleSize * (n - sampleSize) / (n - 1));
+        return new SilhouetteEstimate(mean, Math.max(-1, mean - error), Math.min(1, mean + error), sampleSize);
+    }
+
+    /**
+     * Calculates the Davies-Bouldin index: the mean, over all clusters, of the highest ratio
+     * between the scatters of the cluster and of another cluster, and the distance between both
+     * centroids. The scatter of a cluster is the mean distance of its rows to its centroid. Lower
+     * is better, and empty clusters are ignored.
+     *
+     * @param result   The clustering run.
+     * @param distance The distance the run was performed with.
+     * @param engine   Runs the chunks of rows, possibly in parallel.
+     * @return the Davies-Bouldin index, infinite when two non-empty clusters share their centroid
+     */
+    public static double daviesBouldin(ClusteringResult result, Distance distance, AssignmentEngine engine)
+    {
+        applyPreconditions(result, distance, engine);
+        double[] centroids = result.getCentroidCoordinates();
+        int k = result.getK();
+        int d = result.getDataset().dimensions();
+        double[][] scatter = scatter(result, distance, engine);
+        double[] counts = scatter[0];
+        double[] distances = scatter[1];
+
+        double total = 0;
+        int clusters = 0;
+        for (int i = 0; i < k; i++)
+        {
+            if (counts[i] == 0)
+                continue;
+
+            double worst = 0;
+            for (int j = 0; j < k; j++)
+            {
+                if (j == i || counts[j] == 0)
+                    continue;
+
+                double separation = distance.calculate(centroids, i * d, centroids, j * d, d);
+                double similarity = distances[i] / counts[i] + distances[j] / counts[j];
+                worst = Math.max(worst, separation == 0 ? Double.POSITIVE_INFINITY : similarity / separation);
+            }
+            total += worst;
+            clusters++;
+        }
+
+        if (clusters < 2)
+            throw new IllegalArgumentException("Expected at least 2 non-empty clusters");
+        return total / clusters;
+    }
+
+    /**
+     * Calculates the Calinski-Harabasz index: the ratio between the dispersion of the centroids
+     * around the mean row, weighted by the size of their clusters, and the dispersion of the rows
+     * around their centroid, each divided by its degrees of freedom. Higher is better, and empty
+     * clusters are ignored. Both dispersions are sums of squared distances, so the index has its
+     * usual meaning with the Euclidean distances and centroids that are means.
+     *
+     * @param result   The clustering run.
+     * @param distance The distance the run was performed with.
+     * @param engine   Runs the chunks of rows, possibly in parallel.
+     * @return the Calinski-Harabasz index, infinite when every row lies on its centroid
+     */
+    public static double calinskiHarabasz(ClusteringResult result, Distance distance, AssignmentEngine engine)
+    {
+        applyPreconditions(result, distance, engine);
+        Dataset dataset = result.getDataset();
+        double[] centroids = result.getCentroidCoordinates();
+        int k = result.getK();
+        int n = dataset.size();
+        int d = dataset.dimensions();
+        double[][] scatter = scatter(result, distance, engine);
+        double[] counts = scatter[0];
+        double[] squares = scatter[2];
+
+        double[] mean = new double[d];
+        for (int row = 0; row < n; row++)
+            dataset.accumulate(row, mean, 0);
+        for (int column = 0; column < d; column++)
+            mean[column] /= n;
+
+        double between = 0;
+        double within = 0;
+        int clusters = 0;
+        for (int cluster = 0; cluster < k; cluster++)
+        {
+            if (counts[cluster] == 0)
+                continue;
+
+            double separation = distance.calculate(centroids, cluster * d, mean, 0, d);
+            between += counts[cluster] * distance.squaredError(separation);
+            within += squares[cluster];
+            clusters++;
+        }
+
+        if (clusters < 2 || clusters >= n)
+            throw new IllegalArgumentException("Expected at least 2 non-empty clusters, and fewer than rows");
+        return within == 0 ? Double.POSITIVE_INFINITY : between * (n - clusters) / (within * (clusters - 1));
+    }
+
+    /**
+     * @return the size, the sum of the distances and the sum of the squared distances of the rows
+     * of every cluster to its centroid
+     */
+    private static double[][] scatter(ClusteringResult result, Distance distance, AssignmentEngine engine)
+    {
+        Dataset dataset = result.getDataset();
+        double[] centroids = result.getCentroidCoordinates();
+        int[] labels = result.getLabels();
+        int k = result.getK();
+        int d = dataset.dimensions();
+        double[] norms = AssignmentEngine.centroidNorms(centroids, k, d, distance);
+
+        return engine.reduceChunks(labels.length, d, (from, to) -> {
+            double[][] partial = new double[3][k];
+            for (int row = from; row < to; row++)
+            {
+                int label = labels[row];
+                double value = dataset.distance(row, centroids, label * d, norms[label], distance);
+                partial[0][label]++;
+                partial[1][label] += value;
+                partial[2][label] += distance.squaredError(value);
+            }
+            return partial;
+        }, (left, right) -> {
+            for (int i = 0; i < left.length; i++)
+                add(left[i], right[i]);
+            return left;
+        });
+    }
+
+    /**
+     * Adds the right partial sums to the left ones.
+     *
+     * @return the left sums
+     */
+    private static double[] add(double[] left, double[] right)
+    {
+        for (int i = 0; i < left.length; i++)
+            left[i] += right[i];
+        return left;
+    }
+
+    /**
+     * @param sums   sums of the distances of a row to the rows of every cluster, itself excluded
+     * @param offset offset of the sums of the row
+     * @param label  cluster of the row
+     * @param sizes  size of every cluster
+     * @return the silhouette of the row
+     */
+    private static double silhouette(double[] sums, int offset, int label, int[] sizes)
+    {
+        if (sizes[label] <= 1)
+            return 0;
+
+        double own = sums[offset + label] / (sizes[label] - 1);
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int cluster = 0; cluster < sizes.length; cluster++)
+        {
+            if (cluster != label && sizes[cluster] > 0)
+                nearest = Math.min(nearest, sums[offset + cluster] / sizes[cluster]);
+        }
+
+        double scale = Math.max(own, nearest);
+        return scale == 0 || nearest == Double.POSITIVE_INFINITY ? 0 : (nearest - own) / scale;
+    }
+
+    /**
+     * Draws distinct rows with Floyd's algorithm, which only needs as much memory as the sample.
+     *
+     * @return the sampled rows, in increasing order
+     */
+    private static int[] sample(int n, int sampleSize, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        Set<Integer> drawn = new HashSet<>(sampleSize * 2);
+        for (int bound = n - sampleSize; bound < n; bound++)
+        {
+            int row = random.nextInt(bound + 1);
+            drawn.add(drawn.contains(row) ? bound : row);
+        }
+
+        int[] samples = new int[sampleSize];
+        int i = 0;
+        for (int row : drawn)
+            samples[i++] = row;
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void copyRows(Dataset dataset, int from, int to, double[] tile, double[] norms, Distance distance)
+    {
+        for (int row = from; row < to; row++)
+            copyRow(dataset, row, tile, norms, row - from, distance);
+    }
+
+    private static void copyRow(Dataset dataset, int row, double[] tile, double[] norms, int index, Distance distance)
+    {
+        int d = dataset.dimensions();
+        for (int column = 0; column < d; column++)
+            tile[index * d + column] = dataset.get(row, column);
+        norms[index] = distance.centroidNorm(tile, index * d, d);
+    }
+
+    /**
+     * @param dimensions number of features per row
+     * @return number of rows of a tile
+     */
+    private static int tileRows(int dimensions)
+    {
+        return Math.max(16, TILE_BYTES / (Double.BYTES * Math.max(1, dimensions)));
+    }
+
+    private static void applyPreconditions(ClusteringResult result, Distance distance, AssignmentEngine engine)
+    {
+        if (result == null || distance == null)
+            throw new IllegalArgumentException("The clustering result and the distance are required");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
+    }
+}
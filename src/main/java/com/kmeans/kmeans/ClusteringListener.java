@@ -0,0 +1,63 @@
+package com.kmeans.kmeans;
+
+import java.util.function.Supplier;
+
+/**
+ * Observes the iterations of a clustering run, and may abandon it. Listeners are called on the
+ * thread running the clustering, so they should be quick and must not print.
+ */
+@FunctionalInterface
+public interface ClusteringListener
+{
+    /**
+     * Listener that ignores every iteration and lets every run go to its end.
+     */
+    ClusteringListener NONE = new ClusteringListener()
+    {
+        @Override
+        public boolean onIteration(IterationMetrics metrics)
+        {
+            return true;
+        }
+
+        @Override
+        public boolean measuresAllocations()
+        {
+            return false;
+        }
+    };
+
+    /**
+     * Called at the end of every iteration.
+     *
+     * @param metrics what happened during the iteration
+     * @return false to abandon the run, which then returns its current state
+     */
+    boolean onIteration(IterationMetrics metrics);
+
+    /**
+     * Called at the end of every iteration instead of {@link #onIteration(IterationMetrics)}, with
+     * access to the state of the run. Taking the snapshot copies the centroids and counts the rows
+     * of every cluster, so a listener should only do it when it uses it.
+     *
+     * @param metrics  what happened during the iteration
+     * @param snapshot takes a snapshot of the centroids and cluster sizes, during this call only
+     * @return false to abandon the run, which then returns its current state
+     */
+    default boolean onIteration(IterationMetrics metrics, Supplier<ClusteringSnapshot> snapshot)
+    {
+        return onIteration(metrics);
+    }
+
+    /**
+     * Tells whether the run should measure {@link IterationMetrics#allocatedBytes()}, which
+     * costs a walk over all the threads of the JVM at the start and the end of every iteration.
+     * Listeners that ignore it return false, and then get -1.
+     *
+     * @return true if the listener uses the allocated bytes
+     */
+    default boolean measuresAllocations()
+    {
+        return true;
+    }
+}
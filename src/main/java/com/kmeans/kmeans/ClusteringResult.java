@@ -0,0 +1,175 @@
+package com.kmeans.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Final state of a clustering run: the centroids, stored as a flat row-major buffer, and
+ * the cluster label of every row of the dataset.
+ */
+public class ClusteringResult
+{
+    private final Dataset dataset;
+
+    /**
+     * Row-major centroid coordinates, {@code dataset.dimensions()} values per centroid.
+     */
+    private final double[] centroids;
+
+    /**
+     * Cluster index of every row.
+     */
+    private final int[] labels;
+
+    private final int k;
+
+    /**
+     * Number of iterations that were run.
+     */
+    private final int iterations;
+
+    /**
+     * Number of distance calculations skipped in every iteration, empty when the algorithm
+     * doesn't prune any.
+     */
+    private final long[] prunedDistances;
+
+    /**
+     * Sum of the squared distances of every row to its centroid.
+     */
+    private final double inertia;
+
+    public ClusteringResult(Dataset dataset, double[] centroids, int[] labels, int iterations, double inertia)
+    {
+        this(dataset, centroids, labels, iterations, inertia, new long[0]);
+    }
+
+    public ClusteringResult(Dataset dataset, double[] centroids, int[] labels, int iterations, double inertia,
+                            long[] prunedDistances)
+    {
+        this.dataset = dataset;
+        this.centroids = centroids;
+        this.labels = labels;
+        this.k = centroids.length / dataset.dimensions();
+        this.iterations = iterations;
+        this.inertia = inertia;
+        this.prunedDistances = prunedDistances;
+    }
+
+    public Dataset getDataset()
+    {
+        return dataset;
+    }
+
+    public int getK()
+    {
+        return k;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * @return the sum of the squared distances of every row to its centroid, the lower the better
+     */
+    public double getInertia()
+    {
+        return inertia;
+    }
+
+    /**
+     * @return number of record-to-centroid distance calculations skipped in every iteration
+     */
+    public long[] getPrunedDistances()
+    {
+        return prunedDistances;
+    }
+
+    /**
+     * @return the cluster index of every row, not a copy
+     */
+    public int[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * @return the row-major centroid buffer, not a copy
+     */
+    public double[] getCentroidCoordinates()
+    {
+        return centroids;
+    }
+
+    /**
+     * @return the centroids, detached from the dataset
+     */
+    public KMeansModel getModel()
+    {
+        return new KMeansModel(dataset.schema(), centroids, iterations);
+    }
+
+    /**
+     * @param distance the distance the centroids were found with
+     * @return the centroids, detached from the dataset
+     */
+    public KMeansModel getModel(Distance distance)
+    {
+        return new KMeansModel(dataset.schema(), centroids, iterations, distance);
+    }
+
+    /**
+     * @param cluster cluster index
+     * @return the centroid of the cluster
+     */
+    public Centroid getCentroid(int cluster)
+    {
+        int d = dataset.dimensions();
+        return new Centroid(dataset.schema(), Arrays.copyOfRange(centroids, cluster * d, (cluster + 1) * d));
+    }
+
+    public List<Centroid> getCentroids()
+    {
+        List<Centroid> list = new ArrayList<>(k);
+        for (int i = 0; i < k; i++)
+            list.add(getCentroid(i));
+        return list;
+    }
+
+    /**
+     * @return number of rows assigned to each cluster
+     */
+    public int[] getClusterSizes()
+    {
+        int[] sizes = new int[k];
+        for (int label : labels)
+            sizes[label]++;
+        return sizes;
+    }
+
+    /**
+     * Builds the map-based cluster configuration. Every cluster is present, even an empty one.
+     *
+     * @return records of each cluster, keyed by centroid in cluster index order
+     */
+    public Map<Centroid, List<Record>> getClusters()
+    {
+        int[] sizes = getClusterSizes();
+        List<List<Record>> members = new ArrayList<>(k);
+        for (int i = 0; i < k; i++)
+            members.add(new ArrayList<>(sizes[i]));
+
+        for (int row = 0; row < labels.length; row++)
+            members.get(labels[row]).add(dataset.record(row));
+
+        Map<Centroid, List<Record>> clusters = new LinkedHashMap<>(k);
+        for (int i = 0; i < k; i++)
+            clusters.put(getCentroid(i), members.get(i));
+        return clusters;
+    }
+}
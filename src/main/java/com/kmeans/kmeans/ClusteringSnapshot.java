@@ -0,0 +1,111 @@
+package com.kmeans.kmeans;
+
+import java.util.Arrays;
+
+/**
+ * Immutable state of a clustering run at the end of one iteration: the centroids the rows were
+ * assigned to, and the resulting size of every cluster. It owns copies of both, so it can be
+ * handed to another thread, e.g. to draw the progress of the run while it goes on.
+ */
+public final class ClusteringSnapshot
+{
+    private final int iteration;
+
+    /**
+     * Row-major centroid coordinates.
+     */
+    private final double[] centroids;
+
+    private final int[] clusterSizes;
+
+    private final double inertia;
+
+    /**
+     * @param iteration    index of the iteration, starting at 0
+     * @param centroids    row-major centroid coordinates, copied
+     * @param clusterSizes number of rows of every cluster, copied
+     * @param inertia      sum of the squared distances of every row to its centroid
+     */
+    public ClusteringSnapshot(int iteration, double[] centroids, int[] clusterSizes, double inertia)
+    {
+        if (centroids == null || clusterSizes == null || clusterSizes.length == 0
+                || centroids.length % clusterSizes.length != 0)
+            throw new IllegalArgumentException("Expected the same number of centroids and cluster sizes");
+
+        this.iteration = iteration;
+        this.centroids = centroids.clone();
+        this.clusterSizes = clusterSizes.clone();
+        this.inertia = inertia;
+    }
+
+    /**
+     * Takes the snapshot of a run from its current centroids and labels.
+     *
+     * @param iteration index of the iteration
+     * @param centroids row-major centroid coordinates
+     * @param k         number of clusters
+     * @param labels    cluster of every row
+     * @param inertia   sum of the squared distances of every row to its centroid
+     * @return the snapshot
+     */
+    static ClusteringSnapshot of(int iteration, double[] centroids, int k, int[] labels, double inertia)
+    {
+        int[] sizes = new int[k];
+        for (int label : labels)
+        {
+            if (label >= 0)
+                sizes[label]++;
+        }
+        return new ClusteringSnapshot(iteration, centroids, sizes, inertia);
+    }
+
+    /**
+     * @return index of the iteration, starting at 0
+     */
+    public int getIteration()
+    {
+        return iteration;
+    }
+
+    public int getK()
+    {
+        return clusterSizes.length;
+    }
+
+    /**
+     * @return a copy of the row-major centroid coordinates
+     */
+    public double[] getCentroidCoordinates()
+    {
+        return centroids.clone();
+    }
+
+    /**
+     * @param cluster cluster index
+     * @param column  column index
+     * @return the coordinate of the centroid of the cluster
+     */
+    public double getCentroid(int cluster, int column)
+    {
+        return centroids[cluster * (centroids.length / clusterSizes.length) + column];
+    }
+
+    /**
+     * @return a copy of the number of rows of every cluster
+     */
+    public int[] getClusterSizes()
+    {
+        return clusterSizes.clone();
+    }
+
+    public double getInertia()
+    {
+        return inertia;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Iteration " + iteration + ", inertia " + inertia + ", sizes " + Arrays.toString(clusterSizes);
+    }
+}
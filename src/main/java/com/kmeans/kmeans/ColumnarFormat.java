@@ -0,0 +1,257 @@
+package com.kmeans.kmeans;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary cache of a dataset, opened with a single memory mapping and no parsing. All
+ * numbers are little-endian:
+ * <pre>
+ * int    magic "KMDS"
+ * int    version
+ * int    bytes per value, 8 for double or 4 for float columns
+ * int    d, number of columns
+ * long   n, number of rows
+ * d x    int length + UTF-8 bytes of the column name
+ *        padding to a multiple of 8
+ * d x    n contiguous values of the column
+ *        padding to a multiple of 8
+ * long   n + 1 offsets of each description in the text block
+ * byte   UTF-8 text block of all descriptions
+ * </pre>
+ */
+public final class ColumnarFormat
+{
+    static final int MAGIC = 0x53444D4B;
+
+    static final int VERSION = 1;
+
+    /**
+     * Size of the buffer used to write the file.
+     */
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    private ColumnarFormat()
+    {
+    }
+
+    /**
+     * Converts a semicolon-separated dataset file to the binary format.
+     *
+     * @param csv             the dataset file
+     * @param target          the binary file to create or replace
+     * @param singlePrecision store floats instead of doubles
+     * @throws IOException if a file can't be read or written
+     */
+    public static void convert(Path csv, Path target, boolean singlePrecision) throws IOException
+    {
+        write(new MappedCsvLoader(Runtime.getRuntime().availableProcessors()).load(csv), target, singlePrecision);
+    }
+
+    /**
+     * Writes a dataset in the binary format.
+     *
+     * @param dataset         the dataset
+     * @param target          the binary file to create or replace
+     * @param singlePrecision store floats instead of doubles
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Dataset dataset, Path target, boolean singlePrecision) throws IOException
+    {
+        Schema schema = dataset.schema();
+        int n = dataset.size();
+        int d = schema.dimensions();
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(singlePrecision ? Float.BYTES : Double.BYTES).putInt(d).putLong(n);
+            long written = 24;
+            for (String name : schema.names())
+            {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                written += put(channel, buffer, Integer.BYTES + bytes.length);
+                buffer.putInt(bytes.length).put(bytes);
+            }
+            written += pad(channel, buffer, written);
+
+            int bytesPerValue = singlePrecision ? Float.BYTES : Double.BYTES;
+            for (int column = 0; column < d; column++)
+            {
+                for (int row = 0; row < n; row++)
+                {
+                    put(channel, buffer, bytesPerValue);
+                    if (singlePrecision)
+                        buffer.putFloat((float) dataset.get(row, column));
+                    else
+                        buffer.putDouble(dataset.get(row, column));
+                }
+            }
+            written += (long) n * d * bytesPerValue;
+            pad(channel, buffer, written);
+
+            List<byte[]> texts = new ArrayList<>(n);
+            long offset = 0;
+            for (int row = 0; row <= n; row++)
+            {
+                put(channel, buffer, Long.BYTES);
+                buffer.putLong(offset);
+                if (row < n)
+                {
+                    String description = dataset.description(row);
+                    byte[] bytes = (description == null ? "" : description).getBytes(StandardCharsets.UTF_8);
+                    texts.add(bytes);
+                    offset += bytes.length;
+                }
+            }
+            for (byte[] text : texts)
+            {
+                if (text.length > buffer.capacity())
+                {
+                    flush(channel, buffer);
+                    channel.write(ByteBuffer.wrap(text));
+                    continue;
+                }
+                put(channel, buffer, text.length);
+                buffer.put(text);
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Memory-maps a binary dataset file.
+     *
+     * @param file the binary file
+     * @return the dataset, reading straight from the mapped file
+     * @throws IOException if the file can't be read or isn't in the binary format
+     */
+    public static MappedColumnarDataset open(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer header = read(channel, 0, 24);
+            if (header.getInt() != MAGIC)
+                throw new IOException(file + " isn't a binary dataset");
+
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException(file + " has the unsupported version " + version);
+
+            int bytesPerValue = header.getInt();
+            int d = header.getInt();
+            long n = header.getLong();
+            if ((bytesPerValue != Double.BYTES && bytesPerValue != Float.BYTES) || d <= 0 || n < 0
+                    || n * bytesPerValue > Integer.MAX_VALUE || n >= Integer.MAX_VALUE)
+                throw new IOException(file + " has an invalid header");
+
+            long position = 24;
+            List<String> names = new ArrayList<>(d);
+            for (int column = 0; column < d; column++)
+            {
+                int length = read(channel, position, Integer.BYTES).getInt();
+                if (length < 0 || position + Integer.BYTES + length > channel.size())
+                    throw new IOException(file + " has an invalid column name");
+
+                ByteBuffer name = read(channel, position + Integer.BYTES, length);
+                names.add(new String(name.array(), 0, length, StandardCharsets.UTF_8));
+                position += Integer.BYTES + length;
+            }
+            position = align(position);
+
+            ByteBuffer[] columns = new ByteBuffer[d];
+            long columnBytes = n * bytesPerValue;
+            for (int column = 0; column < d; column++)
+            {
+                columns[column] = channel.map(FileChannel.MapMode.READ_ONLY, position, columnBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                position += columnBytes;
+            }
+            position = align(position);
+
+            long offsetBytes = (n + 1) * Long.BYTES;
+            if (offsetBytes > Integer.MAX_VALUE)
+                throw new IOException(file + " has too many rows to be mapped");
+
+            ByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, position, offsetBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            long textBytes = offsets.getLong((int) n * Long.BYTES);
+            if (textBytes > Integer.MAX_VALUE || position + offsetBytes + textBytes > channel.size())
+                throw new IOException(file + " has an invalid description block");
+
+            ByteBuffer texts = channel.map(FileChannel.MapMode.READ_ONLY, position + offsetBytes, textBytes);
+            return new MappedColumnarDataset(new Schema(names), (int) n, bytesPerValue == Float.BYTES, columns, offsets, texts);
+        }
+    }
+
+    /**
+     * @param file a dataset file
+     * @return true if the file starts with the magic number of the binary format
+     * @throws IOException if the file can't be read
+     */
+    public static boolean isColumnar(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return channel.size() >= Integer.BYTES && read(channel, 0, Integer.BYTES).getInt() == MAGIC;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of the binary dataset");
+        }
+        return buffer.flip();
+    }
+
+    private static long align(long position)
+    {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Makes room for the given number of bytes, flushing the buffer if needed.
+     *
+     * @return the number of bytes that will be written
+     */
+    private static int put(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+            flush(channel, buffer);
+        return bytes;
+    }
+
+    /**
+     * Writes zeros up to the next multiple of 8.
+     *
+     * @return the number of padding bytes
+     */
+    private static int pad(FileChannel channel, ByteBuffer buffer, long written) throws IOException
+    {
+        int padding = (int) (align(written) - written);
+        put(channel, buffer, padding);
+        for (int i = 0; i < padding; i++)
+            buffer.put((byte) 0);
+        return padding;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
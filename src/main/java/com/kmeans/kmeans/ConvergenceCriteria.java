@@ -0,0 +1,80 @@
+package com.kmeans.kmeans;
+
+/**
+ * Tells when the K-Means loop terminates. The loop always stops when no record changes its
+ * cluster or after {@link #getMaxIterations()} iterations, and can stop earlier once the
+ * centroids or the inertia barely move.
+ */
+public final class ConvergenceCriteria
+{
+    /**
+     * Upper bound for the number of iterations.
+     */
+    private final int maxIterations;
+
+    /**
+     * The loop stops once no centroid moves further than this distance, 0 to disable.
+     */
+    private final double shiftTolerance;
+
+    /**
+     * The loop stops once the inertia improves by less than this fraction, 0 to disable.
+     */
+    private final double inertiaTolerance;
+
+    public ConvergenceCriteria(int maxIterations, double shiftTolerance, double inertiaTolerance)
+    {
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("Max iterations should be a positive number");
+
+        if (shiftTolerance < 0 || inertiaTolerance < 0)
+            throw new IllegalArgumentException("Tolerances can't be negative");
+
+        this.maxIterations = maxIterations;
+        this.shiftTolerance = shiftTolerance;
+        this.inertiaTolerance = inertiaTolerance;
+    }
+
+    /**
+     * @param maxIterations Upper bound for the number of iterations.
+     * @return criteria stopping only when the assignment doesn't change, or after maxIterations
+     */
+    public static ConvergenceCriteria maxIterations(int maxIterations)
+    {
+        return new ConvergenceCriteria(maxIterations, 0, 0);
+    }
+
+    public int getMaxIterations()
+    {
+        return maxIterations;
+    }
+
+    public double getShiftTolerance()
+    {
+        return shiftTolerance;
+    }
+
+    public double getInertiaTolerance()
+    {
+        return inertiaTolerance;
+    }
+
+    /**
+     * @param previous inertia of the previous iteration, infinite at the first one
+     * @param current  inertia of the current iteration
+     * @return true if the relative improvement is below the tolerance
+     */
+    boolean isInertiaConverged(double previous, double current)
+    {
+        return inertiaTolerance > 0 && Double.isFinite(previous) && previous - current <= inertiaTolerance * previous;
+    }
+
+    /**
+     * @param maxShift largest distance a centroid moved during the last relocation
+     * @return true if it is below the tolerance
+     */
+    boolean isShiftConverged(double maxShift)
+    {
+        return shiftTolerance > 0 && maxShift <= shiftTolerance;
+    }
+}
@@ -0,0 +1,82 @@
+package com.kmeans.kmeans;
+
+import java.util.Map;
+
+/**
+ * Calculates the distance between two items as one minus the cosine of the angle between
+ * their feature vectors. Only the direction of the vectors matters, which suits embeddings
+ * and term frequencies. A zero vector is at distance 1 of every other item.
+ */
+public class CosineDistance implements Distance
+{
+    private final DistanceKernels kernels = DistanceKernels.get();
+
+    @Override
+    public double calculate(Map<String, Double> f1, Map<String, Double> f2)
+    {
+        if (f1 == null || f2 == null)
+            throw new IllegalArgumentException("Feature vectors can't be null");
+
+        double dot = 0;
+        double norm1 = 0;
+        for (Map.Entry<String, Double> entry : f1.entrySet())
+        {
+            Double v1 = entry.getValue();
+            Double v2 = f2.get(entry.getKey());
+            if (v1 == null)
+                continue;
+
+            norm1 += v1 * v1;
+            if (v2 != null)
+                dot += v1 * v2;
+        }
+
+        double norm2 = 0;
+        for (Double v2 : f2.values())
+        {
+            if (v2 != null)
+                norm2 += v2 * v2;
+        }
+
+        return ScalarDistanceKernels.cosineDistance(dot, norm1, norm2);
+    }
+
+    @Override
+    public double calculate(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.cosine(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        return kernels.cosine(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.cosine(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double centroidNorm(double[] centroids, int offset, int length)
+    {
+        return ScalarDistanceKernels.squaredNorm(centroids, offset, length);
+    }
+
+    @Override
+    public double sparseRankingDistance(double[] values, int[] columns, int from, int to, double[] centroids,
+                                        int offset, double centroidNorm)
+    {
+        double dot = 0;
+        double norm = 0;
+        for (int i = from; i < to; i++)
+        {
+            double v = values[i];
+            dot += v * centroids[offset + columns[i]];
+            norm += v * v;
+        }
+        return ScalarDistanceKernels.cosineDistance(dot, norm, centroidNorm);
+    }
+}
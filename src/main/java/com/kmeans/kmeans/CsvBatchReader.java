@@ -0,0 +1,123 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a semicolon-separated dataset file in bounded batches. The first line holds the
+ * headers, then every line holds an identifier followed by one value per attribute. Every
+ * batch reuses the same buffers, so memory usage doesn't depend on the file size.
+ */
+public class CsvBatchReader implements Closeable
+{
+    private final BufferedReader reader;
+
+    private final Schema schema;
+
+    private final String[] descriptions;
+
+    private final double[] values;
+
+    /**
+     * Number of the last line read, for error messages.
+     */
+    private int lineNumber = 1;
+
+    /**
+     * Opens the file and reads its headers.
+     *
+     * @param file      the dataset file
+     * @param batchRows maximum number of rows of a batch
+     * @throws IOException if the file can't be read or has no headers
+     */
+    public CsvBatchReader(Path file, int batchRows) throws IOException
+    {
+        if (batchRows <= 0)
+            throw new IllegalArgumentException("The batch size should be a positive number");
+
+        reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try
+        {
+            String line = reader.readLine();
+            if (line == null)
+                throw new IOException("The dataset " + file + " is empty");
+
+            schema = Schema.fromHeaders(KMeans.getHeaders(line));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            reader.close();
+            throw e;
+        }
+        descriptions = new String[batchRows];
+        values = new double[batchRows * schema.dimensions()];
+    }
+
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    /**
+     * Reads the next batch. The returned dataset is only valid until the next call, since its
+     * buffers are reused.
+     *
+     * @return the next rows, or null at the end of the file
+     * @throws IOException if the file can't be read or a line is malformed
+     */
+    public Dataset next() throws IOException
+    {
+        int rows = 0;
+        String line;
+        while (rows < descriptions.length && (line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+
+            parseRow(line, lineNumber, schema.dimensions(), descriptions, values, rows);
+            rows++;
+        }
+        return rows == 0 ? null : new DenseDataset(schema, descriptions, values, rows);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    /**
+     * Parses one line of the dataset file into the given row of the buffers.
+     *
+     * @param line         the line
+     * @param lineNumber   number of the line in the file, for error messages
+     * @param d            number of attributes
+     * @param descriptions receives the identifier of the row
+     * @param values       receives the values of the row, row-major
+     * @param row          row index in the buffers
+     * @throws IOException if the line doesn't have one value per attribute
+     */
+    static void parseRow(String line, int lineNumber, int d, String[] descriptions, double[] values, int row)
+            throws IOException
+    {
+        String[] tempArr = line.split(";");
+        if (tempArr.length != d + 1)
+            throw new IOException("Line " + lineNumber + " has " + tempArr.length + " columns, expected " + (d + 1));
+
+        descriptions[row] = tempArr[0];
+        try
+        {
+            for (int column = 0; column < d; column++)
+                values[row * d + column] = Double.parseDouble(tempArr[column + 1]);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Line " + lineNumber + " has an invalid value", e);
+        }
+    }
+}
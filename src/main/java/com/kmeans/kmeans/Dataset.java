@@ -0,0 +1,130 @@
+package com.kmeans.kmeans;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index-addressed, read-only feature matrix. Rows are records and columns are the
+ * attributes described by the {@link #schema()}. The clustering engine only works
+ * with row and column indexes, while {@link #record(int)} offers the old map-based
+ * {@link Record} as an optional view.
+ */
+public interface Dataset
+{
+
+    /**
+     * @return the attribute names and their column indexes
+     */
+    Schema schema();
+
+    /**
+     * @return number of rows
+     */
+    int size();
+
+    /**
+     * @return number of columns
+     */
+    default int dimensions()
+    {
+        return schema().dimensions();
+    }
+
+    /**
+     * @param row row index
+     * @return the row description, e.g. its identifier in the dataset file
+     */
+    String description(int row);
+
+    /**
+     * @param row    row index
+     * @param column column index
+     * @return the feature value
+     */
+    double get(int row, int column);
+
+    /**
+     * Calculates the distance between a row and a centroid stored in a flat, row-major
+     * centroid buffer.
+     *
+     * @param row       row index
+     * @param centroids centroid buffer holding {@link #dimensions()} values per centroid
+     * @param offset    offset of the centroid in the buffer
+     * @param distance  to calculate the distance between two items
+     * @return calculated distance
+     */
+    double distance(int row, double[] centroids, int offset, Distance distance);
+
+    /**
+     * Same as {@link #distance(int, double[], int, Distance)}, but returns the cheaper
+     * {@link Distance#rankingDistance(double[], int, double[], int, int)}, which is only meant
+     * to compare centroids.
+     */
+    double rankingDistance(int row, double[] centroids, int offset, Distance distance);
+
+    /**
+     * Same as {@link #rankingDistance(int, double[], int, Distance)}, with the
+     * {@link Distance#centroidNorm} of the centroid computed once for all rows. Only sparse
+     * datasets need it.
+     */
+    default double rankingDistance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+    {
+        return rankingDistance(row, centroids, offset, distance);
+    }
+
+    /**
+     * Same as {@link #distance(int, double[], int, Distance)}, with the
+     * {@link Distance#centroidNorm} of the centroid computed once for all rows. Only sparse
+     * datasets need it.
+     */
+    default double distance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+    {
+        return distance(row, centroids, offset, distance);
+    }
+
+    /**
+     * Adds every feature of a row to a running sum.
+     *
+     * @param row    row index
+     * @param sums   buffer holding {@link #dimensions()} sums per centroid
+     * @param offset offset of the sums to update
+     */
+    void accumulate(int row, double[] sums, int offset);
+
+    /**
+     * @param row row index
+     * @return a map-based view of the row
+     */
+    default Record record(int row)
+    {
+        Schema schema = schema();
+        Map<String, Double> coordinates = new HashMap<>(schema.dimensions());
+        for (int column = 0; column < schema.dimensions(); column++)
+            coordinates.put(schema.name(column), get(row, column));
+
+        return new Record(description(row), coordinates);
+    }
+
+    /**
+     * @return a lazy, map-based view of all rows
+     */
+    default List<Record> asRecords()
+    {
+        return new AbstractList<>()
+        {
+            @Override
+            public Record get(int index)
+            {
+                return record(index);
+            }
+
+            @Override
+            public int size()
+            {
+                return Dataset.this.size();
+            }
+        };
+    }
+}
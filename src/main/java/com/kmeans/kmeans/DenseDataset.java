@@ -0,0 +1,114 @@
+package com.kmeans.kmeans;
+
+/**
+ * {@link Dataset} backed by a single row-major {@code double[]}. The features of row
+ * {@code i} are stored contiguously starting at {@code i * dimensions()}.
+ */
+public final class DenseDataset implements Dataset
+{
+    private final Schema schema;
+
+    /**
+     * Row descriptions, e.g. the identifiers of the dataset file.
+     */
+    private final String[] descriptions;
+
+    /**
+     * Row-major feature values.
+     */
+    private final double[] values;
+
+    private final int dimensions;
+
+    /**
+     * Number of rows, which may be less than the capacity of the buffers.
+     */
+    private final int size;
+
+    public DenseDataset(Schema schema, String[] descriptions, double[] values)
+    {
+        this(schema, descriptions, values, descriptions == null ? 0 : descriptions.length);
+    }
+
+    /**
+     * Wraps the first rows of larger buffers, e.g. a reusable batch of a bigger file.
+     *
+     * @param schema       the attribute names and their column indexes
+     * @param descriptions row descriptions, at least {@code size} of them
+     * @param values       row-major feature values, at least {@code size} rows
+     * @param size         number of rows
+     */
+    DenseDataset(Schema schema, String[] descriptions, double[] values, int size)
+    {
+        if (schema == null || descriptions == null || values == null)
+            throw new IllegalArgumentException("Schema, descriptions and values are required");
+
+        if (size < 0 || size > descriptions.length || (long) size * schema.dimensions() > values.length)
+            throw new IllegalArgumentException("Expected " + size + " rows of "
+                    + schema.dimensions() + " values, got " + values.length + " values");
+
+        this.schema = schema;
+        this.descriptions = descriptions;
+        this.values = values;
+        this.dimensions = schema.dimensions();
+        this.size = size;
+    }
+
+    @Override
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int dimensions()
+    {
+        return dimensions;
+    }
+
+    @Override
+    public String description(int row)
+    {
+        return descriptions[row];
+    }
+
+    @Override
+    public double get(int row, int column)
+    {
+        return values[row * dimensions + column];
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.calculate(values, row * dimensions, centroids, offset, dimensions);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.rankingDistance(values, row * dimensions, centroids, offset, dimensions);
+    }
+
+    @Override
+    public void accumulate(int row, double[] sums, int offset)
+    {
+        int start = row * dimensions;
+        for (int column = 0; column < dimensions; column++)
+            sums[offset + column] += values[start + column];
+    }
+
+    /**
+     * @return the backing row-major values, not a copy
+     */
+    public double[] values()
+    {
+        return values;
+    }
+}
@@ -0,0 +1,234 @@
+package com.kmeans.kmeans;
+
+import java.util.Arrays;
+
+/**
+ * Bins the rows of a clustering into a grid of pixels over two of its columns, so that a scatter
+ * plot costs as much to draw as the screen it covers, whatever the number of rows. Every pixel
+ * keeps its number of rows, and the majority cluster among them, found with the Boyer-Moore vote
+ * in two integers per pixel. The grid doesn't depend on any UI toolkit.
+ * <p>
+ * Pixel (0, 0) is the top-left corner, i.e. the lowest x and the highest y.
+ */
+public final class DensityGrid
+{
+    private final int width;
+
+    private final int height;
+
+    private final double minX;
+
+    private final double maxX;
+
+    private final double minY;
+
+    private final double maxY;
+
+    /**
+     * Number of rows of every pixel, row-major.
+     */
+    private final int[] counts;
+
+    /**
+     * Majority cluster candidate of every pixel, -1 for an empty pixel.
+     */
+    private final int[] clusters;
+
+    /**
+     * Boyer-Moore vote count of the candidate of every pixel.
+     */
+    private final int[] votes;
+
+    private int maxCount;
+
+    private long outside;
+
+    /**
+     * Creates an empty grid covering [minX, maxX] x [minY, maxY].
+     *
+     * @param width  number of pixels along x
+     * @param height number of pixels along y
+     */
+    public DensityGrid(int width, int height, double minX, double maxX, double minY, double maxY)
+    {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("The grid should have at least one pixel, got " + width + "x" + height);
+
+        if (!(minX <= maxX) || !(minY <= maxY))
+            throw new IllegalArgumentException("Invalid bounds [" + minX + ", " + maxX + "] x [" + minY + ", " + maxY + "]");
+
+        this.width = width;
+        this.height = height;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.counts = new int[width * height];
+        this.clusters = new int[width * height];
+        this.votes = new int[width * height];
+        Arrays.fill(clusters, -1);
+    }
+
+    /**
+     * Bins every row of a clustering, over the bounds of both columns.
+     *
+     * @param dataset The dataset.
+     * @param labels  The cluster of every row.
+     * @param xColumn Column along x.
+     * @param yColumn Column along y.
+     * @param width   Number of pixels along x.
+     * @param height  Number of pixels along y.
+     * @return the grid of all rows
+     */
+    public static DensityGrid of(Dataset dataset, int[] labels, int xColumn, int yColumn, int width, int height)
+    {
+        if (dataset == null || labels == null || labels.length != dataset.size())
+            throw new IllegalArgumentException("Expected a label for every row of the dataset");
+
+        double[] maxs = new double[dataset.dimensions()];
+        double[] mins = new double[dataset.dimensions()];
+        KMeans.getMinAndMaxOfFeatures(dataset, maxs, mins);
+
+        DensityGrid grid = new DensityGrid(width, height, mins[xColumn], maxs[xColumn], mins[yColumn], maxs[yColumn]);
+        for (int row = 0; row < labels.length; row++)
+            grid.add(dataset.get(row, xColumn), dataset.get(row, yColumn), labels[row]);
+        return grid;
+    }
+
+    /**
+     * Bins one point. A point outside the bounds is only counted by {@link #getOutside()}.
+     *
+     * @param x       position along x
+     * @param y       position along y
+     * @param cluster cluster of the point
+     */
+    public void add(double x, double y, int cluster)
+    {
+        int column = pixelX(x);
+        int row = pixelY(y);
+        if (column < 0 || row < 0)
+        {
+            outside++;
+            return;
+        }
+
+        int pixel = row * width + column;
+        maxCount = Math.max(maxCount, ++counts[pixel]);
+        if (clusters[pixel] == cluster)
+            votes[pixel]++;
+        else if (votes[pixel] == 0)
+        {
+            clusters[pixel] = cluster;
+            votes[pixel] = 1;
+        }
+        else
+            votes[pixel]--;
+    }
+
+    /**
+     * @param x position along x
+     * @return the column of the pixel, -1 outside the bounds
+     */
+    public int pixelX(double x)
+    {
+        return pixel(x, minX, maxX, width);
+    }
+
+    /**
+     * @param y position along y
+     * @return the row of the pixel, -1 outside the bounds
+     */
+    public int pixelY(double y)
+    {
+        int row = pixel(y, minY, maxY, height);
+        return row < 0 ? -1 : height - 1 - row;
+    }
+
+    /**
+     * Maps [min, max] onto [0, pixels), a degenerate range onto the middle pixel.
+     */
+    private static int pixel(double value, double min, double max, int pixels)
+    {
+        if (!(value >= min && value <= max))
+            return -1;
+
+        if (max == min)
+            return pixels / 2;
+        return Math.min(pixels - 1, (int) ((value - min) / (max - min) * pixels));
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * @return lowest x of the grid, at the left edge of the first column
+     */
+    public double getMinX()
+    {
+        return minX;
+    }
+
+    /**
+     * @return highest x of the grid, at the right edge of the last column
+     */
+    public double getMaxX()
+    {
+        return maxX;
+    }
+
+    /**
+     * @return lowest y of the grid, at the bottom edge of the last row
+     */
+    public double getMinY()
+    {
+        return minY;
+    }
+
+    /**
+     * @return highest y of the grid, at the top edge of the first row
+     */
+    public double getMaxY()
+    {
+        return maxY;
+    }
+
+    /**
+     * @return number of rows binned into the pixel
+     */
+    public int getCount(int column, int row)
+    {
+        return counts[row * width + column];
+    }
+
+    /**
+     * @return the cluster of most rows of the pixel when one holds the majority, otherwise one of
+     * its clusters, -1 for an empty pixel
+     */
+    public int getCluster(int column, int row)
+    {
+        return clusters[row * width + column];
+    }
+
+    /**
+     * @return highest number of rows of a pixel
+     */
+    public int getMaxCount()
+    {
+        return maxCount;
+    }
+
+    /**
+     * @return number of points outside the bounds
+     */
+    public long getOutside()
+    {
+        return outside;
+    }
+}
@@ -18,4 +18,184 @@ public interface Distance
      * @throws IllegalArgumentException If the given feature vectors are invalid.
      */
     double calculate(Map<String, Double> f1, Map<String, Double> f2);
+
+    /**
+     * Calculates the distance between two index-addressed feature vectors stored in
+     * primitive buffers.
+     *
+     * @param a       The buffer holding the first feature vector.
+     * @param aOffset Offset of the first feature vector.
+     * @param b       The buffer holding the second feature vector.
+     * @param bOffset Offset of the second feature vector.
+     * @param length  Number of features, i.e. the dimensionality.
+     * @return Calculated distance.
+     */
+    double calculate(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * Calculates the distance between two single-precision feature vectors.
+     *
+     * @param a       The buffer holding the first feature vector.
+     * @param aOffset Offset of the first feature vector.
+     * @param b       The buffer holding the second feature vector.
+     * @param bOffset Offset of the second feature vector.
+     * @param length  Number of features, i.e. the dimensionality.
+     * @return Calculated distance.
+     */
+    double calculate(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Calculates the distance between a single-precision row and a double-precision centroid, in
+     * double precision. Distances without a mixed-precision kernel widen the row first.
+     *
+     * @param a       The buffer holding the row.
+     * @param aOffset Offset of the row.
+     * @param b       The buffer holding the centroid.
+     * @param bOffset Offset of the centroid.
+     * @param length  Number of features, i.e. the dimensionality.
+     * @return Calculated distance.
+     */
+    default double calculate(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return calculate(widen(a, aOffset, length), 0, b, bOffset, length);
+    }
+
+    /**
+     * Calculates a value that orders feature vectors exactly like {@link #calculate(double[], int, double[], int, int)}
+     * but may be cheaper, e.g. the squared Euclidean distance. Only meant to find the nearest
+     * centroid, never to be reported as a distance.
+     *
+     * @see #calculate(double[], int, double[], int, int)
+     */
+    default double rankingDistance(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return calculate(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Single-precision variant of {@link #rankingDistance(double[], int, double[], int, int)}.
+     *
+     * @see #calculate(float[], int, float[], int, int)
+     */
+    default double rankingDistance(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        return calculate(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Mixed-precision variant of {@link #rankingDistance(double[], int, double[], int, int)}.
+     *
+     * @see #calculate(float[], int, double[], int, int)
+     */
+    default double rankingDistance(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return calculate(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Converts a value returned by {@link #rankingDistance(double[], int, double[], int, int)} back to
+     * the distance {@link #calculate(double[], int, double[], int, int)} would have returned.
+     *
+     * @param rankingDistance The ranking distance.
+     * @return Calculated distance.
+     */
+    default double fromRankingDistance(double rankingDistance)
+    {
+        return rankingDistance;
+    }
+
+    /**
+     * Converts a distance returned by {@link #calculate} into the error k-means minimizes, i.e. the
+     * squared distance. Distances that are already squared return it as is.
+     *
+     * @param distance The distance.
+     * @return the squared error
+     */
+    default double squaredError(double distance)
+    {
+        return distance * distance;
+    }
+
+    /**
+     * Precomputes the part of {@link #sparseRankingDistance} that only depends on the centroid,
+     * e.g. its squared norm, so that a sparse row is compared in time proportional to its
+     * non-zero features instead of the dimensionality.
+     *
+     * @param centroids The buffer holding the centroid.
+     * @param offset    Offset of the centroid.
+     * @param length    Number of features, i.e. the dimensionality.
+     * @return the norm expected by {@link #sparseRankingDistance}
+     */
+    default double centroidNorm(double[] centroids, int offset, int length)
+    {
+        return 0;
+    }
+
+    /**
+     * Same as {@link #rankingDistance(double[], int, double[], int, int)}, between a sparse row,
+     * whose missing features are zeros, and a dense centroid.
+     *
+     * @param values       Non-zero features of the row.
+     * @param columns      Column of every non-zero feature, increasing.
+     * @param from         First non-zero feature of the row, inclusive.
+     * @param to           Last non-zero feature of the row, exclusive.
+     * @param centroids    The buffer holding the centroid.
+     * @param offset       Offset of the centroid.
+     * @param centroidNorm The value of {@link #centroidNorm} for the centroid.
+     * @return Calculated ranking distance.
+     * @throws UnsupportedOperationException If this distance has no sparse kernel.
+     */
+    default double sparseRankingDistance(double[] values, int[] columns, int from, int to, double[] centroids,
+                                         int offset, double centroidNorm)
+    {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't compare sparse rows");
+    }
+
+    /**
+     * Relocates every centroid to the mean of the rows of its cluster. The arithmetic mean, the
+     * default, minimizes the squared Euclidean distances; distances over another space override it.
+     *
+     * @param dataset   The dataset.
+     * @param labels    The cluster index of every row.
+     * @param centroids Row-major buffer of the current centroids, kept by the empty clusters.
+     * @param k         Number of centroids.
+     * @param engine    Sums the rows of every cluster, possibly in parallel.
+     * @return a new row-major buffer of the relocated centroids
+     */
+    default double[] relocateCentroids(Dataset dataset, int[] labels, double[] centroids, int k,
+                                       AssignmentEngine engine)
+    {
+        return KMeans.relocateCentroids(dataset, labels, centroids, k, engine);
+    }
+
+    /**
+     * Tells whether {@link #relocateCentroids} moves every centroid to the arithmetic mean of its
+     * rows. Algorithms that only keep per-cluster sums or move the centroids row by row, i.e.
+     * {@link MiniBatchKMeans}, {@link StreamingKMeans} and {@link DistributedKMeans}, require it.
+     *
+     * @return true if the centroids are the arithmetic means of their clusters
+     */
+    default boolean isMeanRelocation()
+    {
+        return true;
+    }
+
+    /**
+     * Tells whether this distance is a metric, i.e. satisfies the triangle inequality. Accelerated
+     * algorithms such as {@link HamerlyKMeans} rely on it to skip distance calculations.
+     *
+     * @return true if the triangle inequality holds
+     */
+    default boolean isMetric()
+    {
+        return false;
+    }
+
+    private static double[] widen(float[] a, int offset, int length)
+    {
+        double[] widened = new double[length];
+        for (int i = 0; i < length; i++)
+            widened[i] = a[offset + i];
+        return widened;
+    }
 }
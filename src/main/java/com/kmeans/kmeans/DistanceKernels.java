@@ -0,0 +1,91 @@
+package com.kmeans.kmeans;
+
+/**
+ * Primitive kernels behind the {@link Distance} implementations. Every kernel works on a
+ * slice of a row-major buffer. The SIMD implementation is used when the
+ * {@code jdk.incubator.vector} module is available at runtime, e.g. when the JVM is
+ * started with {@code --add-modules jdk.incubator.vector}, and the scalar one otherwise.
+ */
+interface DistanceKernels
+{
+
+    /**
+     * @return the fastest kernels supported by the running JVM
+     */
+    static DistanceKernels get()
+    {
+        return Holder.INSTANCE;
+    }
+
+    double squaredEuclidean(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    double squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Mixed precision: the single-precision row is widened and compared in double precision.
+     */
+    double squaredEuclidean(float[] a, int aOffset, double[] b, int bOffset, int length);
+
+    double manhattan(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    double manhattan(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Mixed precision: the single-precision row is widened and compared in double precision.
+     */
+    double manhattan(float[] a, int aOffset, double[] b, int bOffset, int length);
+
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    double dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * @return one minus the cosine similarity, or 1 if one of the vectors is zero
+     */
+    double cosine(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * @return one minus the cosine similarity, or 1 if one of the vectors is zero
+     */
+    double cosine(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Mixed precision: the single-precision row is widened and compared in double precision.
+     *
+     * @return one minus the cosine similarity, or 1 if one of the vectors is zero
+     */
+    double cosine(float[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * Lazily selects the implementation, so that the vector classes are never linked when
+     * the incubator module is missing.
+     */
+    final class Holder
+    {
+        private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+        static final DistanceKernels INSTANCE = select();
+
+        private Holder()
+        {
+        }
+
+        private static DistanceKernels select()
+        {
+            if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+                return new ScalarDistanceKernels();
+
+            try
+            {
+                return (DistanceKernels) Class
+                        .forName("com.kmeans.kmeans.VectorDistanceKernels")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            }
+            catch (ReflectiveOperationException | LinkageError e)
+            {
+                return new ScalarDistanceKernels();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.kmeans.kmeans;
+
+/**
+ * Names of the distances, as given on the command line and saved in model files.
+ */
+public final class Distances
+{
+    private Distances()
+    {
+    }
+
+    /**
+     * @param name one of euclidean, squaredEuclidean, manhattan, cosine, haversine or fastHaversine
+     * @return the distance of that name
+     */
+    public static Distance byName(String name)
+    {
+        return switch (name)
+        {
+            case "euclidean" -> new EuclideanDistance();
+            case "squaredEuclidean" -> new SquaredEuclideanDistance();
+            case "manhattan" -> new ManhattanDistance();
+            case "cosine" -> new CosineDistance();
+            case "haversine" -> new HaversineDistance();
+            case "fastHaversine" -> HaversineDistance.equirectangular();
+            default -> throw new IllegalArgumentException("Unknown metric " + name);
+        };
+    }
+
+    /**
+     * @param distance one of the distances of this package
+     * @return its name
+     */
+    public static String nameOf(Distance distance)
+    {
+        if (distance instanceof EuclideanDistance)
+            return "euclidean";
+        if (distance instanceof SquaredEuclideanDistance)
+            return "squaredEuclidean";
+        if (distance instanceof ManhattanDistance)
+            return "manhattan";
+        if (distance instanceof CosineDistance)
+            return "cosine";
+        if (distance instanceof HaversineDistance haversine)
+            return haversine.isEquirectangular() ? "fastHaversine" : "haversine";
+        throw new IllegalArgumentException("The distance " + distance + " has no name");
+    }
+}
@@ -0,0 +1,470 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Coordinator of a K-Means run over datasets split into shards, each held by a
+ * {@link ShardWorker} process. At every iteration the centroids are broadcast to all workers, and
+ * their per-cluster sums and counts are reduced into the relocated centroids, so the rows never
+ * leave the workers. The result is the one of {@link KMeans#runClustering} over all shards,
+ * up to the rounding of the sums.
+ * <p>
+ * A worker that fails is reconnected to, at the same address, until {@link #RECONNECT_MILLIS};
+ * the request it didn't answer is then sent again, so a worker restarted mid-job only costs the
+ * time to reload its shard. The labels are requested with the final centroids, which a worker
+ * restarted after the last iteration assigns its rows to again.
+ */
+public final class DistributedKMeans implements Closeable
+{
+    /**
+     * How long to wait for a failed worker to be back.
+     */
+    static final long RECONNECT_MILLIS = 60_000;
+
+    /**
+     * Pause between two connection attempts to a failed worker.
+     */
+    private static final long RETRY_MILLIS = 250;
+
+    private final Distance distance;
+    private final List<Connection> connections;
+    private final ExecutorService executor;
+    private Schema schema;
+    private long size;
+    private double inertia = Double.NaN;
+
+    /**
+     * The centroids the rows were last assigned to, null before the first run.
+     */
+    private double[] assigned;
+
+    /**
+     * Connects to every worker and checks that they hold shards of the same dataset.
+     *
+     * @param workers  addresses of the workers
+     * @param distance to calculate the distance between two items, the same as the workers'
+     * @throws IOException if a worker can't be reached or disagrees with the others
+     */
+    public DistributedKMeans(List<InetSocketAddress> workers, Distance distance) throws IOException
+    {
+        if (workers == null || workers.isEmpty())
+            throw new IllegalArgumentException("At least one worker is required");
+
+        if (distance == null)
+            throw new IllegalArgumentException("The distance calculator is required");
+
+        if (!distance.isMeanRelocation())
+            throw new IllegalArgumentException(distance.getClass().getSimpleName()
+                    + " doesn't relocate the centroids to the mean of their rows");
+
+        this.distance = distance;
+        this.connections = new ArrayList<>(workers.size());
+        this.executor = Executors.newFixedThreadPool(workers.size());
+        try
+        {
+            for (InetSocketAddress worker : workers)
+            {
+                Connection connection = new Connection(worker);
+                connections.add(connection);
+                connection.connect();
+                size += connection.rows;
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            disconnect();
+            throw e;
+        }
+    }
+
+    public Schema getSchema()
+    {
+        return schema;
+    }
+
+    /**
+     * @return number of rows of all shards
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the inertia of the last iteration of the last run, NaN before the first run
+     */
+    public double getInertia()
+    {
+        return inertia;
+    }
+
+    /**
+     * Chooses the initial centroids with k-means++ over rows drawn from every shard.
+     *
+     * @param k             Number of clusters.
+     * @param rowsPerWorker Number of rows drawn from every shard.
+     * @param seed          Seed of the random draws.
+     * @return k centroids
+     * @throws IOException if a worker doesn't come back in time
+     * @throws InterruptedException if the thread is interrupted while waiting for the workers
+     */
+    public List<Centroid> sampleCentroids(int k, int rowsPerWorker, long seed) throws IOException, InterruptedException
+    {
+        if (rowsPerWorker <= 0)
+            throw new IllegalArgumentException("The number of rows per worker should be a positive number");
+
+        int d = schema.dimensions();
+        List<double[]> samples = broadcast((connection, in, out) -> {
+            out.writeInt(ShardWorker.SAMPLE);
+            out.writeInt(rowsPerWorker);
+            out.writeLong(seed + connections.indexOf(connection));
+            out.flush();
+
+            double[] sample = new double[in.readInt() * d];
+            for (int i = 0; i < sample.length; i++)
+                sample[i] = in.readDouble();
+            return sample;
+        });
+
+        int rows = 0;
+        for (double[] sample : samples)
+            rows += sample.length / d;
+        double[] values = new double[rows * d];
+        String[] descriptions = new String[rows];
+        int offset = 0;
+        for (double[] sample : samples)
+        {
+            System.arraycopy(sample, 0, values, offset, sample.length);
+            offset += sample.length;
+        }
+        for (int row = 0; row < rows; row++)
+            descriptions[row] = Integer.toString(row);
+
+        DenseDataset sample = new DenseDataset(schema, descriptions, values);
+        return CentroidSeeding.kMeansPlusPlus(sample, k, distance, seed, AssignmentEngine.sequential());
+    }
+
+    /**
+     * Performs the K-Means clustering algorithm over all shards.
+     *
+     * @param centroids   The initial centroids, one per cluster.
+     * @param convergence Tells when the algorithm terminates.
+     * @return the final centroids
+     * @throws IOException if a worker doesn't come back in time
+     * @throws InterruptedException if the thread is interrupted while waiting for the workers
+     */
+    public KMeansModel runClustering(List<Centroid> centroids, ConvergenceCriteria convergence)
+            throws IOException, InterruptedException
+    {
+        if (centroids == null || centroids.size() <= 1)
+            throw new IllegalArgumentException("It doesn't make sense to have less than or equal to 1 cluster");
+
+        if (convergence == null)
+            throw new IllegalArgumentException("The convergence criteria are required");
+
+        int k = centroids.size();
+        int d = schema.dimensions();
+        double[] coordinates = KMeans.toBuffer(centroids, d);
+        double lastInertia = Double.POSITIVE_INFINITY;
+
+        for (int round = 0; ; round++)
+        {
+            // 1ST STEP : every worker assigns its rows and sums them per cluster
+            double[] current = coordinates;
+            int iteration = round;
+            List<Partial> partials = broadcast((connection, in, out) -> {
+                out.writeInt(ShardWorker.ASSIGN);
+                out.writeInt(iteration);
+                writeCentroids(out, current, k);
+                out.flush();
+                return Partial.read(in, k, d);
+            });
+            assigned = current;
+
+            // 2ND STEP : the partial sums are reduced into the relocated centroids
+            long changes = 0;
+            double roundInertia = 0;
+            double[] sums = new double[k * d];
+            long[] counts = new long[k];
+            for (Partial partial : partials)
+            {
+                changes += partial.changes;
+                roundInertia += partial.inertia;
+                for (int i = 0; i < k; i++)
+                    counts[i] += partial.counts[i];
+                for (int i = 0; i < sums.length; i++)
+                    sums[i] += partial.sums[i];
+            }
+            inertia = roundInertia;
+
+            boolean shouldTerminate = round == convergence.getMaxIterations() - 1 || changes == 0
+                    || convergence.isInertiaConverged(lastInertia, roundInertia);
+            if (shouldTerminate)
+                return new KMeansModel(schema, current, round + 1, distance);
+
+            // if this cluster is empty, then we shouldn't move the centroid
+            for (int i = 0; i < k; i++)
+            {
+                for (int column = 0; column < d; column++)
+                    sums[i * d + column] = counts[i] == 0 ? current[i * d + column] : sums[i * d + column] / counts[i];
+            }
+
+            if (convergence.getShiftTolerance() > 0
+                    && convergence.isShiftConverged(KMeans.maxShift(current, sums, k, d, distance)))
+                return new KMeansModel(schema, current, round + 1, distance);
+
+            coordinates = sums;
+            lastInertia = roundInertia;
+        }
+    }
+
+    /**
+     * Writes the description and the cluster of every row of every shard, in worker order, as
+     * assigned by the last iteration.
+     *
+     * @param file the labels file to create or replace
+     * @throws IOException if the file can't be written or a worker doesn't come back in time
+     * @throws InterruptedException if the thread is interrupted while waiting for a worker
+     * @throws IllegalStateException if no clustering has run yet
+     */
+    public void writeLabels(Path file) throws IOException, InterruptedException
+    {
+        if (assigned == null)
+            throw new IllegalStateException("No clustering has run yet");
+
+        double[] centroids = assigned;
+        int k = centroids.length / schema.dimensions();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write("id;cluster");
+            writer.newLine();
+            for (Connection connection : connections)
+            {
+                // a whole shard is read before being written, so that a retry doesn't write rows twice
+                List<String> lines = connection.call((c, in, out) -> {
+                    out.writeInt(ShardWorker.LABELS);
+                    writeCentroids(out, centroids, k);
+                    out.flush();
+                    int rows = in.readInt();
+                    List<String> shard = new ArrayList<>(rows);
+                    for (int row = 0; row < rows; row++)
+                        shard.add(in.readUTF() + ";" + in.readInt());
+                    return shard;
+                });
+                for (String line : lines)
+                {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the workers this coordinator is leaving, they keep running for the next one.
+     */
+    @Override
+    public void close()
+    {
+        disconnect();
+    }
+
+    private void disconnect()
+    {
+        for (Connection connection : connections)
+            connection.close();
+        executor.shutdownNow();
+    }
+
+    private static void writeCentroids(DataOutputStream out, double[] centroids, int k) throws IOException
+    {
+        out.writeInt(k);
+        for (double coordinate : centroids)
+            out.writeDouble(coordinate);
+    }
+
+    /**
+     * Sends the same kind of request to every worker at once.
+     *
+     * @return the replies, in worker order
+     */
+    private <T> List<T> broadcast(Exchange<T> exchange) throws IOException, InterruptedException
+    {
+        List<Future<T>> futures = new ArrayList<>(connections.size());
+        for (Connection connection : connections)
+            futures.add(executor.submit(() -> connection.call(exchange)));
+
+        List<T> replies = new ArrayList<>(connections.size());
+        for (Future<T> future : futures)
+        {
+            try
+            {
+                replies.add(future.get());
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException io)
+                    throw io;
+                if (e.getCause() instanceof RuntimeException runtime)
+                    throw runtime;
+                throw new IOException("A worker request failed", e.getCause());
+            }
+        }
+        return replies;
+    }
+
+    /**
+     * Writes a request and reads its reply.
+     */
+    @FunctionalInterface
+    private interface Exchange<T>
+    {
+        T run(Connection connection, DataInputStream in, DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reply of a worker to an assignment.
+     */
+    private record Partial(int changes, double inertia, long[] counts, double[] sums)
+    {
+        static Partial read(DataInputStream in, int k, int d) throws IOException
+        {
+            int changes = in.readInt();
+            double inertia = in.readDouble();
+            long[] counts = new long[k];
+            for (int i = 0; i < k; i++)
+                counts[i] = in.readLong();
+            double[] sums = new double[k * d];
+            for (int i = 0; i < sums.length; i++)
+                sums[i] = in.readDouble();
+            return new Partial(changes, inertia, counts, sums);
+        }
+    }
+
+    /**
+     * The connection to one worker, opened again when the worker fails.
+     */
+    private final class Connection
+    {
+        private final InetSocketAddress address;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+        private int rows = -1;
+
+        Connection(InetSocketAddress address)
+        {
+            this.address = address;
+        }
+
+        /**
+         * Connects and checks that the worker holds a shard of the same dataset with the same
+         * distance, and, after a restart, the same shard. Waiting wouldn't fix a mismatch, so it
+         * fails at once with an IllegalStateException.
+         */
+        void connect() throws IOException
+        {
+            socket = new Socket();
+            socket.connect(address);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            out.writeInt(ShardWorker.HELLO);
+            out.flush();
+            String workerDistance = in.readUTF();
+            if (!workerDistance.equals(distance.getClass().getName()))
+                throw new IllegalStateException("The worker " + address + " uses " + workerDistance);
+
+            int d = in.readInt();
+            List<String> names = new ArrayList<>(d);
+            for (int column = 0; column < d; column++)
+                names.add(in.readUTF());
+            int shardRows = in.readInt();
+
+            Schema workerSchema = new Schema(names);
+            if (schema != null && !schema.equals(workerSchema))
+                throw new IllegalStateException("The worker " + address + " has the columns " + names);
+            if (rows >= 0 && rows != shardRows)
+                throw new IllegalStateException("The worker " + address + " came back with another shard");
+
+            schema = workerSchema;
+            rows = shardRows;
+        }
+
+        /**
+         * Runs the exchange, reconnecting and running it again while the worker fails.
+         */
+        <T> T call(Exchange<T> exchange) throws IOException
+        {
+            long deadline = System.currentTimeMillis() + RECONNECT_MILLIS;
+            while (true)
+            {
+                try
+                {
+                    if (socket == null)
+                        connect();
+                    return exchange.run(this, in, out);
+                }
+                catch (IOException e)
+                {
+                    close();
+                    if (System.currentTimeMillis() > deadline)
+                        throw new IOException("The worker " + address + " didn't come back", e);
+                }
+
+                try
+                {
+                    Thread.sleep(RETRY_MILLIS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the worker " + address, e);
+                }
+            }
+        }
+
+        void close()
+        {
+            if (socket == null)
+                return;
+
+            try
+            {
+                out.writeInt(ShardWorker.BYE);
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                // the worker is already gone
+            }
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // nothing left to release
+            }
+            socket = null;
+        }
+    }
+}
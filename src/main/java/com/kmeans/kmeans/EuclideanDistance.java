@@ -7,6 +7,7 @@ import java.util.Map;
  */
 public class EuclideanDistance implements Distance
 {
+    private final DistanceKernels kernels = DistanceKernels.get();
 
     @Override
     public double calculate(Map<String, Double> f1, Map<String, Double> f2)
@@ -15,15 +16,82 @@ public class EuclideanDistance implements Distance
             throw new IllegalArgumentException("Feature vectors can't be null");
 
         double sum = 0;
-        for (String key : f1.keySet())
+        for (Map.Entry<String, Double> entry : f1.entrySet())
         {
-            Double v1 = f1.get(key);
-            Double v2 = f2.get(key);
+            Double v1 = entry.getValue();
+            Double v2 = f2.get(entry.getKey());
 
             if (v1 != null && v2 != null)
-                sum += Math.pow(v1 - v2, 2);
+                sum += (v1 - v2) * (v1 - v2);
         }
 
         return Math.sqrt(sum);
     }
+
+    @Override
+    public double calculate(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return Math.sqrt(kernels.squaredEuclidean(a, aOffset, b, bOffset, length));
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        return Math.sqrt(kernels.squaredEuclidean(a, aOffset, b, bOffset, length));
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return Math.sqrt(kernels.squaredEuclidean(a, aOffset, b, bOffset, length));
+    }
+
+    /**
+     * The square root is monotonic, so the nearest centroid can be found without it.
+     */
+    @Override
+    public double rankingDistance(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.squaredEuclidean(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double rankingDistance(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        return kernels.squaredEuclidean(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double rankingDistance(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.squaredEuclidean(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double centroidNorm(double[] centroids, int offset, int length)
+    {
+        return ScalarDistanceKernels.squaredNorm(centroids, offset, length);
+    }
+
+    /**
+     * Expands (x - c)^2 into x^2 - 2xc + c^2, so only the non-zero features of the row are visited.
+     */
+    @Override
+    public double sparseRankingDistance(double[] values, int[] columns, int from, int to, double[] centroids,
+                                        int offset, double centroidNorm)
+    {
+        return ScalarDistanceKernels.sparseSquaredEuclidean(values, columns, from, to, centroids, offset, centroidNorm);
+    }
+
+    @Override
+    public double fromRankingDistance(double rankingDistance)
+    {
+        return Math.sqrt(rankingDistance);
+    }
+
+    @Override
+    public boolean isMetric()
+    {
+        return true;
+    }
 }
@@ -0,0 +1,142 @@
+package com.kmeans.kmeans;
+
+/**
+ * Single-precision counterpart of {@link DenseDataset}, backed by a row-major {@code float[]}.
+ * It halves the memory and the bandwidth of an assignment sweep, which is what bounds the
+ * assignment step once it stops allocating.
+ * <p>
+ * The assignment sweep rounds the centroids to floats once per pass and runs the
+ * single-precision kernels, while the other distances widen the row and compare it to the
+ * double-precision centroids. The centroids are always accumulated in double precision. Every
+ * feature and every sum of the single-precision kernels is rounded to a float, a relative error
+ * of 2<sup>-24</sup>, about 6e-8, so the ranking distances are within about
+ * {@code d * 6e-8} relative error of the double-precision ones, and usually much closer. A row
+ * may thus only be assigned differently than with a {@link DenseDataset} when its two nearest
+ * centroids are within that relative distance of each other, and the inertia differs by about
+ * as much.
+ */
+public final class FloatDataset implements Dataset
+{
+    private final Schema schema;
+
+    /**
+     * Row descriptions, e.g. the identifiers of the dataset file.
+     */
+    private final String[] descriptions;
+
+    /**
+     * Row-major feature values.
+     */
+    private final float[] values;
+
+    private final int dimensions;
+
+    public FloatDataset(Schema schema, String[] descriptions, float[] values)
+    {
+        if (schema == null || descriptions == null || values == null)
+            throw new IllegalArgumentException("Schema, descriptions and values are required");
+
+        if ((long) descriptions.length * schema.dimensions() != values.length)
+            throw new IllegalArgumentException("Expected " + descriptions.length + " rows of "
+                    + schema.dimensions() + " values, got " + values.length + " values");
+
+        this.schema = schema;
+        this.descriptions = descriptions;
+        this.values = values;
+        this.dimensions = schema.dimensions();
+    }
+
+    /**
+     * Copies another dataset, rounding every feature to a float.
+     *
+     * @param dataset the dataset
+     * @return the single-precision copy
+     */
+    public static FloatDataset copyOf(Dataset dataset)
+    {
+        if (dataset == null)
+            throw new IllegalArgumentException("The dataset is required");
+
+        int n = dataset.size();
+        int d = dataset.dimensions();
+        if ((long) n * d > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("The dataset is too large for a single buffer");
+
+        String[] descriptions = new String[n];
+        float[] values = new float[n * d];
+        for (int row = 0; row < n; row++)
+        {
+            descriptions[row] = dataset.description(row);
+            for (int column = 0; column < d; column++)
+                values[row * d + column] = (float) dataset.get(row, column);
+        }
+        return new FloatDataset(dataset.schema(), descriptions, values);
+    }
+
+    @Override
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    @Override
+    public int size()
+    {
+        return descriptions.length;
+    }
+
+    @Override
+    public int dimensions()
+    {
+        return dimensions;
+    }
+
+    @Override
+    public String description(int row)
+    {
+        return descriptions[row];
+    }
+
+    @Override
+    public double get(int row, int column)
+    {
+        return values[row * dimensions + column];
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.calculate(values, row * dimensions, centroids, offset, dimensions);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.rankingDistance(values, row * dimensions, centroids, offset, dimensions);
+    }
+
+    /**
+     * Same as {@link #rankingDistance(int, double[], int, Distance)}, against centroids rounded to
+     * floats.
+     */
+    double rankingDistance(int row, float[] centroids, int offset, Distance distance)
+    {
+        return distance.rankingDistance(values, row * dimensions, centroids, offset, dimensions);
+    }
+
+    @Override
+    public void accumulate(int row, double[] sums, int offset)
+    {
+        int start = row * dimensions;
+        for (int column = 0; column < dimensions; column++)
+            sums[offset + column] += values[start + column];
+    }
+
+    /**
+     * @return the backing row-major values, not a copy
+     */
+    public float[] values()
+    {
+        return values;
+    }
+}
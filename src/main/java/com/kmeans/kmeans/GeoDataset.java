@@ -0,0 +1,167 @@
+package com.kmeans.kmeans;
+
+/**
+ * {@link Dataset} of latitudes and longitudes in degrees, which also keeps the radians and the
+ * cosine of the latitude of every row, so that {@link HaversineDistance} compares a row to a
+ * centroid without converting it again nor calling {@link Math#cos}. Other distances see the
+ * plain degrees, like with a {@link DenseDataset}.
+ */
+public final class GeoDataset implements Dataset
+{
+    private final Schema schema;
+
+    private final String[] descriptions;
+
+    /**
+     * Row-major latitudes and longitudes, in degrees.
+     */
+    private final double[] degrees;
+
+    /**
+     * Row-major latitudes and longitudes, in radians.
+     */
+    private final double[] radians;
+
+    /**
+     * Cosine of the latitude of every row.
+     */
+    private final double[] cosLatitudes;
+
+    private GeoDataset(Schema schema, String[] descriptions, double[] degrees)
+    {
+        this.schema = schema;
+        this.descriptions = descriptions;
+        this.degrees = degrees;
+        this.radians = new double[degrees.length];
+        this.cosLatitudes = new double[descriptions.length];
+        for (int row = 0; row < descriptions.length; row++)
+        {
+            radians[row * 2] = Math.toRadians(degrees[row * 2]);
+            radians[row * 2 + 1] = Math.toRadians(degrees[row * 2 + 1]);
+            cosLatitudes[row] = Math.cos(radians[row * 2]);
+        }
+    }
+
+    /**
+     * Copies a dataset of two columns, the latitude then the longitude, in degrees.
+     *
+     * @param dataset the dataset
+     * @return the copy, with the trigonometry of every row precomputed
+     */
+    public static GeoDataset copyOf(Dataset dataset)
+    {
+        if (dataset == null || dataset.dimensions() != 2)
+            throw new IllegalArgumentException("Expected a dataset of latitudes and longitudes");
+
+        int n = dataset.size();
+        String[] descriptions = new String[n];
+        double[] degrees = new double[n * 2];
+        for (int row = 0; row < n; row++)
+        {
+            descriptions[row] = dataset.description(row);
+            degrees[row * 2] = dataset.get(row, 0);
+            degrees[row * 2 + 1] = dataset.get(row, 1);
+            if (Math.abs(degrees[row * 2]) > 90 || Math.abs(degrees[row * 2 + 1]) > 180)
+                throw new IllegalArgumentException("Row " + (row + 1) + " has an invalid latitude or longitude");
+        }
+        return new GeoDataset(dataset.schema(), descriptions, degrees);
+    }
+
+    @Override
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    @Override
+    public int size()
+    {
+        return descriptions.length;
+    }
+
+    @Override
+    public int dimensions()
+    {
+        return 2;
+    }
+
+    @Override
+    public String description(int row)
+    {
+        return descriptions[row];
+    }
+
+    @Override
+    public double get(int row, int column)
+    {
+        return degrees[row * 2 + column];
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, Distance distance)
+    {
+        if (distance instanceof HaversineDistance)
+            return distance(row, centroids, offset, distance.centroidNorm(centroids, offset, 2), distance);
+
+        return distance.calculate(degrees, row * 2, centroids, offset, 2);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+    {
+        if (distance instanceof HaversineDistance)
+            return rankingDistance(row, centroids, offset, distance.centroidNorm(centroids, offset, 2), distance);
+
+        return distance.rankingDistance(degrees, row * 2, centroids, offset, 2);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+    {
+        if (distance instanceof HaversineDistance haversine)
+            return haversine.rankingDistance(radians[row * 2], radians[row * 2 + 1], cosLatitudes[row], centroids,
+                    offset, centroidNorm);
+
+        return distance.rankingDistance(degrees, row * 2, centroids, offset, 2);
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+    {
+        if (distance instanceof HaversineDistance haversine && !haversine.isEquirectangular())
+            return haversine.fromRankingDistance(rankingDistance(row, centroids, offset, centroidNorm, distance));
+
+        return distance.calculate(degrees, row * 2, centroids, offset, 2);
+    }
+
+    @Override
+    public void accumulate(int row, double[] sums, int offset)
+    {
+        sums[offset] += degrees[row * 2];
+        sums[offset + 1] += degrees[row * 2 + 1];
+    }
+
+    /**
+     * @return the latitude of the row, in radians
+     */
+    double latitude(int row)
+    {
+        return radians[row * 2];
+    }
+
+    /**
+     * @return the longitude of the row, in radians
+     */
+    double longitude(int row)
+    {
+        return radians[row * 2 + 1];
+    }
+
+    /**
+     * @return the cosine of the latitude of the row
+     */
+    double cosLatitude(int row)
+    {
+        return cosLatitudes[row];
+    }
+}
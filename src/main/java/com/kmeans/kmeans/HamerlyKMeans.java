@@ -0,0 +1,373 @@
+package com.kmeans.kmeans;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accelerated K-Means following Hamerly's algorithm. Every record keeps an upper bound of the
+ * distance to its centroid and a lower bound of the distance to the second nearest one. With
+ * the help of the triangle inequality and the distances between centroids, most records are
+ * proven to stay in their cluster without calling {@link Distance#calculate}.
+ * <p>
+ * The assignments are the same as the ones of {@link KMeans#runClustering}, except when a record
+ * is at exactly the same distance of two centroids, so the distance must be a metric.
+ */
+public final class HamerlyKMeans
+{
+    private HamerlyKMeans()
+    {
+    }
+
+    /**
+     * Performs the accelerated K-Means clustering algorithm on the given dataset.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items, must be a metric.
+     * @param maxIterations Upper bound for the number of iterations.
+     * @return              the final centroids, the labels and the pruned distances of every iteration
+     * @throws              InterruptedException exception
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids,
+                                                 Distance distance, int maxIterations) throws InterruptedException
+    {
+        return runClustering(dataset, centroids, distance, maxIterations, AssignmentEngine.common());
+    }
+
+    /**
+     * Performs the accelerated K-Means clustering algorithm on the given dataset.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items, must be a metric.
+     * @param maxIterations Upper bound for the number of iterations.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @return              the final centroids, the labels and the pruned distances of every iteration
+     * @throws              InterruptedException exception
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 int maxIterations, AssignmentEngine engine) throws InterruptedException
+    {
+        return runClustering(dataset, centroids, distance, maxIterations, engine, ClusteringListener.NONE);
+    }
+
+    /**
+     * Performs the accelerated K-Means clustering algorithm on the given dataset, reporting every
+     * iteration to a listener. The bounds are loose, so the reported inertia is an upper bound of
+     * the real one, except for the last iteration.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items, must be a metric.
+     * @param maxIterations Upper bound for the number of iterations.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @param listener      Observes every iteration, and may abandon the run.
+     * @return              the final centroids, the labels and the pruned distances of every iteration
+     * @throws              InterruptedException if the thread is interrupted between two iterations
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 int maxIterations, AssignmentEngine engine,
+                                                 ClusteringListener listener) throws InterruptedException
+    {
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("Max iterations should be a positive number");
+
+        return runClustering(dataset, centroids, distance, ConvergenceCriteria.maxIterations(maxIterations), engine,
+                listener);
+    }
+
+    /**
+     * Performs the accelerated K-Means clustering algorithm on the given dataset, with the same
+     * convergence criteria as {@link KMeans#runClustering}.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items, must be a metric.
+     * @param convergence   Tells when the algorithm terminates.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @return              the final centroids, the labels and the pruned distances of every iteration
+     * @throws              InterruptedException exception
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 ConvergenceCriteria convergence, AssignmentEngine engine)
+            throws InterruptedException
+    {
+        return runClustering(dataset, centroids, distance, convergence, engine, ClusteringListener.NONE);
+    }
+
+    /**
+     * Performs the accelerated K-Means clustering algorithm on the given dataset, reporting every
+     * iteration to a listener. The bounds are loose, so the reported inertia is an upper bound of
+     * the real one, except for the last iteration. An inertia tolerance needs the real inertia,
+     * so with one every iteration computes the distance of every row to its centroid.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items, must be a metric.
+     * @param convergence   Tells when the algorithm terminates.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @param listener      Observes every iteration, and may abandon the run.
+     * @return              the final centroids, the labels and the pruned distances of every iteration
+     * @throws              InterruptedException if the thread is interrupted between two iterations
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 ConvergenceCriteria convergence, AssignmentEngine engine,
+                                                 ClusteringListener listener) throws InterruptedException
+    {
+        if (listener == null)
+            throw new IllegalArgumentException("The listener is required");
+
+        if (convergence == null)
+            throw new IllegalArgumentException("The convergence criteria are required");
+
+        int maxIterations = convergence.getMaxIterations();
+        KMeans.applyPreconditions(dataset, centroids, distance, maxIterations, engine);
+        if (!distance.isMetric())
+            throw new IllegalArgumentException("The accelerated algorithm needs a metric distance");
+
+        int k = centroids.size();
+        int d = dataset.dimensions();
+        int n = dataset.size();
+        double[] coordinates = KMeans.toBuffer(centroids, d);
+
+        int[] labels = new int[n];
+        double[] upper = new double[n];
+        double[] lower = new double[n];
+        double[] halfSeparation = new double[k];
+        double[] shifts = new double[k];
+        long[] pruned = new long[maxIterations];
+        boolean exactInertia = convergence.getInertiaTolerance() > 0;
+        double lastInertia = Double.POSITIVE_INFINITY;
+
+        for (int round = 0; ; round++)
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException("Clustering interrupted at iteration " + round);
+
+            boolean isLastIteration = round == maxIterations - 1;
+            double[] current = coordinates;
+            long allocated = listener.measuresAllocations() ? IterationMetrics.totalAllocatedBytes() : -1;
+            long start = System.nanoTime();
+            double[] norms = AssignmentEngine.centroidNorms(current, k, d, distance);
+            int changes;
+
+            // 1ST STEP : only the records whose bounds overlap are compared to every centroid
+            if (round == 0)
+            {
+                changes = (int) engine.forEachChunk(n, d, (from, to) -> {
+                    for (int row = from; row < to; row++)
+                        scan(dataset, row, current, norms, k, distance, labels, upper, lower, -1, 0);
+                    return to - from;
+                });
+            }
+            else
+            {
+                separate(current, k, d, distance, halfSeparation);
+                Shift shift = new Shift(shifts);
+                LongAdder skipped = new LongAdder();
+                changes = (int) engine.forEachChunk(n, d, (from, to) -> assign(dataset, current, norms, k, distance,
+                        labels, upper, lower, halfSeparation, shifts, shift, skipped, from, to));
+                pruned[round] = skipped.sum();
+            }
+            long assignmentNanos = System.nanoTime() - start;
+
+            // if the assignment does not change, or barely improves, then the algorithm terminates
+            double inertia = exactInertia || isLastIteration || changes == 0
+                    ? inertia(dataset, current, distance, labels, engine)
+                    : upperInertia(upper, distance);
+            boolean shouldTerminate = isLastIteration || changes == 0
+                    || convergence.isInertiaConverged(lastInertia, inertia);
+            long updateNanos = 0;
+            if (!shouldTerminate)
+            {
+                // 2ND STEP : relocate the centroids and remember how far each of them moved
+                start = System.nanoTime();
+                coordinates = distance.relocateCentroids(dataset, labels, current, k, engine);
+                double maxShift = 0;
+                for (int i = 0; i < k; i++)
+                {
+                    shifts[i] = distance.calculate(current, i * d, coordinates, i * d, d);
+                    maxShift = Math.max(maxShift, shifts[i]);
+                }
+                updateNanos = System.nanoTime() - start;
+
+                // if the centroids barely move, the next assignment would be nearly the same
+                shouldTerminate = convergence.getShiftTolerance() > 0 && convergence.isShiftConverged(maxShift);
+            }
+
+            IterationMetrics metrics = new IterationMetrics(round, assignmentNanos, updateNanos,
+                    (long) n * k - pruned[round], changes, inertia,
+                    IterationMetrics.allocatedSince(allocated));
+            double snapshotInertia = inertia;
+            if (!listener.onIteration(metrics, () -> ClusteringSnapshot.of(metrics.iteration(), current, k, labels,
+                    snapshotInertia)) || shouldTerminate)
+            {
+                if (!exactInertia && !isLastIteration && changes != 0)
+                    inertia = inertia(dataset, current, distance, labels, engine);
+                return new ClusteringResult(dataset, current, labels, round + 1, inertia, Arrays.copyOf(pruned, round + 1));
+            }
+            lastInertia = inertia;
+        }
+    }
+
+    /**
+     * @return the sum of the squared upper bounds, itself an upper bound of the inertia
+     */
+    private static double upperInertia(double[] upper, Distance distance)
+    {
+        double inertia = 0;
+        for (double bound : upper)
+            inertia += distance.squaredError(bound);
+        return inertia;
+    }
+
+    /**
+     * The upper bounds may be loose, so the inertia is computed from exact distances.
+     *
+     * @return the sum of squared errors of every row to its centroid
+     */
+    private static double inertia(Dataset dataset, double[] centroids, Distance distance, int[] labels,
+                                  AssignmentEngine engine)
+    {
+        int d = dataset.dimensions();
+        double[] norms = AssignmentEngine.centroidNorms(centroids, centroids.length / d, d, distance);
+        double[] distances = new double[labels.length];
+        engine.forEachChunk(labels.length, d, (from, to) -> {
+            for (int row = from; row < to; row++)
+                distances[row] = dataset.distance(row, centroids, labels[row] * d, norms[labels[row]], distance);
+            return 0;
+        });
+        return KMeans.inertia(distances, distance);
+    }
+
+    /**
+     * Assigns the rows of the [from, to) range, using the bounds to skip distance calculations.
+     *
+     * @return number of rows whose label changed
+     */
+    private static long assign(Dataset dataset, double[] centroids, double[] norms, int k, Distance distance, int[] labels,
+                               double[] upper, double[] lower, double[] halfSeparation, double[] shifts,
+                               Shift shift, LongAdder skipped, int from, int to)
+    {
+        int d = dataset.dimensions();
+        long changes = 0;
+        long pruned = 0;
+        for (int row = from; row < to; row++)
+        {
+            // the centroids moved since the last iteration, so the bounds are loosened accordingly
+            int label = labels[row];
+            double u = upper[row] + shifts[label];
+            double l = lower[row] - (label == shift.farthest ? shift.second : shift.max);
+            double bound = Math.max(halfSeparation[label], l);
+
+            if (u < bound)
+            {
+                upper[row] = u;
+                lower[row] = l;
+                pruned += k;
+                continue;
+            }
+
+            // the upper bound may be loose, so try again with the exact distance
+            u = dataset.distance(row, centroids, label * d, norms[label], distance);
+            if (u < bound)
+            {
+                upper[row] = u;
+                lower[row] = l;
+                pruned += k - 1;
+                continue;
+            }
+
+            if (scan(dataset, row, centroids, norms, k, distance, labels, upper, lower, label, u))
+                changes++;
+        }
+        skipped.add(pruned);
+        return changes;
+    }
+
+    /**
+     * Compares a row to every centroid, then resets its label and bounds.
+     *
+     * @param known         index of a centroid whose distance is already known, or -1
+     * @param knownDistance the already known distance
+     * @return true if the label of the row changed
+     */
+    private static boolean scan(Dataset dataset, int row, double[] centroids, double[] norms, int k, Distance distance,
+                                int[] labels, double[] upper, double[] lower, int known, double knownDistance)
+    {
+        int d = dataset.dimensions();
+        int nearest = 0;
+        double minimumDistance = Double.MAX_VALUE;
+        double secondDistance = Double.MAX_VALUE;
+        for (int centroid = 0; centroid < k; centroid++)
+        {
+            double currentDistance = centroid == known
+                    ? knownDistance
+                    : dataset.distance(row, centroids, centroid * d, norms[centroid], distance);
+
+            if (currentDistance < minimumDistance)
+            {
+                secondDistance = minimumDistance;
+                minimumDistance = currentDistance;
+                nearest = centroid;
+            }
+            else if (currentDistance < secondDistance)
+            {
+                secondDistance = currentDistance;
+            }
+        }
+
+        upper[row] = minimumDistance;
+        lower[row] = secondDistance;
+        boolean changed = labels[row] != nearest;
+        labels[row] = nearest;
+        return changed;
+    }
+
+    /**
+     * Computes, for every centroid, half the distance to its nearest other centroid. A record
+     * closer than that to its centroid can't be closer to any other one.
+     */
+    private static void separate(double[] centroids, int k, int d, Distance distance, double[] halfSeparation)
+    {
+        Arrays.fill(halfSeparation, Double.MAX_VALUE);
+        for (int i = 0; i < k; i++)
+        {
+            for (int j = i + 1; j < k; j++)
+            {
+                double half = distance.calculate(centroids, i * d, centroids, j * d, d) / 2;
+                halfSeparation[i] = Math.min(halfSeparation[i], half);
+                halfSeparation[j] = Math.min(halfSeparation[j], half);
+            }
+        }
+    }
+
+    /**
+     * The two largest centroid shifts. The lower bound of a record drops by the largest shift
+     * among the centroids other than its own.
+     */
+    private static final class Shift
+    {
+        private int farthest = -1;
+        private double max;
+        private double second;
+
+        Shift(double[] shifts)
+        {
+            for (int i = 0; i < shifts.length; i++)
+            {
+                if (farthest < 0 || shifts[i] > max)
+                {
+                    second = max;
+                    max = shifts[i];
+                    farthest = i;
+                }
+                else if (shifts[i] > second)
+                {
+                    second = shifts[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.kmeans.kmeans;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Calculates the great-circle distance, in kilometres, between two items given by their
+ * latitude and longitude in degrees, in that order, with the haversine formula. Unlike
+ * {@link EuclideanDistance}, it doesn't treat degrees as planar coordinates, so a degree of
+ * longitude shrinks towards the poles and the antimeridian is no border.
+ * <p>
+ * The ranking distance is the haversine {@code sin^2(dLat / 2) + cos(lat1) cos(lat2) sin^2(dLon / 2)},
+ * which orders items like the distance without the arc sine. The {@link #centroidNorm} of a
+ * centroid is the cosine of its latitude, so with a {@link GeoDataset}, whose rows keep their radians and the
+ * cosine of their latitude, a ranking costs two sines. The {@link #equirectangular() fast variant}
+ * even ranks without any trigonometric call, with the equirectangular approximation, which is
+ * exact to a fraction of a percent at the scale of a city but may pick a slightly further
+ * centroid between two nearly equidistant ones, and reports the distance to it with the same
+ * approximation.
+ * <p>
+ * The centroid of a cluster is the normalized mean of the 3D unit vectors of its rows, see
+ * {@link #relocateCentroids}.
+ */
+public class HaversineDistance implements Distance
+{
+    /**
+     * Mean radius of the Earth.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final double RADIANS = Math.PI / 180;
+
+    private final boolean equirectangular;
+
+    /**
+     * Creates the exact distance.
+     */
+    public HaversineDistance()
+    {
+        this(false);
+    }
+
+    private HaversineDistance(boolean equirectangular)
+    {
+        this.equirectangular = equirectangular;
+    }
+
+    /**
+     * @return a distance finding the nearest centroid with the equirectangular approximation
+     */
+    public static HaversineDistance equirectangular()
+    {
+        return new HaversineDistance(true);
+    }
+
+    /**
+     * @return true if the nearest centroid is found with the equirectangular approximation
+     */
+    public boolean isEquirectangular()
+    {
+        return equirectangular;
+    }
+
+    @Override
+    public double calculate(Map<String, Double> f1, Map<String, Double> f2)
+    {
+        if (f1 == null || f2 == null)
+            throw new IllegalArgumentException("Feature vectors can't be null");
+
+        Double latitude1 = f1.get("latitude");
+        Double longitude1 = f1.get("longitude");
+        Double latitude2 = f2.get("latitude");
+        Double longitude2 = f2.get("longitude");
+        if (latitude1 == null || longitude1 == null || latitude2 == null || longitude2 == null)
+            throw new IllegalArgumentException("Feature vectors need a latitude and a longitude");
+
+        return kilometres(haversine(latitude1 * RADIANS, longitude1 * RADIANS, Math.cos(latitude1 * RADIANS),
+                latitude2 * RADIANS, longitude2 * RADIANS, Math.cos(latitude2 * RADIANS)));
+    }
+
+    @Override
+    public double calculate(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kilometres(haversine(a, aOffset, b, bOffset, length));
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        checkLength(length);
+        double latitude1 = a[aOffset] * RADIANS;
+        double latitude2 = b[bOffset] * RADIANS;
+        return kilometres(haversine(latitude1, a[aOffset + 1] * RADIANS, Math.cos(latitude1),
+                latitude2, b[bOffset + 1] * RADIANS, Math.cos(latitude2)));
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        checkLength(length);
+        double latitude1 = a[aOffset] * RADIANS;
+        double latitude2 = b[bOffset] * RADIANS;
+        return kilometres(haversine(latitude1, a[aOffset + 1] * RADIANS, Math.cos(latitude1),
+                latitude2, b[bOffset + 1] * RADIANS, Math.cos(latitude2)));
+    }
+
+    @Override
+    public double rankingDistance(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        checkLength(length);
+        double latitude1 = a[aOffset] * RADIANS;
+        double latitude2 = b[bOffset] * RADIANS;
+        return ranking(latitude1, a[aOffset + 1] * RADIANS, Math.cos(latitude1),
+                latitude2, b[bOffset + 1] * RADIANS, Math.cos(latitude2));
+    }
+
+    @Override
+    public double rankingDistance(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        checkLength(length);
+        double latitude1 = a[aOffset] * RADIANS;
+        double latitude2 = b[bOffset] * RADIANS;
+        return ranking(latitude1, a[aOffset + 1] * RADIANS, Math.cos(latitude1),
+                latitude2, b[bOffset + 1] * RADIANS, Math.cos(latitude2));
+    }
+
+    @Override
+    public double rankingDistance(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        checkLength(length);
+        double latitude1 = a[aOffset] * RADIANS;
+        double latitude2 = b[bOffset] * RADIANS;
+        return ranking(latitude1, a[aOffset + 1] * RADIANS, Math.cos(latitude1),
+                latitude2, b[bOffset + 1] * RADIANS, Math.cos(latitude2));
+    }
+
+    /**
+     * Ranks a row whose radians and cosine of the latitude are known against a centroid in
+     * degrees, whose cosine of the latitude is its {@link #centroidNorm}. The exact ranking costs
+     * two sines and the equirectangular one no trigonometric call at all.
+     *
+     * @param latitude     Latitude of the row, in radians.
+     * @param longitude    Longitude of the row, in radians.
+     * @param cosLatitude  Cosine of the latitude of the row.
+     * @param centroids    The buffer holding the centroid, in degrees.
+     * @param offset       Offset of the centroid.
+     * @param centroidNorm Cosine of the latitude of the centroid.
+     * @return Calculated ranking distance.
+     */
+    public double rankingDistance(double latitude, double longitude, double cosLatitude, double[] centroids,
+                                  int offset, double centroidNorm)
+    {
+        return ranking(latitude, longitude, cosLatitude, centroids[offset] * RADIANS, centroids[offset + 1] * RADIANS,
+                centroidNorm);
+    }
+
+    /**
+     * @return the cosine of the latitude of the centroid
+     */
+    @Override
+    public double centroidNorm(double[] centroids, int offset, int length)
+    {
+        checkLength(length);
+        return Math.cos(centroids[offset] * RADIANS);
+    }
+
+    @Override
+    public double fromRankingDistance(double rankingDistance)
+    {
+        return kilometres(rankingDistance);
+    }
+
+    /**
+     * Averages the 3D unit vectors of the rows of every cluster and projects the mean back on the
+     * sphere, so that a cluster across the antimeridian or around a pole gets a centroid inside
+     * it. A centroid keeps its position when its cluster is empty, or when the mean vector is
+     * nearly zero, i.e. when its rows are spread evenly around the globe.
+     */
+    @Override
+    public double[] relocateCentroids(Dataset dataset, int[] labels, double[] centroids, int k,
+                                      AssignmentEngine engine)
+    {
+        checkLength(dataset.dimensions());
+        // the vector sums of every cluster, followed by the number of rows of every cluster
+        double[] sums = engine.reduceChunks(labels.length, 2, (from, to) -> {
+            double[] partial = new double[k * 4];
+            for (int row = from; row < to; row++)
+            {
+                int offset = labels[row] * 3;
+                double latitude;
+                double longitude;
+                double cosLatitude;
+                if (dataset instanceof GeoDataset geo)
+                {
+                    latitude = geo.latitude(row);
+                    longitude = geo.longitude(row);
+                    cosLatitude = geo.cosLatitude(row);
+                }
+                else
+                {
+                    latitude = dataset.get(row, 0) * RADIANS;
+                    longitude = dataset.get(row, 1) * RADIANS;
+                    cosLatitude = Math.cos(latitude);
+                }
+                partial[offset] += cosLatitude * Math.cos(longitude);
+                partial[offset + 1] += cosLatitude * Math.sin(longitude);
+                partial[offset + 2] += Math.sin(latitude);
+                partial[k * 3 + labels[row]]++;
+            }
+            return partial;
+        }, (left, right) -> {
+            for (int i = 0; i < left.length; i++)
+                left[i] += right[i];
+            return left;
+        });
+        double[] counts = Arrays.copyOfRange(sums, k * 3, k * 4);
+
+        double[] relocated = new double[k * 2];
+        for (int cluster = 0; cluster < k; cluster++)
+        {
+            double x = sums[cluster * 3];
+            double y = sums[cluster * 3 + 1];
+            double z = sums[cluster * 3 + 2];
+            double horizontal = Math.hypot(x, y);
+            if (counts[cluster] == 0 || Math.hypot(horizontal, z) < 1e-9 * counts[cluster])
+            {
+                System.arraycopy(centroids, cluster * 2, relocated, cluster * 2, 2);
+                continue;
+            }
+
+            relocated[cluster * 2] = Math.toDegrees(Math.atan2(z, horizontal));
+            relocated[cluster * 2 + 1] = Math.toDegrees(Math.atan2(y, x));
+        }
+        return relocated;
+    }
+
+    /**
+     * The centroids are spherical means, not arithmetic means of the degrees.
+     */
+    @Override
+    public boolean isMeanRelocation()
+    {
+        return false;
+    }
+
+    /**
+     * The great-circle distance is a metric on the sphere. The equirectangular variant isn't: it
+     * reports approximate distances to the centroids, which can't be bounded by the exact
+     * distances between the centroids.
+     */
+    @Override
+    public boolean isMetric()
+    {
+        return !equirectangular;
+    }
+
+    private static double haversine(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        checkLength(length);
+        double latitude1 = a[aOffset] * RADIANS;
+        double latitude2 = b[bOffset] * RADIANS;
+        return haversine(latitude1, a[aOffset + 1] * RADIANS, Math.cos(latitude1),
+                latitude2, b[bOffset + 1] * RADIANS, Math.cos(latitude2));
+    }
+
+    /**
+     * @return the exact or the equirectangular haversine of the central angle
+     */
+    private double ranking(double latitude1, double longitude1, double cosLatitude1,
+                           double latitude2, double longitude2, double cosLatitude2)
+    {
+        return equirectangular
+                ? equirectangular(latitude1, longitude1, cosLatitude1, latitude2, longitude2, cosLatitude2)
+                : haversine(latitude1, longitude1, cosLatitude1, latitude2, longitude2, cosLatitude2);
+    }
+
+    /**
+     * @return the haversine of the central angle, in [0, 1]
+     */
+    private static double haversine(double latitude1, double longitude1, double cosLatitude1,
+                                    double latitude2, double longitude2, double cosLatitude2)
+    {
+        double sinLatitude = Math.sin((latitude2 - latitude1) / 2);
+        double sinLongitude = Math.sin((longitude2 - longitude1) / 2);
+        return Math.min(1, sinLatitude * sinLatitude + cosLatitude1 * cosLatitude2 * sinLongitude * sinLongitude);
+    }
+
+    /**
+     * Approximates the haversine of the central angle by a quarter of its square on the
+     * equirectangular projection centred between both points.
+     */
+    private static double equirectangular(double latitude1, double longitude1, double cosLatitude1,
+                                          double latitude2, double longitude2, double cosLatitude2)
+    {
+        double longitude = Math.abs(longitude2 - longitude1);
+        if (longitude > Math.PI)
+            longitude = 2 * Math.PI - longitude;
+
+        double x = longitude * (cosLatitude1 + cosLatitude2) / 2;
+        double y = latitude2 - latitude1;
+        return Math.min(1, (x * x + y * y) / 4);
+    }
+
+    private static double kilometres(double haversine)
+    {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(haversine));
+    }
+
+    private static void checkLength(int length)
+    {
+        if (length != 2)
+            throw new IllegalArgumentException("Expected a latitude and a longitude, got " + length + " features");
+    }
+}
@@ -0,0 +1,70 @@
+package com.kmeans.kmeans;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * What happened during one iteration of a clustering run.
+ *
+ * @param iteration           index of the iteration, starting at 0
+ * @param assignmentNanos     time spent finding the nearest centroid of every record
+ * @param updateNanos         time spent relocating the centroids, 0 for the last iteration
+ * @param distanceEvaluations number of distances calculated during the assignment
+ * @param changes             number of records whose cluster changed
+ * @param inertia             sum of the squared distances of every record to its centroid
+ * @param allocatedBytes      bytes allocated by the whole process during the iteration, i.e. by
+ *                            every live thread and not only by the run, or -1 when the JVM
+ *                            can't tell or the listener doesn't {@link ClusteringListener#measuresAllocations
+ *                            measure them}
+ */
+public record IterationMetrics(int iteration, long assignmentNanos, long updateNanos, long distanceEvaluations,
+                               int changes, double inertia, long allocatedBytes)
+{
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    /**
+     * @return bytes allocated per second during the iteration, or -1 when unknown
+     */
+    public double allocationRate()
+    {
+        long nanos = assignmentNanos + updateNanos;
+        if (allocatedBytes < 0 || nanos <= 0)
+            return -1;
+        return allocatedBytes * 1e9 / nanos;
+    }
+
+    /**
+     * @return an approximation of the bytes allocated so far by all live threads, or -1 when the
+     * JVM can't tell
+     */
+    static long totalAllocatedBytes()
+    {
+        if (THREADS == null)
+            return -1;
+
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds()))
+        {
+            if (bytes > 0)
+                total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * @param before the {@link #totalAllocatedBytes()} at the start of the iteration
+     * @return the bytes allocated since then, or -1 when unknown. Threads ending in the meantime
+     * take their allocations with them, so this never goes below 0
+     */
+    static long allocatedSince(long before)
+    {
+        return before < 0 ? -1 : Math.max(0, totalAllocatedBytes() - before);
+    }
+
+    private static com.sun.management.ThreadMXBean threads()
+    {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+            return threads;
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.kmeans.kmeans;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Commits a {@code com.kmeans.Iteration} Flight Recorder event per iteration, e.g. to be looked
+ * at in JDK Mission Control after running with {@code -XX:StartFlightRecording}. When the event
+ * isn't enabled, this costs about as much as {@link ClusteringListener#NONE}.
+ */
+public class JfrClusteringListener implements ClusteringListener
+{
+    @Override
+    public boolean onIteration(IterationMetrics metrics)
+    {
+        IterationEvent event = new IterationEvent();
+        if (event.shouldCommit())
+        {
+            event.iteration = metrics.iteration();
+            event.assignmentTime = metrics.assignmentNanos();
+            event.updateTime = metrics.updateNanos();
+            event.distanceEvaluations = metrics.distanceEvaluations();
+            event.changes = metrics.changes();
+            event.inertia = metrics.inertia();
+            event.allocated = metrics.allocatedBytes();
+            event.commit();
+        }
+        return true;
+    }
+
+    /**
+     * Allocations are only measured while the event is recorded.
+     */
+    @Override
+    public boolean measuresAllocations()
+    {
+        return new IterationEvent().isEnabled();
+    }
+
+    @Name("com.kmeans.Iteration")
+    @Label("K-Means Iteration")
+    @Category("K-Means")
+    @Description("One assignment and update step of a clustering run")
+    @StackTrace(false)
+    static class IterationEvent extends Event
+    {
+        @Label("Iteration")
+        int iteration;
+
+        @Label("Assignment Time")
+        @Timespan
+        long assignmentTime;
+
+        @Label("Update Time")
+        @Timespan
+        long updateTime;
+
+        @Label("Distance Evaluations")
+        long distanceEvaluations;
+
+        @Label("Label Changes")
+        int changes;
+
+        @Label("Inertia")
+        double inertia;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
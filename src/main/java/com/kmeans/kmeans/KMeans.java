@@ -2,13 +2,8 @@ package com.kmeans.kmeans;
 
 import java.util.*;
 
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 
 
 /**
@@ -19,99 +14,76 @@ import java.io.IOException;
 public class KMeans
 {
     /**
-     * Dataset path on your disk
+     * Default dataset path, relative to the project directory
      */
-    private static final String dataset = "src\\main\\resources\\com\\kmeans\\kmeans\\dataset.csv";
+    public static final Path DEFAULT_DATASET = Path.of("src", "main", "resources", "com", "kmeans", "kmeans", "dataset.csv");
     /**
      * Will be used to generate random numbers.
      */
     private static final Random random = new Random();
 
-    static final ArrayList<String> Dimensions = new ArrayList<>();
-
     /**
-     * read data(record) in the dataset file
+     * read data(record) in the default dataset file
      * @return  list of records
      * @throws IOException exception
      */
     public static List<Record> retreiveRecordsFromDataset() throws IOException
     {
-        List<Record> records = new ArrayList<>();
-        try
-        {
-            File file = new File(dataset);
-            FileReader fr = new FileReader(file);
-            BufferedReader br = new BufferedReader(fr);
-            String line = br.readLine();
-            String[] tempArr;
-            ArrayList<String> headers = getHeaders(line);
-
-            while((line = br.readLine()) != null)
-            {
-                String description = "";
-                tempArr = line.split(";");
-                Map<String, Double> features = new HashMap<>((tempArr.length - 1));
-                int iterC = 0;
-                for(String value : tempArr)
-                {
-                    if(iterC == 0)
-                        description = value;
-                    else
-                        features.put(headers.get(iterC), Double.valueOf(value));
-                    iterC++;
-                }
-                records.add(new Record(description, features));
-            }
-            br.close();
-        } catch(IOException ioe) {
-            ioe.printStackTrace();
-        }
-        return records;
+        return loadDataset().asRecords();
     }
 
     /**
-     * print clusters configuration
-     * @param clusters the clusters
-     * @param iter current iteration
+     * read the default dataset file into a dense, index-addressed feature matrix
+     * @return  the dataset
+     * @throws IOException exception
      */
-    public static void printClustersConfiguration(Map<Centroid, List<Record>> clusters, int iter)
+    public static Dataset loadDataset() throws IOException
     {
-        System.out.println("------------------------------ Iteration " + iter + "-----------------------------------");
-        clusters.forEach((key, value) -> {
-            System.out.println("------------------------------ CLUSTER -----------------------------------");
-
-            System.out.println(sortedCentroid(key));
-            String members = String.join(", ", value
-                    .parallelStream()
-                    .map(Record::getDescription)
-                    .collect(toSet()));
-            System.out.println("nb obs : " +value.size());
-            System.out.print(members);
-
-            System.out.println();
-            System.out.println();
-        });
+        return loadDataset(DEFAULT_DATASET);
     }
 
     /**
-     *
-     * @param key centroid
-     * @return new sorted centroid
+     * read a dataset file into an index-addressed feature matrix. A {@link ColumnarFormat} file is
+     * memory-mapped as is, while a semicolon-separated file is parsed in parallel by a
+     * {@link MappedCsvLoader} using every available processor.
+     * @param file the binary or semicolon-separated dataset file
+     * @return  the dataset
+     * @throws IOException exception
      */
-    private static Centroid sortedCentroid(Centroid key)
+    public static Dataset loadDataset(Path file) throws IOException
     {
-        List<Map.Entry<String, Double>> entries = new ArrayList<>(key
-                .coordinates()
-                .entrySet());
-        entries.sort((e1, e2) -> e2
-                .getValue()
-                .compareTo(e1.getValue()));
-
-        Map<String, Double> sorted = new LinkedHashMap<>();
-        for (Map.Entry<String, Double> entry : entries)
-            sorted.put(entry.getKey(), entry.getValue());
-
-        return new Centroid(sorted);
+        return loadDataset(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * read a dataset file into an index-addressed feature matrix
+     * @param file the binary or semicolon-separated dataset file
+     * @param parallelism number of threads parsing a semicolon-separated file
+     * @return  the dataset
+     * @throws IOException exception
+     */
+    public static Dataset loadDataset(Path file, int parallelism) throws IOException
+    {
+        return loadDataset(file, parallelism, false);
+    }
+
+    /**
+     * read a dataset file into an index-addressed feature matrix, optionally in single precision,
+     * which halves the memory and the bandwidth of every iteration, see {@link FloatDataset}. A
+     * {@link ColumnarFormat} file keeps the precision it was written with.
+     * @param file the binary or semicolon-separated dataset file
+     * @param parallelism number of threads parsing a semicolon-separated file
+     * @param singlePrecision store the features of a semicolon-separated file as floats
+     * @return  the dataset
+     * @throws IOException exception
+     */
+    public static Dataset loadDataset(Path file, int parallelism, boolean singlePrecision) throws IOException
+    {
+        if (ColumnarFormat.isColumnar(file))
+            return ColumnarFormat.open(file);
+
+        MappedCsvLoader loader = new MappedCsvLoader(parallelism);
+        return singlePrecision ? loader.loadSinglePrecision(file) : loader.load(file);
     }
 
     /**
@@ -123,9 +95,6 @@ public class KMeans
     {
         String [] tempArr = line.split(";");
         ArrayList<String> htParam = new ArrayList<>(tempArr.length);
-        // Loop over the columns
-        for(int i=1; i<tempArr.length; i++)
-            Dimensions.add(tempArr[i]);
         Collections.addAll(htParam, tempArr);
         return htParam;
     }
@@ -133,193 +102,236 @@ public class KMeans
     /**
      * Performs the K-Means clustering algorithm on the given dataset.
      *
-     * @param records       The dataset.
-     * @param k             Number of Clusters.
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items.
+     * @param maxIterations Upper bound for the number of iterations.
+     * @return              the final centroids and the cluster label of every row
+     * @throws              InterruptedException exception
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids,
+                                                 Distance distance, int maxIterations) throws InterruptedException
+    {
+        return runClustering(dataset, centroids, distance, maxIterations, AssignmentEngine.common());
+    }
+
+    /**
+     * Performs the K-Means clustering algorithm on the given dataset.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
      * @param distance      To calculate the distance between two items.
      * @param maxIterations Upper bound for the number of iterations.
-     * @param round         current iteration
-     * @param lastState     cluster at last iteration
-     * @param clusters      current cluster
-     * @return              true or false(should continue the algorithm or not)
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @return              the final centroids and the cluster label of every row
      * @throws              InterruptedException exception
      */
-    public static boolean runClustering(List<Record> records, List<Centroid> centroids, int k,
-                                        Distance distance, int maxIterations, int round, Map<Centroid, List<Record>> clusters,
-                                        Map<Centroid, List<Record>> lastState) throws InterruptedException
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 int maxIterations, AssignmentEngine engine) throws InterruptedException
     {
-        applyPreconditions(records, k, distance, maxIterations);
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("Max iterations should be a positive number");
 
-        boolean isLastIteration = round == maxIterations - 1;
+        return runClustering(dataset, centroids, distance, ConvergenceCriteria.maxIterations(maxIterations), engine);
+    }
 
-        // 1ST STEP : in each iteration we should find the nearest centroid for each record
+    /**
+     * Performs the K-Means clustering algorithm on the given dataset. Convergence is tracked with
+     * the number of label changes of each assignment step, and optionally with the centroid shifts
+     * and the relative inertia change.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items.
+     * @param convergence   Tells when the algorithm terminates.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @return              the final centroids and the cluster label of every row
+     * @throws              InterruptedException exception
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 ConvergenceCriteria convergence, AssignmentEngine engine) throws InterruptedException
+    {
+        return runClustering(dataset, centroids, distance, convergence, engine, ClusteringListener.NONE);
+    }
 
-        for (Record record : records)
-        {
-            Centroid centroid = nearestCentroid(record, centroids, distance);
-            assignToCluster(clusters, record, centroid);
-        }
+    /**
+     * Performs the K-Means clustering algorithm on the given dataset, reporting every iteration to
+     * a listener.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items.
+     * @param convergence   Tells when the algorithm terminates.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @param listener      Observes every iteration, and may abandon the run.
+     * @return              the final centroids and the cluster label of every row
+     * @throws              InterruptedException if the thread is interrupted between two iterations
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 ConvergenceCriteria convergence, AssignmentEngine engine,
+                                                 ClusteringListener listener) throws InterruptedException
+    {
+        if (listener == null)
+            throw new IllegalArgumentException("The listener is required");
 
-        // if the assignment does not change, then the algorithm terminates
-        boolean shouldTerminate = isLastIteration || clusters.equals(lastState);
-        lastState.clear();
+        if (convergence == null)
+            throw new IllegalArgumentException("The convergence criteria are required");
 
-        lastState.putAll(clusters);
+        int maxIterations = convergence.getMaxIterations();
+        applyPreconditions(dataset, centroids, distance, maxIterations, engine);
 
-        if (shouldTerminate)
+        int k = centroids.size();
+        int d = dataset.dimensions();
+        double[] coordinates = toBuffer(centroids, d);
+        CentroidIndex index = CentroidIndex.build(coordinates, k, distance);
+
+        int[] labels = new int[dataset.size()];
+        double[] distances = new double[dataset.size()];
+        Arrays.fill(labels, -1);
+        double lastInertia = Double.POSITIVE_INFINITY;
+
+        for (int round = 0; ; round++)
         {
-            printClustersConfiguration(clusters, round);
-            return true;
+            if (Thread.interrupted())
+                throw new InterruptedException("Clustering interrupted at iteration " + round);
+
+            boolean isLastIteration = round == maxIterations - 1;
+            long allocated = listener.measuresAllocations() ? IterationMetrics.totalAllocatedBytes() : -1;
+            long start = System.nanoTime();
+
+            // 1ST STEP : in each iteration we should find the nearest centroid for each record
+            int changes = engine.assign(dataset, index, labels, distances);
+            double inertia = inertia(distances, distance);
+            long assignmentNanos = System.nanoTime() - start;
+
+            // if the assignment does not change, or barely improves, then the algorithm terminates
+            boolean shouldTerminate = isLastIteration || changes == 0 || convergence.isInertiaConverged(lastInertia, inertia);
+            double[] relocated = null;
+            long updateNanos = 0;
+            if (!shouldTerminate)
+            {
+                // 2ND STEP : at the end of each iteration we should relocate the centroids
+                start = System.nanoTime();
+                relocated = distance.relocateCentroids(dataset, labels, coordinates, k, engine);
+                updateNanos = System.nanoTime() - start;
+
+                // if the centroids barely move, the next assignment would be nearly the same
+                shouldTerminate = convergence.getShiftTolerance() > 0
+                        && convergence.isShiftConverged(maxShift(coordinates, relocated, k, d, distance));
+            }
+
+            IterationMetrics metrics = new IterationMetrics(round, assignmentNanos, updateNanos, index.getEvaluations(),
+                    changes, inertia, IterationMetrics.allocatedSince(allocated));
+            double[] assigned = coordinates;
+            if (!listener.onIteration(metrics, () -> ClusteringSnapshot.of(metrics.iteration(), assigned, k, labels,
+                    inertia)) || shouldTerminate)
+                return new ClusteringResult(dataset, coordinates, labels, round + 1, inertia);
+
+            coordinates = relocated;
+            index = index.rebuild(relocated);
+            lastInertia = inertia;
         }
+    }
 
-        // 2ND STEP : at the end of each iteration we should relocate the centroids
-        centroids = relocateCentroids(clusters);
-        printClustersConfiguration(clusters, round);
-        clusters.clear();
-        return false;
+    /**
+     * @param distances distance of every row to its centroid
+     * @param distance  the distance that computed them
+     * @return the sum of squared errors
+     */
+    static double inertia(double[] distances, Distance distance)
+    {
+        double inertia = 0;
+        for (double value : distances)
+            inertia += distance.squaredError(value);
+        return inertia;
     }
 
     /**
-     * Move all cluster centroids to the average of all assigned features.
-     *
-     * @param clusters The current cluster configuration.
-     * @return Collection of new and relocated centroids.
+     * @return the largest distance between a centroid and its relocated position
      */
-    private static List<Centroid> relocateCentroids(Map<Centroid, List<Record>> clusters)
+    static double maxShift(double[] centroids, double[] relocated, int k, int d, Distance distance)
     {
-        return clusters
-                .entrySet()
-                .parallelStream()
-                .map(e -> average(e.getKey(), e.getValue()))
-                .collect(toList());
+        double maxShift = 0;
+        for (int i = 0; i < k; i++)
+            maxShift = Math.max(maxShift, distance.calculate(centroids, i * d, relocated, i * d, d));
+        return maxShift;
     }
 
     /**
-     * Moves the given centroid to the average position of all assigned features. If
-     * the centroid has no feature in its cluster, then there would be no need for a
-     * relocation. Otherwise, for each entry we calculate the average of all records
-     * first by summing all the entries and then dividing the final summation value by
-     * the number of records.
+     * Copies the centroids into a flat, row-major buffer.
      *
-     * @param centroid The centroid to move.
-     * @param records  The assigned features.
-     * @return The moved centroid.
+     * @param centroids The centroids.
+     * @param d         Number of dimensions.
+     * @return A buffer holding d coordinates per centroid.
      */
-    private static Centroid average(Centroid centroid, List<Record> records) {
-        // if this cluster is empty, then we shouldn't move the centroid
-        if (records == null || records.isEmpty())
-            return centroid;
-
-        // Since some records don't have all possible attributes, we initialize
-        // average coordinates equal to current centroid coordinates
-        Map<String, Double> average = centroid.coordinates();
-
-        // The average function works correctly if we clear all coordinates corresponding
-        // to present record attributes
-        records
-                .parallelStream()
-                .flatMap(e -> e
-                        .getCoordinates()
-                        .keySet()
-                        .parallelStream())
-                .forEach(k -> average.put(k, 0.0));
-
-        for (Record record : records)
-        {
-            record
-                    .getCoordinates()
-                    .forEach((k, v) -> average.compute(k, (k1, currentValue) -> v + currentValue));
-        }
-
-        average.forEach((k, v) -> average.put(k, v / records.size()));
-
-        return new Centroid(average);
+    static double[] toBuffer(List<Centroid> centroids, int d)
+    {
+        double[] coordinates = new double[centroids.size() * d];
+        for (int i = 0; i < centroids.size(); i++)
+            System.arraycopy(centroids.get(i).coordinates(), 0, coordinates, i * d, d);
+        return coordinates;
     }
 
     /**
-     * Assigns a feature vector to the given centroid. If this is the first assignment for this centroid,
-     * first we should create the list.
+     * Move all cluster centroids to the average of all assigned features. The rows are summed in
+     * chunks by the engine, and the chunks are merged in a fixed order, so the centroids don't
+     * depend on the number of threads.
      *
-     * @param clusters The current cluster configuration.
-     * @param record   The feature vector.
-     * @param centroid The centroid.
+     * @param dataset   The dataset.
+     * @param labels    The cluster index of every row.
+     * @param centroids The current row-major centroid buffer.
+     * @param k         Number of clusters.
+     * @param engine    Sums the rows, possibly in parallel.
+     * @return New buffer of relocated centroids.
      */
-    private static void assignToCluster(Map<Centroid, List<Record>> clusters, Record record, Centroid centroid)
+    static double[] relocateCentroids(Dataset dataset, int[] labels, double[] centroids, int k,
+                                      AssignmentEngine engine)
     {
-        clusters.compute(centroid, (key, list) -> {
-            if (list == null)
-                list = new ArrayList<>();
-
-            list.add(record);
-            return list;
+        int d = dataset.dimensions();
+        // the sums of every cluster, followed by the number of rows of every cluster
+        double[] partials = engine.reduceChunks(labels.length, d, (from, to) -> {
+            double[] partial = new double[k * d + k];
+            for (int row = from; row < to; row++)
+            {
+                dataset.accumulate(row, partial, labels[row] * d);
+                partial[k * d + labels[row]]++;
+            }
+            return partial;
+        }, (left, right) -> {
+            for (int i = 0; i < left.length; i++)
+                left[i] += right[i];
+            return left;
         });
+
+        double[] sums = Arrays.copyOf(partials, k * d);
+        for (int cluster = 0; cluster < k; cluster++)
+            average(centroids, sums, (int) partials[k * d + cluster], cluster * d, d);
+        return sums;
     }
 
     /**
-     * With the help of the given distance calculator, iterates through centroids and finds the
-     * nearest one to the given record.
+     * Moves the given centroid to the average position of all assigned features. If
+     * the centroid has no feature in its cluster, then there would be no need for a
+     * relocation. Otherwise, the summation of every coordinate is divided by the
+     * number of records.
      *
-     * @param record    The feature vector to find a centroid for.
-     * @param centroids Collection of all centroids.
-     * @param distance  To calculate the distance between two items.
-     * @return The nearest centroid to the given feature vector.
+     * @param centroids The current centroid buffer.
+     * @param sums      The summation of all assigned features, replaced by their average.
+     * @param count     The number of assigned features.
+     * @param offset    Offset of the centroid in both buffers.
+     * @param d         Number of dimensions.
      */
-    private static Centroid nearestCentroid(Record record, List<Centroid> centroids, Distance distance)
+    private static void average(double[] centroids, double[] sums, int count, int offset, int d)
     {
-        //Parcourt parallel
-        double minimumDistance = Double.MAX_VALUE;
-        Centroid nearest = null;
-        Map<Centroid, Double> distCentroids = new HashMap<>(centroids.size());
-        long lastTime = System.currentTimeMillis();
-        centroids
-                .parallelStream()
-                .forEach(centroid -> {
-                    ThreadDistanceCentroid t = new ThreadDistanceCentroid(record, centroid, distance);
-                    try
-                    {
-                        t.start();
-                        t.join();
-                        System.out.print(t);
-                        System.out.println(t.isAlive()?" is running at " : " stopped at "+System.currentTimeMillis());
-                    }
-                    catch (Exception e)
-                    {
-                        e.getStackTrace();
-                    }
-                    distCentroids
-                            .put(centroid, t.getDistValue());
-
-                });
-        System.err.println(record + " Time spend for distance calculation : " + (System.currentTimeMillis() - lastTime));
-
-        //Map<Centroid, Double> distCentroids = ThreadDistanceCentroid.distCentroid;
-        for (Map.Entry<Centroid, Double> entry : distCentroids.entrySet())
+        // if this cluster is empty, then we shouldn't move the centroid
+        if (count == 0)
         {
-            if (entry.getValue() < minimumDistance)
-            {
-                minimumDistance = entry.getValue();
-                nearest = entry.getKey();
-            }
+            System.arraycopy(centroids, offset, sums, offset, d);
+            return;
         }
-        System.out.println("Nearest centroid : "+nearest);
-        return nearest;
-    	/*Parcourt séquentiel
-
-        double minimumDistance = Double.MAX_VALUE;
-        Centroid nearest = null;
-        long lastTime = System.currentTimeMillis();
-        for (Centroid centroid : centroids)
-        {
-            double currentDistance = distance.calculate(record.getCoordinates(), centroid.getCoordinates());
 
-            if (currentDistance < minimumDistance)
-            {
-                minimumDistance = currentDistance;
-                nearest = centroid;
-            }
-        }
-        System.err.println(record + " Time spend for distance calculation : " + (System.currentTimeMillis() - lastTime));
-		System.out.println("Nearest centroid : "+nearest);
-        return nearest;*/
+        for (int i = offset; i < offset + d; i++)
+            sums[i] /= count;
     }
 
     /**
@@ -328,35 +340,28 @@ public class KMeans
      * we're going to generate the centroids, we generate random coordinates in
      * the [min, max] range for each attribute.
      *
-     * @param records The dataset which helps to calculate the [min, max] range for
+     * @param dataset The dataset which helps to calculate the [min, max] range for
      *                each attribute.
      * @param k       Number of clusters.
      * @return Collections of randomly generated centroids.
      */
-    public static List<Centroid> randomCentroids(List<Record> records, int k)
+    public static List<Centroid> randomCentroids(Dataset dataset, int k)
     {
         List<Centroid> centroids = new ArrayList<>(k);
-        Map<String, Double> maxs = new HashMap<>();
-        Map<String, Double> mins = new HashMap<>();
-        getMinAndMaxOfFeatures(records, maxs, mins);
-        Set<String> attributes = records
-                .parallelStream()
-                .flatMap(e -> e
-                        .getCoordinates()
-                        .keySet()
-                        .parallelStream())
-                .collect(toSet());
+        Set<Centroid> generated = new HashSet<>();
+        int d = dataset.dimensions();
+        double[] maxs = new double[d];
+        double[] mins = new double[d];
+        getMinAndMaxOfFeatures(dataset, maxs, mins);
         for (int i = 0; i < k; i++)
         {
-            Map<String, Double> coordinates = new HashMap<>();
-            for (String attribute : attributes)
-            {
-                double max = maxs.get(attribute);
-                double min = mins.get(attribute);
-                coordinates.put(attribute, random.nextDouble() * (max - min) + min);
-            }
-            if(!centroids.contains(new Centroid(coordinates)))
-                centroids.add(new Centroid(coordinates));
+            double[] coordinates = new double[d];
+            for (int attribute = 0; attribute < d; attribute++)
+                coordinates[attribute] = random.nextDouble() * (maxs[attribute] - mins[attribute]) + mins[attribute];
+
+            Centroid centroid = new Centroid(dataset.schema(), coordinates);
+            if(generated.add(centroid))
+                centroids.add(centroid);
             else
                 i--;
         }
@@ -364,34 +369,55 @@ public class KMeans
         return centroids;
     }
 
-    public static void getMinAndMaxOfFeatures(List<Record> records, Map<String, Double> maxs, Map<String, Double> mins)
+    /**
+     * Computes the [min, max] range of every attribute.
+     *
+     * @param dataset The dataset.
+     * @param maxs    Receives the maximum of every column.
+     * @param mins    Receives the minimum of every column.
+     */
+    public static void getMinAndMaxOfFeatures(Dataset dataset, double[] maxs, double[] mins)
     {
-        for (Record record : records)  {
-            record
-                    .getCoordinates()
-                    .forEach((key, value) -> {
-                        // compares the value with the current max and choose the bigger value between them
-                        maxs.compute(key, (k1, max) -> max == null || value > max ? value : max);
-
-                        // compare the value with the current min and choose the smaller value between them
-                        mins.compute(key, (k1, min) -> min == null || value < min ? value : min);
-                    });
+        Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        for (int row = 0; row < dataset.size(); row++)
+        {
+            for (int column = 0; column < maxs.length; column++)
+            {
+                double value = dataset.get(row, column);
+                // compares the value with the current max and choose the bigger value between them
+                if (value > maxs[column])
+                    maxs[column] = value;
+
+                // compare the value with the current min and choose the smaller value between them
+                if (value < mins[column])
+                    mins[column] = value;
+            }
         }
     }
 
-    private static void applyPreconditions(List<Record> records, int k, Distance distance, int maxIterations)
+    static void applyPreconditions(Dataset dataset, List<Centroid> centroids, Distance distance, int maxIterations,
+                                   AssignmentEngine engine)
     {
-        if (records == null || records.isEmpty())
+        if (dataset == null || dataset.size() == 0)
             throw new IllegalArgumentException("The dataset can't be empty");
 
-        if (k <= 1)
+        if (centroids == null || centroids.size() <= 1)
             throw new IllegalArgumentException("It doesn't make sense to have less than or equal to 1 cluster");
 
+        for (Centroid centroid : centroids)
+        {
+            if (!dataset.schema().equals(centroid.schema()))
+                throw new IllegalArgumentException("The centroids don't match the dataset schema");
+        }
+
         if (distance == null)
             throw new IllegalArgumentException("The distance calculator is required");
 
         if (maxIterations <= 0)
             throw new IllegalArgumentException("Max iterations should be a positive number");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
     }
 }
-
@@ -0,0 +1,227 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The centroids found by a clustering run, without the dataset they were computed from. A model
+ * can be saved, loaded back, and used to label new rows.
+ * <p>
+ * The model file is big-endian:
+ * <pre>
+ * int    magic "KMMD"
+ * int    version
+ * UTF    metric name, see {@link Distances}
+ * int    d, number of columns
+ * d x    UTF column name
+ * int    k, number of centroids
+ * int    number of iterations that were run
+ * k x d  double, row-major centroid coordinates
+ * </pre>
+ */
+public class KMeansModel
+{
+    static final int MAGIC = 0x4B4D4D44;
+
+    static final int VERSION = 1;
+
+    private final Schema schema;
+
+    /**
+     * Row-major centroid coordinates, {@code schema.dimensions()} values per centroid.
+     */
+    private final double[] centroids;
+
+    /**
+     * Number of iterations that were run.
+     */
+    private final int iterations;
+
+    private final Distance distance;
+
+    /**
+     * Index of the centroids, built on the first prediction.
+     */
+    private volatile CentroidIndex index;
+
+    /**
+     * A model of centroids found with the Euclidean distance.
+     */
+    public KMeansModel(Schema schema, double[] centroids, int iterations)
+    {
+        this(schema, centroids, iterations, new EuclideanDistance());
+    }
+
+    public KMeansModel(Schema schema, double[] centroids, int iterations, Distance distance)
+    {
+        if (schema == null || centroids == null || centroids.length == 0 || centroids.length % schema.dimensions() != 0)
+            throw new IllegalArgumentException("The model needs whole centroids of the schema dimensions");
+
+        if (distance == null)
+            throw new IllegalArgumentException("The distance calculator is required");
+
+        this.schema = schema;
+        this.centroids = centroids;
+        this.iterations = iterations;
+        this.distance = distance;
+    }
+
+    public Schema getSchema()
+    {
+        return schema;
+    }
+
+    public int getK()
+    {
+        return centroids.length / schema.dimensions();
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * @return the distance the centroids were found with, and rows are labelled with
+     */
+    public Distance getDistance()
+    {
+        return distance;
+    }
+
+    /**
+     * @return the row-major centroid buffer, not a copy
+     */
+    public double[] getCentroidCoordinates()
+    {
+        return centroids;
+    }
+
+    public List<Centroid> getCentroids()
+    {
+        int d = schema.dimensions();
+        List<Centroid> list = new ArrayList<>(getK());
+        for (int i = 0; i < getK(); i++)
+            list.add(new Centroid(schema, Arrays.copyOfRange(centroids, i * d, (i + 1) * d)));
+        return list;
+    }
+
+    /**
+     * Labels every row of the dataset with its nearest centroid, on the given engine and without
+     * allocating anything per row.
+     *
+     * @param dataset   Rows with the columns of the model.
+     * @param labels    Receives the nearest centroid of every row.
+     * @param distances Receives the distance of every row to its centroid, may be null.
+     * @param engine    Runs the assignment, possibly in parallel.
+     */
+    public void predict(Dataset dataset, int[] labels, double[] distances, AssignmentEngine engine)
+    {
+        if (dataset == null || !schema.equals(dataset.schema()))
+            throw new IllegalArgumentException("Expected rows with the columns " + schema.names());
+
+        if (labels == null || labels.length != dataset.size() || (distances != null && distances.length != dataset.size()))
+            throw new IllegalArgumentException("Expected buffers of " + dataset.size() + " rows");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
+
+        CentroidIndex current = index;
+        if (current == null)
+            index = current = CentroidIndex.build(centroids, getK(), distance);
+
+        engine.assign(dataset, current, labels, distances);
+    }
+
+    /**
+     * Labels every row of the dataset with its nearest centroid.
+     *
+     * @param dataset Rows with the columns of the model.
+     * @param engine  Runs the assignment, possibly in parallel.
+     * @return the nearest centroid of every row
+     */
+    public int[] predict(Dataset dataset, AssignmentEngine engine)
+    {
+        int[] labels = new int[dataset.size()];
+        predict(dataset, labels, null, engine);
+        return labels;
+    }
+
+    /**
+     * Saves the model.
+     *
+     * @param file the model file to create or replace
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(Distances.nameOf(distance));
+            out.writeInt(schema.dimensions());
+            for (String name : schema.names())
+                out.writeUTF(name);
+            out.writeInt(getK());
+            out.writeInt(iterations);
+            for (double coordinate : centroids)
+                out.writeDouble(coordinate);
+        }
+    }
+
+    /**
+     * Loads a model saved with {@link #save(Path)}.
+     *
+     * @param file the model file
+     * @return the model
+     * @throws IOException if the file can't be read or isn't a model file
+     */
+    public static KMeansModel load(Path file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " isn't a model file");
+
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException(file + " has the unsupported version " + version);
+
+            Distance distance;
+            try
+            {
+                distance = Distances.byName(in.readUTF());
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException(file + " has an " + e.getMessage(), e);
+            }
+
+            int d = in.readInt();
+            if (d <= 0)
+                throw new IOException(file + " has an invalid number of columns");
+            List<String> names = new ArrayList<>(d);
+            for (int column = 0; column < d; column++)
+                names.add(in.readUTF());
+
+            int k = in.readInt();
+            int iterations = in.readInt();
+            if (k <= 0 || (long) k * d > Integer.MAX_VALUE - 8 || (long) k * d * Double.BYTES > Files.size(file))
+                throw new IOException(file + " has an invalid number of centroids");
+
+            double[] centroids = new double[k * d];
+            for (int i = 0; i < centroids.length; i++)
+                centroids[i] = in.readDouble();
+            return new KMeansModel(new Schema(names), centroids, iterations, distance);
+        }
+    }
+}
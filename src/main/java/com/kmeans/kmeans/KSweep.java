@@ -0,0 +1,324 @@
+package com.kmeans.kmeans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Clusters one dataset for every number of clusters of a range, to choose k from the resulting
+ * inertia curve. The range is cut into a few chains of consecutive k, which run concurrently on
+ * the shared read-only dataset. Only the first k of a chain is seeded with k-means++: every next
+ * run is warm-started from the converged centroids of the previous k, the worst cluster, i.e. the
+ * one with the largest sum of squared distances, being split in two. The other centroids already
+ * sit near their optimum, so the warm runs converge in a few iterations, and a single chain is
+ * the cheapest sweep when there are no idle cores to run more.
+ */
+public final class KSweep
+{
+    /**
+     * Upper bound for the number of iterations of the 2-means splitting the worst cluster.
+     */
+    private static final int BISECTION_ITERATIONS = 20;
+
+    private KSweep()
+    {
+    }
+
+    /**
+     * Clusters the dataset for every k of [minK, maxK].
+     *
+     * @param dataset     The dataset, only read by the runs.
+     * @param minK        Smallest number of clusters, at least 2.
+     * @param maxK        Largest number of clusters.
+     * @param distance    To calculate the distance between two items.
+     * @param convergence Tells when every run terminates.
+     * @param chains      Number of chains of warm-started runs the range is cut into.
+     * @param workers     Number of chains in progress at the same time.
+     * @param seed        Seed from which the seed of every chain is derived.
+     * @param engine      Runs the assignment steps of every run.
+     * @return the model and the inertia of every k
+     * @throws InterruptedException if the thread is interrupted while waiting for the runs
+     */
+    public static KSweepResult run(Dataset dataset, int minK, int maxK, Distance distance,
+                                   ConvergenceCriteria convergence, int chains, int workers, long seed,
+                                   AssignmentEngine engine) throws InterruptedException
+    {
+        if (minK <= 1 || maxK < minK)
+            throw new IllegalArgumentException("Expected a range of at least 2 clusters, got [" + minK + ", " + maxK + "]");
+
+        if (dataset == null || dataset.size() < maxK)
+            throw new IllegalArgumentException("The dataset should have at least " + maxK + " rows");
+
+        if (chains <= 0 || workers <= 0)
+            throw new IllegalArgumentException("The numbers of chains and workers should be positive numbers");
+
+        if (convergence == null)
+            throw new IllegalArgumentException("The convergence criteria are required");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
+
+        // the chains only depend on the arguments, so the curve doesn't depend on the scheduling
+        int[] starts = split(minK, maxK, Math.min(chains, maxK - minK + 1));
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[starts.length - 1];
+        for (int i = 0; i < seeds.length; i++)
+            seeds[i] = random.nextLong();
+
+        int count = maxK - minK + 1;
+        KMeansModel[] models = new KMeansModel[count];
+        double[] inertias = new double[count];
+        int[] iterations = new int[count];
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, seeds.length));
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>(seeds.length);
+            for (int i = 0; i < seeds.length; i++)
+            {
+                int chain = i;
+                futures.add(executor.submit(() -> {
+                    List<Centroid> centroids = CentroidSeeding.kMeansPlusPlus(dataset, starts[chain], distance,
+                            seeds[chain], engine);
+                    for (int k = starts[chain]; ; k++)
+                    {
+                        ClusteringResult result = KMeans.runClustering(dataset, centroids, distance, convergence,
+                                engine);
+                        models[k - minK] = result.getModel(distance);
+                        inertias[k - minK] = result.getInertia();
+                        iterations[k - minK] = result.getIterations();
+                        if (k + 1 == starts[chain + 1])
+                            return null;
+
+                        centroids = splitWorstCluster(result, distance, engine);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures)
+                future.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            throw new IllegalStateException("A chain of the sweep failed", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return new KSweepResult(minK, models, inertias, iterations);
+    }
+
+    /**
+     * Cuts [minK, maxK] into consecutive chains of about the same cost, the cost of a run growing
+     * with its number of clusters.
+     *
+     * @return the first k of every chain, then maxK + 1
+     */
+    static int[] split(int minK, int maxK, int chains)
+    {
+        long total = 0;
+        for (int k = minK; k <= maxK; k++)
+            total += k;
+
+        int[] starts = new int[chains + 1];
+        starts[0] = minK;
+        starts[chains] = maxK + 1;
+        long cost = 0;
+        int chain = 1;
+        for (int k = minK; k <= maxK && chain < chains; k++)
+        {
+            cost += k;
+            // every chain needs at least one k, whatever the costs
+            int latest = maxK + 1 - (chains - chain);
+            if (cost * chains >= total * chain || k + 1 == latest)
+                starts[chain++] = k + 1;
+        }
+        return starts;
+    }
+
+    /**
+     * Splits the worst cluster of a converged run in two, with a 2-means restricted to its rows:
+     * one centroid starts at the centroid of the cluster, the other at its furthest row. A local
+     * iteration only compares the rows of that cluster to 2 centroids, so the bisection converges
+     * for a fraction of the cost of a global iteration, and the global run then only adjusts the
+     * borders with the neighbouring clusters.
+     *
+     * @return the converged centroids, the worst one replaced by the first half of its cluster,
+     * plus the centroid of the second half
+     */
+    static List<Centroid> splitWorstCluster(ClusteringResult result, Distance distance, AssignmentEngine engine)
+    {
+        Dataset dataset = result.getDataset();
+        double[] centroids = result.getCentroidCoordinates();
+        int[] labels = result.getLabels();
+        int k = result.getK();
+        int d = dataset.dimensions();
+
+        double[] distances = new double[labels.length];
+        engine.forEachChunk(labels.length, d, (from, to) -> {
+            for (int row = from; row < to; row++)
+                distances[row] = dataset.distance(row, centroids, labels[row] * d, distance);
+            return 0;
+        });
+
+        // summed in row order, so that the worst cluster doesn't depend on the number of threads
+        double[] errors = new double[k];
+        int[] sizes = new int[k];
+        int[] furthest = new int[k];
+        Arrays.fill(furthest, -1);
+        for (int row = 0; row < labels.length; row++)
+        {
+            int label = labels[row];
+            errors[label] += distance.squaredError(distances[row]);
+            sizes[label]++;
+            if (furthest[label] < 0 || distances[row] > distances[furthest[label]])
+                furthest[label] = row;
+        }
+
+        int worst = 0;
+        for (int cluster = 1; cluster < k; cluster++)
+        {
+            if (errors[cluster] > errors[worst])
+                worst = cluster;
+        }
+
+        int[] members = new int[sizes[worst]];
+        for (int row = 0, count = 0; row < labels.length; row++)
+        {
+            if (labels[row] == worst)
+                members[count++] = row;
+        }
+        double[] halves = bisect(dataset, members, centroids, worst, furthest[worst], distance, engine);
+
+        List<Centroid> split = new ArrayList<>(k + 1);
+        for (int cluster = 0; cluster < k; cluster++)
+        {
+            split.add(cluster == worst
+                    ? new Centroid(dataset.schema(), Arrays.copyOfRange(halves, 0, d))
+                    : result.getCentroid(cluster));
+        }
+        split.add(new Centroid(dataset.schema(), Arrays.copyOfRange(halves, d, 2 * d)));
+        return split;
+    }
+
+    /**
+     * Runs a 2-means on the rows of one cluster, relocating its centroids with
+     * {@link Distance#relocateCentroids} like a global iteration does.
+     *
+     * @return the 2 row-major centroids of the halves
+     */
+    private static double[] bisect(Dataset dataset, int[] members, double[] centroids, int cluster, int furthest,
+                                   Distance distance, AssignmentEngine engine)
+    {
+        int d = dataset.dimensions();
+        double[] halves = new double[2 * d];
+        System.arraycopy(centroids, cluster * d, halves, 0, d);
+        for (int column = 0; column < d; column++)
+            halves[d + column] = dataset.get(furthest, column);
+
+        Dataset rows = new Rows(dataset, members);
+        int[] labels = new int[members.length];
+        for (int iteration = 0; iteration < BISECTION_ITERATIONS; iteration++)
+        {
+            int changes = 0;
+            for (int row = 0; row < labels.length; row++)
+            {
+                int half = rows.rankingDistance(row, halves, d, distance)
+                        < rows.rankingDistance(row, halves, 0, distance) ? 1 : 0;
+                if (iteration == 0 || labels[row] != half)
+                    changes++;
+                labels[row] = half;
+            }
+
+            if (changes == 0)
+                break;
+            halves = distance.relocateCentroids(rows, labels, halves, 2, engine);
+        }
+        return halves;
+    }
+
+    /**
+     * Read-only view of some rows of a dataset, so that a bisection only visits the rows of the
+     * split cluster.
+     */
+    private static final class Rows implements Dataset
+    {
+        private final Dataset dataset;
+
+        private final int[] rows;
+
+        Rows(Dataset dataset, int[] rows)
+        {
+            this.dataset = dataset;
+            this.rows = rows;
+        }
+
+        @Override
+        public Schema schema()
+        {
+            return dataset.schema();
+        }
+
+        @Override
+        public int size()
+        {
+            return rows.length;
+        }
+
+        @Override
+        public int dimensions()
+        {
+            return dataset.dimensions();
+        }
+
+        @Override
+        public String description(int row)
+        {
+            return dataset.description(rows[row]);
+        }
+
+        @Override
+        public double get(int row, int column)
+        {
+            return dataset.get(rows[row], column);
+        }
+
+        @Override
+        public double distance(int row, double[] centroids, int offset, Distance distance)
+        {
+            return dataset.distance(rows[row], centroids, offset, distance);
+        }
+
+        @Override
+        public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+        {
+            return dataset.rankingDistance(rows[row], centroids, offset, distance);
+        }
+
+        @Override
+        public double rankingDistance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+        {
+            return dataset.rankingDistance(rows[row], centroids, offset, centroidNorm, distance);
+        }
+
+        @Override
+        public double distance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+        {
+            return dataset.distance(rows[row], centroids, offset, centroidNorm, distance);
+        }
+
+        @Override
+        public void accumulate(int row, double[] sums, int offset)
+        {
+            dataset.accumulate(rows[row], sums, offset);
+        }
+    }
+}
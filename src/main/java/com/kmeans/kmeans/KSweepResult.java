@@ -0,0 +1,123 @@
+package com.kmeans.kmeans;
+
+/**
+ * Outcome of a {@link KSweep}: the converged model, the inertia and the number of iterations of
+ * every k of the swept range, and the k recommended by the elbow of the inertia curve.
+ */
+public class KSweepResult
+{
+    private final int minK;
+
+    /**
+     * Model of every k, from minK.
+     */
+    private final KMeansModel[] models;
+
+    /**
+     * Inertia of every k, from minK.
+     */
+    private final double[] inertias;
+
+    /**
+     * Number of iterations of every k, from minK.
+     */
+    private final int[] iterations;
+
+    public KSweepResult(int minK, KMeansModel[] models, double[] inertias, int[] iterations)
+    {
+        if (models == null || inertias == null || iterations == null || models.length == 0
+                || models.length != inertias.length || models.length != iterations.length)
+            throw new IllegalArgumentException("Expected a model, an inertia and a number of iterations for every k");
+
+        this.minK = minK;
+        this.models = models;
+        this.inertias = inertias;
+        this.iterations = iterations;
+    }
+
+    public int getMinK()
+    {
+        return minK;
+    }
+
+    public int getMaxK()
+    {
+        return minK + models.length - 1;
+    }
+
+    /**
+     * @param k number of clusters, within the swept range
+     * @return the inertia of the run with k clusters
+     */
+    public double getInertia(int k)
+    {
+        return inertias[index(k)];
+    }
+
+    /**
+     * @param k number of clusters, within the swept range
+     * @return the number of iterations of the run with k clusters
+     */
+    public int getIterations(int k)
+    {
+        return iterations[index(k)];
+    }
+
+    /**
+     * @param k number of clusters, within the swept range
+     * @return the centroids of the run with k clusters
+     */
+    public KMeansModel getModel(int k)
+    {
+        return models[index(k)];
+    }
+
+    /**
+     * @return the inertia curve, from minK to maxK
+     */
+    public double[] getInertias()
+    {
+        return inertias.clone();
+    }
+
+    /**
+     * Finds the elbow of the inertia curve: once both axes are scaled to [0, 1], the k whose
+     * inertia lies the furthest below the chord from the first to the last k of the range. Past
+     * the elbow, every extra cluster barely lowers the inertia. The curve is compared on a log
+     * scale, where the drop to the true number of clusters stands out even when the drops before
+     * it are much larger.
+     *
+     * @return the recommended number of clusters, minK when the range has fewer than 3 values
+     */
+    public int getRecommendedK()
+    {
+        int count = inertias.length;
+        if (count < 3 || !(inertias[0] > inertias[count - 1]))
+            return minK;
+
+        // a curve reaching 0, e.g. with as many clusters as distinct rows, has no log scale
+        boolean log = inertias[count - 1] > 0;
+        double first = log ? Math.log(inertias[0]) : inertias[0];
+        double last = log ? Math.log(inertias[count - 1]) : inertias[count - 1];
+        int elbow = 0;
+        double deepest = 0;
+        for (int i = 1; i < count - 1; i++)
+        {
+            double chord = 1 - (double) i / (count - 1);
+            double curve = ((log ? Math.log(inertias[i]) : inertias[i]) - last) / (first - last);
+            if (chord - curve > deepest)
+            {
+                deepest = chord - curve;
+                elbow = i;
+            }
+        }
+        return minK + elbow;
+    }
+
+    private int index(int k)
+    {
+        if (k < minK || k > getMaxK())
+            throw new IllegalArgumentException("k should be within [" + minK + ", " + getMaxK() + "], got " + k);
+        return k - minK;
+    }
+}
@@ -1,36 +1,33 @@
 package com.kmeans.kmeans;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.application.Application;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.fxml.FXML;
+import javafx.application.Platform;
 import javafx.scene.Group;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.chart.*;
+import javafx.scene.control.Alert;
+import javafx.scene.image.PixelWriter;
 import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 
 public class Main extends Application
 {
     /**
-     * Cuurent state and lastState of the cluster
+     * The dataset
      */
-    private final Map<Centroid, List<Record>> clusters;
-    private final Map<Centroid, List<Record>> lastState;
+    private Dataset dataset;
     /**
-     * List of records
+     * Minimum and maximum value of every coordinate
      */
-    private List<Record> records;
-    /**
-     * List of centroids
-     */
-    private final List<Centroid> centroids;
+    private double[] mins;
+    private double[] maxs;
     /**
      * Number of centroids to generate
      */
@@ -40,34 +37,55 @@ public class Main extends Application
      */
     private static final int nbIterationMax = 1000;
     /**
-     * Number of iteration (current)
+     * The bundled dataset holds latitudes and longitudes
+     */
+    private static final Distance distance = new HaversineDistance();
+    /**
+     * Minimum time between two frames drawn while the algorithm runs
      */
-    private int round;
+    private static final long frameInterval = 100_000_000L;
     /**
      * Width and Height of the Chart
      */
     private static final double width = java.awt.Toolkit.getDefaultToolkit().getScreenSize().getWidth();
     private static final double height = java.awt.Toolkit.getDefaultToolkit().getScreenSize().getHeight() - 100;
-    @FXML
-    private ScatterChart<?, ?> ScatterChart;
+    /**
+     * Space left around the plot of the records for the axes
+     */
+    private static final int margin = 40;
+    /**
+     * Number of shades of every cluster color, from the sparsest to the densest pixels
+     */
+    private static final int shades = 16;
+    /**
+     * Runs the algorithm, so that the window shows up and stays responsive meanwhile
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kmeans-clustering");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Canvas ScatterCanvas;
+
+    private BarChart<String, Number> BarChart;
 
-    @FXML
-    private BarChart<?, ?> BarChart;
+    private XYChart.Series<String, Number> series;
 
 
     public static void main(String[] arg)
     {
-        new Main();
         launch(arg);
     }
 
     @Override
     public void start(Stage arg0)
     {
-        draw();
+        ScatterCanvas = new Canvas(width / 2, height - 100);
+        drawBarChart();
 
         GridPane grid = new GridPane();
-        grid.addColumn(0, ScatterChart);
+        grid.addColumn(0, ScatterCanvas);
         grid.addColumn(1, BarChart);
         Group root = new Group(grid);
         root.setAutoSizeChildren(true);
@@ -75,155 +93,202 @@ public class Main extends Application
         arg0.setTitle("Chart");
         arg0.setScene(scene);
         arg0.show();
+
+        executor.submit(this::run);
     }
-    public Main()
+
+    @Override
+    public void stop()
     {
-        clusters = new HashMap<>();
-        lastState = new HashMap<>();
-        try
-        {
-            records = KMeans.retreiveRecordsFromDataset();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        centroids = KMeans.randomCentroids(records, nbCentroids);
-        run();
+        executor.shutdownNow();
     }
 
     /**
-     * Run the algrithm
+     * Run the algrithm on the background thread. Every frame is drawn on the FX thread: at most
+     * one every {@link #frameInterval} while it runs, with the records in gray and the current
+     * centroids, then the final clusters.
      */
     private void run()
     {
-
-        while(true)
+        try
         {
-            try
-            {
-                if(KMeans.runClustering(records, centroids, nbCentroids, new EuclideanDistance(), nbIterationMax, round, clusters, lastState))
-                    break;
-            } catch (InterruptedException e)
-            {
-                System.out.println("Exception : "+e.getMessage());
-                e.printStackTrace();
-            }
-            round++;
+            dataset = GeoDataset.copyOf(KMeans.loadDataset());
+            maxs = new double[dataset.dimensions()];
+            mins = new double[dataset.dimensions()];
+            KMeans.getMinAndMaxOfFeatures(dataset, maxs, mins);
 
+            DensityGrid records = bin(new int[dataset.size()]);
+            SnapshotPublisher publisher = new SnapshotPublisher(frameInterval, Platform::runLater,
+                    snapshot -> draw(snapshot, records, false));
+            ClusteringResult result = KMeans.runClustering(dataset,
+                    CentroidSeeding.kMeansPlusPlus(dataset, nbCentroids, distance, System.nanoTime(),
+                            AssignmentEngine.common()),
+                    distance, ConvergenceCriteria.maxIterations(nbIterationMax), AssignmentEngine.common(), publisher);
+
+            // queued after every frame of the publisher, so it is drawn last
+            DensityGrid clusters = bin(result.getLabels());
+            ClusteringSnapshot last = ClusteringSnapshot.of(result.getIterations() - 1,
+                    result.getCentroidCoordinates(), result.getK(), result.getLabels(), result.getInertia());
+            Platform.runLater(() -> draw(last, clusters, true));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // the future of the task is never read, so the failure is reported here or nowhere
+            Platform.runLater(() -> showError(e));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
         }
     }
+
     /**
-     * Draw Chart
+     * Tell the user the algorithm failed, on the FX thread
+     * @param e the failure
      */
-    public void draw()
+    private void showError(Exception e)
     {
-        /*
-         * get the minimum and maximum value for every coordinate
-         */
-        Map<String, Double> maxs = new HashMap<>();
-        Map<String, Double> mins = new HashMap<>();
-
-        KMeans.getMinAndMaxOfFeatures(records, maxs, mins);
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Chart");
+        alert.setHeaderText("The clustering failed");
+        alert.setContentText(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        alert.show();
+    }
 
-        drawCentroidsAndRecordsForScatterChart(clusters, mins, maxs);
-        drawCentroidsAndRecordsForBarChart(clusters);
+    /**
+     * Bins the records into the pixels of the scatter plot, with a margin around their bounds
+     * @param labels cluster of every record
+     * @return the density grid
+     */
+    private DensityGrid bin(int[] labels)
+    {
+        int plotWidth = (int) (width / 2) - 2 * margin;
+        int plotHeight = (int) (height - 100) - 2 * margin;
+        double padX = Math.max(1e-9, (maxs[0] - mins[0]) * 0.02);
+        double padY = Math.max(1e-9, (maxs[1] - mins[1]) * 0.02);
+        DensityGrid grid = new DensityGrid(plotWidth, plotHeight, mins[0] - padX, maxs[0] + padX,
+                mins[1] - padY, maxs[1] + padY);
+        for (int row = 0; row < labels.length; row++)
+            grid.add(dataset.get(row, 0), dataset.get(row, 1), labels[row]);
+        return grid;
     }
 
     /**
-     * Draw barChart
-     * @param clusters clusters
+     * Draw Chart
+     * @param snapshot state of the algorithm
+     * @param records records binned into the pixels of the scatter plot
+     * @param done whether the algorithm ended, the records then being binned by cluster
      */
-    public void drawCentroidsAndRecordsForBarChart(Map<Centroid, List<Record>> clusters)
+    public void draw(ClusteringSnapshot snapshot, DensityGrid records, boolean done)
     {
-        List<String> centroids = new ArrayList<>(nbCentroids);
-        for(int i=0;i<nbCentroids; i++)
-            centroids.add(""+(i+1));
-        ObservableList<String> listCentroids = FXCollections.observableArrayList(centroids);
+        drawCentroidsAndRecordsForScatterChart(snapshot, records, done);
+        drawCentroidsAndRecordsForBarChart(snapshot.getClusterSizes());
+    }
 
+    /**
+     * Draw barChart, with no record until the first frame
+     */
+    private void drawBarChart()
+    {
         //X Axis
-        CategoryAxis xAxis = new CategoryAxis(listCentroids);
+        CategoryAxis xAxis = new CategoryAxis();
         xAxis.setLabel("No. of centroids");
 
-        int maxItem = getMaxItemInOneCluster(clusters);
-
         //Y Axis
-        NumberAxis yAxis = new NumberAxis(0, maxItem + 1, 1);
+        NumberAxis yAxis = new NumberAxis();
         yAxis.setLabel("Nb Observations");
 
         BarChart = new BarChart<>(xAxis, yAxis);
         BarChart.setTitle("Nb records per centroid");
         BarChart.setMinSize(width/2, height - 100);
-        int it = 0;
-        XYChart.Series series = new XYChart.Series<>();
+        BarChart.setAnimated(false);
+        series = new XYChart.Series<>();
         series.setName("Nb Observations");
-        for (Map.Entry<Centroid, List<Record>> entry : clusters.entrySet())
-        {
-            if(entry.getValue() != null)
-                series.getData().add(new XYChart.Data<>(centroids.get(it), entry.getValue().size()));
-            else
-                series.getData().add(new XYChart.Data(centroids.get(it), 0));
-
-
-            it++;
-        }
-        BarChart.getData().addAll(series);
+        for (int i = 0; i < nbCentroids; i++)
+            series.getData().add(new XYChart.Data<>("" + (i + 1), 0));
+        BarChart.getData().add(series);
     }
 
     /**
-     *
-     * @param clusters2 list of record
-     * @return maximum items
+     * Update barChart
+     * @param sizes number of records of every cluster
      */
-    private int getMaxItemInOneCluster(Map<Centroid, List<Record>> clusters2)
+    public void drawCentroidsAndRecordsForBarChart(int[] sizes)
     {
-        List<Integer> nbItems = new ArrayList<>();
-        clusters2
-                .forEach((key, value) -> nbItems.add(value.size()));
-        int max = Integer.MIN_VALUE;
-        for (Integer value : nbItems)
-        {
-            if(value > max)
-                max = value;
-        }
-        return max;
+        for (int i = 0; i < sizes.length; i++)
+            series.getData().get(i).setYValue(sizes[i]);
     }
 
     /**
-     * Draw ScatterChart
-     * @param clusters cluster
-     * @param mins mininums
-     * @param maxs maximums
+     * Draw the records on the canvas: they are binned into its pixels, and every pixel takes the
+     * color of its majority cluster, darker with more records. Until the algorithm ends, the
+     * records are gray. The cost of drawing depends on the size of the canvas, not on the number
+     * of records.
+     * @param snapshot state of the algorithm
+     * @param records records binned into the pixels of the canvas
+     * @param done whether the records are binned by cluster
      */
-    public void drawCentroidsAndRecordsForScatterChart(Map<Centroid, List<Record>> clusters, Map<String, Double> mins, Map<String, Double> maxs)
+    public void drawCentroidsAndRecordsForScatterChart(ClusteringSnapshot snapshot, DensityGrid records, boolean done)
     {
-        //X axis
-        NumberAxis xAxis = new NumberAxis(mins.get(KMeans.Dimensions.get(0)) - 1, maxs.get(KMeans.Dimensions.get(0)) + 1, 0.5);
-        xAxis.setLabel(KMeans.Dimensions.get(0));
-
-        //Y Axis
-        NumberAxis yAxis = new NumberAxis(mins.get(KMeans.Dimensions.get(1)) - 1, maxs.get(KMeans.Dimensions.get(1)) + 1, 0.5);
-        yAxis.setLabel(KMeans.Dimensions.get(1));
-
-        ScatterChart = new ScatterChart<>(xAxis, yAxis);
-        ScatterChart.setTitle("Final Cluster");
-        ScatterChart.setMinSize(width/2, height - 100);
-        int it = 0;
-        for (Map.Entry<Centroid, List<Record>> entry : clusters.entrySet())
+        int plotWidth = records.getWidth();
+        int plotHeight = records.getHeight();
+        GraphicsContext gc = ScatterCanvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, ScatterCanvas.getWidth(), ScatterCanvas.getHeight());
+        int k = snapshot.getK();
+        Color[] colors = new Color[k];
+        int[][] argb = new int[k][shades];
+        for (int cluster = 0; cluster < k; cluster++)
         {
-            XYChart.Series series = new XYChart.Series<>();
-            series.getData().add(new XYChart.Data(entry.getKey().getCoordinates(KMeans.Dimensions.get(0)), entry.getKey().getCoordinates(KMeans.Dimensions.get(1))));
-            series.setName("Centroid " + (it + 1) + "\nx : " + entry.getKey().getCoordinates(KMeans.Dimensions.get(0)) + "\ny : " + entry.getKey().getCoordinates(KMeans.Dimensions.get(1)));
+            colors[cluster] = Color.hsb(360.0 * cluster / k, 0.85, 0.85);
+            Color color = done ? colors[cluster] : Color.GRAY;
+            for (int shade = 0; shade < shades; shade++)
+                argb[cluster][shade] = toArgb(Color.WHITE.interpolate(color, (shade + 1.0) / shades));
+        }
 
-            if(entry.getValue() != null)
+        // densities are spread on a log scale, so that a few dense pixels don't wash out the others
+        PixelWriter writer = gc.getPixelWriter();
+        double scale = Math.log1p(records.getMaxCount());
+        for (int y = 0; y < plotHeight; y++)
+        {
+            for (int x = 0; x < plotWidth; x++)
             {
-                for (int j = 0; j < entry.getValue().size(); j++)
-                {
-                    series.getData().add(new XYChart.Data(entry.getValue().get(j).getCoordinates(KMeans.Dimensions.get(0)), (entry.getValue().get(j).getCoordinates(KMeans.Dimensions.get(1)))));
-                }
+                int count = records.getCount(x, y);
+                if (count == 0)
+                    continue;
+                int shade = (int) Math.min(shades - 1, Math.log1p(count) / scale * shades);
+                writer.setArgb(margin + x, margin + y, argb[records.getCluster(x, y)][shade]);
             }
-            ScatterChart.getData().add(series);
-            it++;
+        }
+
+        gc.setStroke(Color.GRAY);
+        gc.strokeRect(margin - 0.5, margin - 0.5, plotWidth + 1, plotHeight + 1);
+        gc.setFill(Color.BLACK);
+        gc.fillText(done ? "Final Cluster" : "Iteration " + (snapshot.getIteration() + 1), margin, margin / 2.0);
+        gc.fillText(String.format("%.2f", records.getMinX()), margin, margin + plotHeight + 15);
+        gc.fillText(String.format("%.2f", records.getMaxX()), margin + plotWidth - 40, margin + plotHeight + 15);
+        gc.fillText(dataset.schema().name(0), margin + plotWidth / 2.0, margin + plotHeight + 30);
+        gc.fillText(String.format("%.2f", records.getMaxY()), 2, margin + 10);
+        gc.fillText(String.format("%.2f", records.getMinY()), 2, margin + plotHeight);
+        gc.fillText(dataset.schema().name(1), 2, margin + plotHeight / 2.0);
+
+        for (int cluster = 0; cluster < k; cluster++)
+        {
+            int x = records.pixelX(snapshot.getCentroid(cluster, 0));
+            int y = records.pixelY(snapshot.getCentroid(cluster, 1));
+            if (x < 0 || y < 0)
+                continue;
+            gc.setFill(colors[cluster]);
+            gc.fillOval(margin + x - 6, margin + y - 6, 12, 12);
+            gc.strokeOval(margin + x - 6, margin + y - 6, 12, 12);
+            gc.setFill(Color.BLACK);
+            gc.fillText("Centroid " + (cluster + 1), margin + x + 8, margin + y - 8);
         }
     }
 
-}
+    private static int toArgb(Color color)
+    {
+        return 0xFF000000 | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
 
+}
@@ -0,0 +1,84 @@
+package com.kmeans.kmeans;
+
+import java.util.Map;
+
+/**
+ * Calculates the distance between two items as the sum of the absolute differences of
+ * their features, also known as the city block distance.
+ */
+public class ManhattanDistance implements Distance
+{
+    private final DistanceKernels kernels = DistanceKernels.get();
+
+    @Override
+    public double calculate(Map<String, Double> f1, Map<String, Double> f2)
+    {
+        if (f1 == null || f2 == null)
+            throw new IllegalArgumentException("Feature vectors can't be null");
+
+        double sum = 0;
+        for (Map.Entry<String, Double> entry : f1.entrySet())
+        {
+            Double v1 = entry.getValue();
+            Double v2 = f2.get(entry.getKey());
+
+            if (v1 != null && v2 != null)
+                sum += Math.abs(v1 - v2);
+        }
+
+        return sum;
+    }
+
+    @Override
+    public double calculate(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.manhattan(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        return kernels.manhattan(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.manhattan(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * @return the sum of the absolute values of the centroid
+     */
+    @Override
+    public double centroidNorm(double[] centroids, int offset, int length)
+    {
+        double norm = 0;
+        for (int i = 0; i < length; i++)
+            norm += Math.abs(centroids[offset + i]);
+        return norm;
+    }
+
+    /**
+     * A missing feature contributes the absolute value of the centroid, so the row only corrects
+     * the norm of the centroid at its non-zero features.
+     */
+    @Override
+    public double sparseRankingDistance(double[] values, int[] columns, int from, int to, double[] centroids,
+                                        int offset, double centroidNorm)
+    {
+        double sum = centroidNorm;
+        for (int i = from; i < to; i++)
+        {
+            double c = centroids[offset + columns[i]];
+            sum += Math.abs(values[i] - c) - Math.abs(c);
+        }
+        return Math.max(0, sum);
+    }
+
+    @Override
+    public boolean isMetric()
+    {
+        return true;
+    }
+}
@@ -0,0 +1,154 @@
+package com.kmeans.kmeans;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link Dataset} reading straight from a memory-mapped {@link ColumnarFormat} file. Every column
+ * is a contiguous run of little-endian doubles or floats, so opening the file costs no parsing
+ * and no copy; the operating system pages the values in on first access.
+ */
+public final class MappedColumnarDataset implements Dataset
+{
+    private final Schema schema;
+
+    private final int size;
+
+    private final boolean singlePrecision;
+
+    /**
+     * One mapped buffer per column.
+     */
+    private final ByteBuffer[] columns;
+
+    /**
+     * n + 1 offsets of the descriptions in {@link #texts}.
+     */
+    private final ByteBuffer offsets;
+
+    private final ByteBuffer texts;
+
+    /**
+     * The distance kernels need a row as a contiguous slice, so the last row read by each
+     * thread is kept, since it is usually compared to every centroid in a row.
+     */
+    private final ThreadLocal<RowCache> rows;
+
+    MappedColumnarDataset(Schema schema, int size, boolean singlePrecision, ByteBuffer[] columns,
+                          ByteBuffer offsets, ByteBuffer texts)
+    {
+        this.schema = schema;
+        this.size = size;
+        this.singlePrecision = singlePrecision;
+        this.columns = columns;
+        this.offsets = offsets;
+        this.texts = texts;
+        this.rows = ThreadLocal.withInitial(() -> new RowCache(schema.dimensions()));
+    }
+
+    @Override
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if the columns hold floats
+     */
+    public boolean isSinglePrecision()
+    {
+        return singlePrecision;
+    }
+
+    @Override
+    public String description(int row)
+    {
+        int from = (int) offsets.getLong(row * Long.BYTES);
+        int to = (int) offsets.getLong((row + 1) * Long.BYTES);
+        byte[] bytes = new byte[to - from];
+        texts.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double get(int row, int column)
+    {
+        return singlePrecision
+                ? columns[column].getFloat(row * Float.BYTES)
+                : columns[column].getDouble(row * Double.BYTES);
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.calculate(row(row), 0, centroids, offset, columns.length);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.rankingDistance(row(row), 0, centroids, offset, columns.length);
+    }
+
+    @Override
+    public void accumulate(int row, double[] sums, int offset)
+    {
+        double[] values = row(row);
+        for (int column = 0; column < values.length; column++)
+            sums[offset + column] += values[column];
+    }
+
+    /**
+     * Copies every column into a row-major, on-heap dataset, which is faster to scan repeatedly.
+     *
+     * @return the dense copy
+     */
+    public DenseDataset toDense()
+    {
+        int d = columns.length;
+        String[] descriptions = new String[size];
+        double[] values = new double[size * d];
+        for (int row = 0; row < size; row++)
+            descriptions[row] = description(row);
+
+        for (int column = 0; column < d; column++)
+        {
+            for (int row = 0; row < size; row++)
+                values[row * d + column] = get(row, column);
+        }
+        return new DenseDataset(schema, descriptions, values);
+    }
+
+    /**
+     * @return the values of the row, in a per-thread buffer
+     */
+    private double[] row(int row)
+    {
+        RowCache cache = rows.get();
+        if (cache.row != row)
+        {
+            for (int column = 0; column < cache.values.length; column++)
+                cache.values[column] = get(row, column);
+            cache.row = row;
+        }
+        return cache.values;
+    }
+
+    private static final class RowCache
+    {
+        private final double[] values;
+
+        private int row = -1;
+
+        RowCache(int dimensions)
+        {
+            values = new double[dimensions];
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.kmeans.kmeans;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a semicolon-separated dataset file with several threads. The file is memory-mapped and
+ * split into line-aligned byte ranges; a first parallel pass counts the rows of every range, then
+ * a second one parses the values straight from the mapped bytes into the primitive buffer of a
+ * {@link DenseDataset}, or of a {@link FloatDataset} in single precision. Apart from the row
+ * identifiers, no object is allocated per value.
+ */
+public class MappedCsvLoader
+{
+    /**
+     * Upper bound of a mapped range, far below the 2 GB limit of a single mapping.
+     */
+    private static final long MAX_RANGE_BYTES = 1L << 30;
+
+    /**
+     * Number of ranges per thread, so that threads finishing early can take more work.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * Powers of ten that are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism number of threads parsing the file
+     */
+    public MappedCsvLoader(int parallelism)
+    {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism should be a positive number");
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Loads the whole file.
+     *
+     * @param file the dataset file
+     * @return the dataset
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public DenseDataset load(Path file) throws IOException
+    {
+        return (DenseDataset) load(file, false);
+    }
+
+    /**
+     * Loads the whole file, rounding every value to a float.
+     *
+     * @param file the dataset file
+     * @return the single-precision dataset
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public FloatDataset loadSinglePrecision(Path file) throws IOException
+    {
+        return (FloatDataset) load(file, true);
+    }
+
+    private Dataset load(Path file, boolean singlePrecision) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long headerEnd = nextLine(channel, 0, size);
+            if (headerEnd == 0)
+                throw new IOException("The dataset " + file + " is empty");
+
+            Schema schema = Schema.fromHeaders(KMeans.getHeaders(readHeader(channel, headerEnd)));
+            List<Range> ranges = split(channel, headerEnd, size);
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try
+            {
+                // 1ST PASS : count the rows of every range to know where each one starts
+                List<Callable<Void>> counting = new ArrayList<>(ranges.size());
+                for (Range range : ranges)
+                    counting.add(() -> {
+                        range.rows = countRows(range.buffer);
+                        return null;
+                    });
+                invokeAll(pool, counting);
+
+                long rows = 0;
+                for (Range range : ranges)
+                    rows += range.rows;
+                if (rows > Integer.MAX_VALUE - 8 || rows * schema.dimensions() > Integer.MAX_VALUE - 8)
+                    throw new IOException("The dataset " + file + " is too large for a dense dataset");
+
+                int firstRow = 0;
+                for (Range range : ranges)
+                {
+                    range.firstRow = firstRow;
+                    firstRow += range.rows;
+                }
+
+                // 2ND PASS : parse every range into its slice of the buffers
+                int d = schema.dimensions();
+                String[] descriptions = new String[(int) rows];
+                double[] values = singlePrecision ? null : new double[(int) rows * d];
+                float[] floats = singlePrecision ? new float[(int) rows * d] : null;
+                List<Callable<Void>> parsing = new ArrayList<>(ranges.size());
+                for (Range range : ranges)
+                    parsing.add(() -> {
+                        parse(range, d, descriptions, values, floats);
+                        return null;
+                    });
+                invokeAll(pool, parsing);
+
+                return singlePrecision
+                        ? new FloatDataset(schema, descriptions, floats)
+                        : new DenseDataset(schema, descriptions, values);
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks and rethrows the first failure.
+     */
+    private static void invokeAll(ForkJoinPool pool, List<Callable<Void>> tasks) throws IOException
+    {
+        for (Future<Void> future : pool.invokeAll(tasks))
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading the dataset", e);
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException io)
+                    throw io;
+                throw new IOException("Failed to load the dataset", e.getCause());
+            }
+        }
+    }
+
+    private static String readHeader(FileChannel channel, long headerEnd) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+        {
+            // keep reading until the whole header is there
+        }
+        return new String(header.array(), 0, header.position(), StandardCharsets.UTF_8).strip();
+    }
+
+    /**
+     * Splits [from, size) into ranges that start at the beginning of a line.
+     */
+    private List<Range> split(FileChannel channel, long from, long size) throws IOException
+    {
+        long bytes = size - from;
+        long count = Math.max(parallelism * (long) RANGES_PER_THREAD, (bytes + MAX_RANGE_BYTES - 1) / MAX_RANGE_BYTES);
+        long target = Math.max(1, Math.min(MAX_RANGE_BYTES / 2, bytes / count));
+
+        List<Range> ranges = new ArrayList<>();
+        long start = from;
+        while (start < size)
+        {
+            long end = nextLine(channel, Math.min(size, start + target), size);
+            if (end - start > Integer.MAX_VALUE)
+                throw new IOException("A line of the dataset is too long");
+
+            ranges.add(new Range(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the position right after the next line feed at or after the given position, or
+     * the file size if there is none
+     */
+    private static long nextLine(FileChannel channel, long position, long size) throws IOException
+    {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        while (position < size)
+        {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0)
+                break;
+
+            for (int i = 0; i < read; i++)
+            {
+                if (window.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * @return number of non-blank lines of the buffer
+     */
+    private static int countRows(ByteBuffer buffer)
+    {
+        int rows = 0;
+        boolean blank = true;
+        for (int i = 0, limit = buffer.limit(); i < limit; i++)
+        {
+            byte b = buffer.get(i);
+            if (b == '\n')
+            {
+                if (!blank)
+                    rows++;
+                blank = true;
+            }
+            else if (b != '\r' && b != ' ' && b != '\t')
+            {
+                blank = false;
+            }
+        }
+        return blank ? rows : rows + 1;
+    }
+
+    /**
+     * Parses a range into either the double or the float buffer, the other one being null.
+     */
+    private static void parse(Range range, int d, String[] descriptions, double[] values, float[] floats)
+            throws IOException
+    {
+        ByteBuffer buffer = range.buffer;
+        byte[] scratch = new byte[64];
+        int row = range.firstRow;
+        int position = 0;
+        int limit = buffer.limit();
+        while (position < limit)
+        {
+            int end = position;
+            while (end < limit && buffer.get(end) != '\n')
+                end++;
+
+            int lineEnd = end;
+            while (lineEnd > position && (buffer.get(lineEnd - 1) == '\r' || buffer.get(lineEnd - 1) == ' '))
+                lineEnd--;
+
+            if (lineEnd > position && !isBlank(buffer, position, lineEnd))
+            {
+                scratch = parseRow(buffer, position, lineEnd, row, d, descriptions, values, floats, scratch);
+                row++;
+            }
+            position = end + 1;
+        }
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses one line into the given row of the buffers.
+     *
+     * @return the scratch buffer, possibly grown
+     */
+    private static byte[] parseRow(ByteBuffer buffer, int from, int to, int row, int d, String[] descriptions,
+                                   double[] values, float[] floats, byte[] scratch) throws IOException
+    {
+        int column = -1;
+        int start = from;
+        for (int i = from; i <= to; i++)
+        {
+            if (i < to && buffer.get(i) != ';')
+                continue;
+
+            if (column == d)
+                throw new IOException("Row " + (row + 1) + " has more than " + (d + 1) + " columns");
+
+            if (i - start > scratch.length)
+                scratch = new byte[Math.max(i - start, scratch.length * 2)];
+
+            if (column < 0)
+            {
+                buffer.get(start, scratch, 0, i - start);
+                descriptions[row] = new String(scratch, 0, i - start, StandardCharsets.UTF_8);
+            }
+            else if (values != null)
+            {
+                values[row * d + column] = parseDouble(buffer, start, i, scratch, row);
+            }
+            else
+            {
+                floats[row * d + column] = (float) parseDouble(buffer, start, i, scratch, row);
+            }
+            column++;
+            start = i + 1;
+        }
+
+        if (column != d)
+            throw new IOException("Row " + (row + 1) + " has " + (column + 1) + " columns, expected " + (d + 1));
+        return scratch;
+    }
+
+    /**
+     * Parses a decimal number from bytes. Numbers of at most 15 significant digits with a small
+     * exponent, i.e. nearly all real datasets, are converted exactly with one multiplication or
+     * division. Anything else falls back to {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(ByteBuffer buffer, int from, int to, byte[] scratch, int row) throws IOException
+    {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+            negative = buffer.get(i++) == '-';
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        byte b;
+        while (i < to && (b = buffer.get(i)) >= '0' && b <= '9')
+        {
+            any = true;
+            if (mantissa != 0 || b != '0')
+                digits++;
+            mantissa = mantissa * 10 + (b - '0');
+            if (digits > 15)
+                return fallback(buffer, from, to, scratch, row);
+            i++;
+        }
+
+        if (i < to && buffer.get(i) == '.')
+        {
+            i++;
+            while (i < to && (b = buffer.get(i)) >= '0' && b <= '9')
+            {
+                any = true;
+                if (mantissa != 0 || b != '0')
+                    digits++;
+                mantissa = mantissa * 10 + (b - '0');
+                exponent--;
+                if (digits > 15)
+                    return fallback(buffer, from, to, scratch, row);
+                i++;
+            }
+        }
+
+        if (any && i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E'))
+        {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+'))
+                negativeExponent = buffer.get(i++) == '-';
+
+            int explicit = 0;
+            boolean anyExponent = false;
+            while (i < to && (b = buffer.get(i)) >= '0' && b <= '9' && explicit < 1000)
+            {
+                anyExponent = true;
+                explicit = explicit * 10 + (b - '0');
+                i++;
+            }
+            if (!anyExponent)
+                return fallback(buffer, from, to, scratch, row);
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+
+        if (!any || i != to || exponent < -22 || exponent > 22)
+            return fallback(buffer, from, to, scratch, row);
+
+        // both operands are exact, so the single rounding of the operation is the correct one
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static double fallback(ByteBuffer buffer, int from, int to, byte[] scratch, int row) throws IOException
+    {
+        byte[] bytes = to - from <= scratch.length ? scratch : new byte[to - from];
+        buffer.get(from, bytes, 0, to - from);
+        String text = new String(bytes, 0, to - from, StandardCharsets.UTF_8);
+        try
+        {
+            return Double.parseDouble(text);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Row " + (row + 1) + " has an invalid value '" + text + "'", e);
+        }
+    }
+
+    /**
+     * A line-aligned, mapped slice of the file.
+     */
+    private static final class Range
+    {
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Number of rows of the range, set by the first pass.
+         */
+        private int rows;
+
+        /**
+         * Index of the first row of the range in the dataset.
+         */
+        private int firstRow;
+
+        Range(MappedByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.kmeans.kmeans;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Mini-batch K-Means, for datasets too large to be swept at every iteration. Each iteration
+ * draws a random batch of records, assigns them to their nearest centroid, then moves every
+ * centroid towards its records with a per-centroid learning rate of {@code 1 / n}, where
+ * {@code n} is the number of records the centroid has received so far. The result has a
+ * slightly higher inertia than {@link KMeans#runClustering}, in a fraction of the time.
+ */
+public final class MiniBatchKMeans
+{
+    private MiniBatchKMeans()
+    {
+    }
+
+    /**
+     * Performs the mini-batch K-Means clustering algorithm on the given dataset.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items.
+     * @param batchSize     Number of records drawn at every iteration.
+     * @param maxIterations Upper bound for the number of iterations, i.e. batches.
+     * @param tolerance     The algorithm terminates once no centroid moves further than this
+     *                      distance during a batch.
+     * @param seed          Seed of the batch sampling.
+     * @return              the final centroids and the cluster label of every row
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 int batchSize, int maxIterations, double tolerance, long seed)
+    {
+        return runClustering(dataset, centroids, distance, batchSize, maxIterations, tolerance, seed,
+                AssignmentEngine.common());
+    }
+
+    /**
+     * Performs the mini-batch K-Means clustering algorithm on the given dataset.
+     *
+     * @param dataset       The dataset.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items.
+     * @param batchSize     Number of records drawn at every iteration.
+     * @param maxIterations Upper bound for the number of iterations, i.e. batches.
+     * @param tolerance     The algorithm terminates once no centroid moves further than this
+     *                      distance during a batch.
+     * @param seed          Seed of the batch sampling.
+     * @param engine        Runs the assignment steps, possibly in parallel.
+     * @return              the final centroids and the cluster label of every row
+     */
+    public static ClusteringResult runClustering(Dataset dataset, List<Centroid> centroids, Distance distance,
+                                                 int batchSize, int maxIterations, double tolerance, long seed,
+                                                 AssignmentEngine engine)
+    {
+        KMeans.applyPreconditions(dataset, centroids, distance, maxIterations, engine);
+        if (!distance.isMeanRelocation())
+            throw new IllegalArgumentException(distance.getClass().getSimpleName()
+                    + " doesn't relocate the centroids to the mean of their rows");
+
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("The batch size should be a positive number");
+
+        if (tolerance < 0)
+            throw new IllegalArgumentException("The tolerance can't be negative");
+
+        int k = centroids.size();
+        int d = dataset.dimensions();
+        double[] coordinates = KMeans.toBuffer(centroids, d);
+        double[] previous = new double[k * d];
+        long[] counts = new long[k];
+        int[] batch = new int[batchSize];
+        int[] batchLabels = new int[batchSize];
+        SplittableRandom random = new SplittableRandom(seed);
+
+        int round = 0;
+        while (round < maxIterations)
+        {
+            round++;
+            for (int i = 0; i < batchSize; i++)
+                batch[i] = random.nextInt(dataset.size());
+
+            // 1ST STEP : find the nearest centroid of every record of the batch
+            double[] norms = AssignmentEngine.centroidNorms(coordinates, k, d, distance);
+            engine.forEachChunk(batchSize, d, (from, to) -> {
+                for (int i = from; i < to; i++)
+                    batchLabels[i] = AssignmentEngine.nearestCentroid(dataset, batch[i], coordinates, norms, k, distance);
+                return 0;
+            });
+
+            // 2ND STEP : move each centroid towards its records, with a decreasing learning rate
+            System.arraycopy(coordinates, 0, previous, 0, coordinates.length);
+            for (int i = 0; i < batchSize; i++)
+            {
+                int offset = batchLabels[i] * d;
+                double rate = 1.0 / ++counts[batchLabels[i]];
+                for (int column = 0; column < d; column++)
+                    coordinates[offset + column] += rate * (dataset.get(batch[i], column) - coordinates[offset + column]);
+            }
+
+            if (KMeans.maxShift(previous, coordinates, k, d, distance) <= tolerance)
+                break;
+        }
+
+        // a final sweep labels every record with the converged centroids
+        int[] labels = new int[dataset.size()];
+        double[] distances = new double[dataset.size()];
+        engine.assign(dataset, coordinates, k, distance, labels, distances);
+        return new ClusteringResult(dataset, coordinates, labels, round, KMeans.inertia(distances, distance));
+    }
+}
@@ -0,0 +1,189 @@
+package com.kmeans.kmeans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs K-Means several times from different seeds and keeps the run with the lowest inertia.
+ * The restarts share the same read-only dataset and run concurrently on a fixed number of
+ * workers, each worker taking the next restart as soon as its current one ends.
+ * <p>
+ * By default every run goes to its end, so the best run only depends on the seed. Runs can
+ * optionally be abandoned once they are projected to end above the best inertia found so far,
+ * which frees their worker for the next restart but may drop the run that would have won.
+ */
+public final class MultiStartKMeans
+{
+    private MultiStartKMeans()
+    {
+    }
+
+    /**
+     * Performs several K-Means runs seeded with k-means++ and returns the best one.
+     *
+     * @param dataset     The dataset, only read by the runs.
+     * @param k           Number of clusters.
+     * @param distance    To calculate the distance between two items.
+     * @param convergence Tells when every run terminates.
+     * @param restarts    Number of runs.
+     * @param workers     Number of runs in progress at the same time.
+     * @param seed        Seed from which the seed of every run is derived.
+     * @param engine      Runs the assignment steps of every run.
+     * @return the run with the lowest inertia, the same whatever the number of workers and threads
+     * @throws InterruptedException if the thread is interrupted while waiting for the runs
+     */
+    public static ClusteringResult runClustering(Dataset dataset, int k, Distance distance,
+                                                 ConvergenceCriteria convergence, int restarts, int workers,
+                                                 long seed, AssignmentEngine engine) throws InterruptedException
+    {
+        return runClustering(dataset, k, distance, convergence, restarts, workers, seed, engine, false);
+    }
+
+    /**
+     * Performs several K-Means runs seeded with k-means++ and returns the best one, optionally
+     * abandoning the runs that look hopeless.
+     * <p>
+     * The abandoning is a heuristic: the final inertia of a run is extrapolated from its last two
+     * improvements, which is a guess rather than a lower bound, and it is compared to the best
+     * inertia of the runs that happened to end first. With it, the returned run may not be the
+     * best one and may change from one execution to the next.
+     *
+     * @param dataset     The dataset, only read by the runs.
+     * @param k           Number of clusters.
+     * @param distance    To calculate the distance between two items.
+     * @param convergence Tells when every run terminates.
+     * @param restarts    Number of runs.
+     * @param workers     Number of runs in progress at the same time.
+     * @param seed        Seed from which the seed of every run is derived.
+     * @param engine      Runs the assignment steps of every run.
+     * @param abandon     Whether to abandon the runs projected to end above the best one.
+     * @return the run with the lowest inertia among those that weren't abandoned
+     * @throws InterruptedException if the thread is interrupted while waiting for the runs
+     */
+    public static ClusteringResult runClustering(Dataset dataset, int k, Distance distance,
+                                                 ConvergenceCriteria convergence, int restarts, int workers,
+                                                 long seed, AssignmentEngine engine, boolean abandon)
+            throws InterruptedException
+    {
+        if (restarts <= 0)
+            throw new IllegalArgumentException("The number of restarts should be a positive number");
+
+        if (workers <= 0)
+            throw new IllegalArgumentException("The number of workers should be a positive number");
+
+        if (convergence == null)
+            throw new IllegalArgumentException("The convergence criteria are required");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
+
+        // the seeds only depend on the given one, so that every run is reproducible
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[restarts];
+        for (int i = 0; i < restarts; i++)
+            seeds[i] = random.nextLong();
+
+        Best best = new Best();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, restarts));
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>(restarts);
+            for (int i = 0; i < restarts; i++)
+            {
+                int restart = i;
+                futures.add(executor.submit(() -> {
+                    List<Centroid> centroids = CentroidSeeding.kMeansPlusPlus(dataset, k, distance, seeds[restart], engine);
+                    Projection projection = abandon ? new Projection(best) : null;
+                    ClusteringResult result = KMeans.runClustering(dataset, centroids, distance, convergence, engine,
+                            abandon ? projection : ClusteringListener.NONE);
+                    if (projection == null || !projection.abandoned)
+                        best.offer(restart, result);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures)
+                future.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            throw new IllegalStateException("A restart failed", e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return best.result;
+    }
+
+    /**
+     * The best run so far. Ties are broken by the lowest restart index, so once every run ended the
+     * outcome doesn't depend on the order in which they did.
+     */
+    private static final class Best
+    {
+        private volatile double inertia = Double.POSITIVE_INFINITY;
+        private int restart = -1;
+        private ClusteringResult result;
+
+        synchronized void offer(int restart, ClusteringResult candidate)
+        {
+            double candidateInertia = candidate.getInertia();
+            if (result == null || candidateInertia < inertia || (candidateInertia == inertia && restart < this.restart))
+            {
+                this.restart = restart;
+                this.result = candidate;
+                this.inertia = candidateInertia;
+            }
+        }
+    }
+
+    /**
+     * Heuristically abandons a run once its inertia, extrapolated from the ratio of its last two
+     * improvements, is above the best inertia found so far. The extrapolation assumes the
+     * improvements keep shrinking geometrically, which they usually but not always do.
+     */
+    private static final class Projection implements ClusteringListener
+    {
+        private final Best best;
+        private double previousInertia = Double.NaN;
+        private double previousImprovement = Double.NaN;
+        private boolean abandoned;
+
+        Projection(Best best)
+        {
+            this.best = best;
+        }
+
+        @Override
+        public boolean onIteration(IterationMetrics metrics)
+        {
+            double inertia = metrics.inertia();
+            double improvement = previousInertia - inertia;
+            double ratio = improvement / previousImprovement;
+            previousInertia = inertia;
+            previousImprovement = improvement;
+
+            // a run whose improvements don't shrink yet may still go anywhere
+            if (!(ratio >= 0 && ratio < 1))
+                return true;
+
+            double projected = inertia - improvement * ratio / (1 - ratio);
+            abandoned = projected > best.inertia;
+            return !abandoned;
+        }
+
+        @Override
+        public boolean measuresAllocations()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.kmeans.kmeans;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * {@link Dataset} whose values and descriptions live outside of the Java heap, so the heap usage
+ * doesn't grow with the number of rows. The rows are stored row-major in direct buffers while
+ * they fit in the given memory budget, and in a memory-mapped temporary file beyond it, in which
+ * case the operating system pages them in and out as the engine sweeps them chunk by chunk.
+ * <p>
+ * Direct buffers and mappings are released by the garbage collector, {@link #close()} only
+ * deletes the temporary files.
+ */
+public final class OffHeapDataset implements Dataset, Closeable
+{
+    /**
+     * Rows read at once from a dataset file.
+     */
+    private static final int BATCH_ROWS = 4096;
+
+    private final Schema schema;
+
+    private final int size;
+
+    private final int dimensions;
+
+    /**
+     * Row-major little-endian doubles.
+     */
+    private final OffHeapStore values;
+
+    /**
+     * n + 1 offsets of the descriptions in {@link #texts}.
+     */
+    private final OffHeapStore offsets;
+
+    private final OffHeapStore texts;
+
+    /**
+     * The distance kernels need a row as a contiguous slice, so the last row read by each
+     * thread is kept, since it is usually compared to every centroid in a row.
+     */
+    private final ThreadLocal<RowCache> rows;
+
+    private OffHeapDataset(Schema schema, int size, OffHeapStore values, OffHeapStore offsets, OffHeapStore texts)
+    {
+        this.schema = schema;
+        this.size = size;
+        this.dimensions = schema.dimensions();
+        this.values = values;
+        this.offsets = offsets;
+        this.texts = texts;
+        this.rows = ThreadLocal.withInitial(() -> new RowCache(dimensions));
+    }
+
+    /**
+     * Streams a semicolon-separated dataset file off-heap, with only a small batch on the heap.
+     *
+     * @param file           the dataset file
+     * @param memoryBudget   bytes of memory the rows may take before being spilled to a file
+     * @param spillDirectory directory of the temporary files
+     * @return the dataset
+     * @throws IOException if the file can't be read or is malformed, or the spill file can't be written
+     */
+    public static OffHeapDataset load(Path file, long memoryBudget, Path spillDirectory) throws IOException
+    {
+        try (CsvBatchReader reader = new CsvBatchReader(file, BATCH_ROWS))
+        {
+            Writer writer = new Writer(reader.schema(), memoryBudget, spillDirectory);
+            try
+            {
+                for (Dataset batch = reader.next(); batch != null; batch = reader.next())
+                    writer.append(batch);
+                return writer.build();
+            }
+            catch (IOException | RuntimeException e)
+            {
+                writer.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Copies a dataset off-heap.
+     *
+     * @param dataset        the dataset
+     * @param memoryBudget   bytes of memory the rows may take before being spilled to a file
+     * @param spillDirectory directory of the temporary files
+     * @return the copy
+     * @throws IOException if the spill file can't be written
+     */
+    public static OffHeapDataset copyOf(Dataset dataset, long memoryBudget, Path spillDirectory) throws IOException
+    {
+        Writer writer = new Writer(dataset.schema(), memoryBudget, spillDirectory);
+        try
+        {
+            writer.append(dataset);
+            return writer.build();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            writer.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if the rows didn't fit in the memory budget and are read from a file
+     */
+    public boolean isSpilled()
+    {
+        return values.isSpilled();
+    }
+
+    @Override
+    public String description(int row)
+    {
+        long from = offsets.getLong((long) row * Long.BYTES);
+        long to = offsets.getLong((long) (row + 1) * Long.BYTES);
+        byte[] bytes = new byte[(int) (to - from)];
+        texts.get(from, bytes, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double get(int row, int column)
+    {
+        return values.getDouble(((long) row * dimensions + column) * Double.BYTES);
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.calculate(row(row), 0, centroids, offset, dimensions);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance.rankingDistance(row(row), 0, centroids, offset, dimensions);
+    }
+
+    @Override
+    public void accumulate(int row, double[] sums, int offset)
+    {
+        long position = (long) row * dimensions * Double.BYTES;
+        for (int column = 0; column < dimensions; column++)
+            sums[offset + column] += values.getDouble(position + (long) column * Double.BYTES);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        values.close();
+        offsets.close();
+        texts.close();
+    }
+
+    /**
+     * @return the values of the row, in a per-thread buffer
+     */
+    private double[] row(int row)
+    {
+        RowCache cache = rows.get();
+        if (cache.row != row)
+        {
+            long position = (long) row * dimensions * Double.BYTES;
+            for (int column = 0; column < dimensions; column++)
+                cache.values[column] = values.getDouble(position + (long) column * Double.BYTES);
+            cache.row = row;
+        }
+        return cache.values;
+    }
+
+    private static final class RowCache
+    {
+        private final double[] values;
+
+        private int row = -1;
+
+        RowCache(int dimensions)
+        {
+            values = new double[dimensions];
+        }
+    }
+
+    /**
+     * Appends rows to the stores of a new dataset.
+     */
+    private static final class Writer implements Closeable
+    {
+        private final Schema schema;
+        private final OffHeapStore values;
+        private final OffHeapStore offsets;
+        private final OffHeapStore texts;
+        private int size;
+
+        Writer(Schema schema, long memoryBudget, Path spillDirectory) throws IOException
+        {
+            OffHeapStore.Budget budget = new OffHeapStore.Budget(memoryBudget);
+            this.schema = schema;
+            this.values = new OffHeapStore(budget, spillDirectory);
+            this.offsets = new OffHeapStore(budget, spillDirectory);
+            this.texts = new OffHeapStore(budget, spillDirectory);
+            offsets.appendLong(0);
+        }
+
+        void append(Dataset batch) throws IOException
+        {
+            if (!schema.equals(batch.schema()))
+                throw new IllegalArgumentException("Expected the columns " + schema.names());
+
+            if ((long) size + batch.size() >= Integer.MAX_VALUE)
+                throw new IllegalArgumentException("A dataset can't have more than " + (Integer.MAX_VALUE - 1) + " rows");
+
+            for (int row = 0; row < batch.size(); row++)
+            {
+                for (int column = 0; column < schema.dimensions(); column++)
+                    values.appendDouble(batch.get(row, column));
+
+                String description = batch.description(row);
+                texts.append((description == null ? "" : description).getBytes(StandardCharsets.UTF_8));
+                offsets.appendLong(texts.size());
+            }
+            size += batch.size();
+        }
+
+        OffHeapDataset build() throws IOException
+        {
+            values.seal();
+            offsets.seal();
+            texts.seal();
+            return new OffHeapDataset(schema, size, values, offsets, texts);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            values.close();
+            offsets.close();
+            texts.close();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.kmeans.kmeans;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only byte storage outside of the Java heap, read back once sealed. Bytes are kept in
+ * direct buffers of {@link #PAGE_BYTES} while the shared {@link Budget} allows it; past that, the
+ * store spills everything to a temporary file, which is memory-mapped page by page when sealed.
+ * The operating system then keeps the pages in use in its cache and drops the others when memory
+ * is short, so the store never holds more than one page of memory of its own.
+ */
+final class OffHeapStore implements Closeable
+{
+    /**
+     * Size of a page, a power of two, so that no long or double spans two pages.
+     */
+    static final int PAGE_SHIFT = 24;
+
+    static final int PAGE_BYTES = 1 << PAGE_SHIFT;
+
+    private static final int PAGE_MASK = PAGE_BYTES - 1;
+
+    /**
+     * Size of the first page, which doubles until it is a whole page, so small stores stay small.
+     */
+    private static final int FIRST_PAGE_BYTES = 1 << 12;
+
+    private final Budget budget;
+    private final Path spillDirectory;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    private ByteBuffer current;
+    private FileChannel spill;
+    private long size;
+    private boolean sealed;
+
+    /**
+     * @param budget         bytes this store may keep in memory, shared with other stores
+     * @param spillDirectory directory of the temporary file, if the budget runs out
+     */
+    OffHeapStore(Budget budget, Path spillDirectory)
+    {
+        this.budget = budget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return number of bytes appended
+     */
+    long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if the bytes live in a file rather than in memory
+     */
+    boolean isSpilled()
+    {
+        return spill != null;
+    }
+
+    void appendDouble(double value) throws IOException
+    {
+        reserve(Double.BYTES).putDouble(value);
+        size += Double.BYTES;
+    }
+
+    void appendLong(long value) throws IOException
+    {
+        reserve(Long.BYTES).putLong(value);
+        size += Long.BYTES;
+    }
+
+    void append(byte[] bytes) throws IOException
+    {
+        int written = 0;
+        while (written < bytes.length)
+        {
+            ByteBuffer page = reserve(1);
+            int length = Math.min(page.remaining(), bytes.length - written);
+            page.put(bytes, written, length);
+            written += length;
+        }
+        size += bytes.length;
+    }
+
+    /**
+     * Ends the appends, and maps the spilled pages if any.
+     */
+    void seal() throws IOException
+    {
+        if (sealed)
+            return;
+        sealed = true;
+
+        if (spill == null)
+        {
+            if (current != null)
+                current.flip();
+            return;
+        }
+
+        flush();
+        current = null;
+        pages.clear();
+        for (long position = 0; position < size; position += PAGE_BYTES)
+            pages.add(spill.map(FileChannel.MapMode.READ_ONLY, position, Math.min(PAGE_BYTES, size - position))
+                    .order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    double getDouble(long position)
+    {
+        return pages.get((int) (position >>> PAGE_SHIFT)).getDouble((int) (position & PAGE_MASK));
+    }
+
+    long getLong(long position)
+    {
+        return pages.get((int) (position >>> PAGE_SHIFT)).getLong((int) (position & PAGE_MASK));
+    }
+
+    /**
+     * Copies bytes, possibly spanning several pages.
+     */
+    void get(long position, byte[] target, int length)
+    {
+        int read = 0;
+        while (read < length)
+        {
+            long at = position + read;
+            ByteBuffer page = pages.get((int) (at >>> PAGE_SHIFT));
+            int offset = (int) (at & PAGE_MASK);
+            int chunk = Math.min(length - read, page.limit() - offset);
+            page.get(offset, target, read, chunk);
+            read += chunk;
+        }
+    }
+
+    /**
+     * Releases the file, the mapped pages stay readable until they are garbage collected.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (spill != null)
+            spill.close();
+    }
+
+    /**
+     * @return a page with room for the given number of bytes
+     */
+    private ByteBuffer reserve(int bytes) throws IOException
+    {
+        if (sealed)
+            throw new IllegalStateException("The store is sealed");
+
+        if (current != null && current.remaining() >= bytes)
+            return current;
+
+        if (spill != null)
+        {
+            // the last page is reused as the write buffer of the file
+            flush();
+            return current;
+        }
+
+        return allocate() ? current : spillToFile();
+    }
+
+    /**
+     * Doubles the first page until it is a whole one, or adds a page.
+     *
+     * @return false if the budget, or the direct memory of the JVM, is exhausted
+     */
+    private boolean allocate()
+    {
+        int bytes = current == null ? FIRST_PAGE_BYTES : current.capacity() < PAGE_BYTES ? current.capacity() * 2 : PAGE_BYTES;
+        int reserved = current != null && current.capacity() < PAGE_BYTES ? current.capacity() : bytes;
+        if (!budget.reserve(reserved))
+            return false;
+
+        ByteBuffer page;
+        try
+        {
+            page = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        catch (OutOfMemoryError e)
+        {
+            // -XX:MaxDirectMemorySize is lower than the budget, the rest goes to the file
+            budget.release(reserved);
+            return false;
+        }
+
+        if (current != null && current.capacity() < PAGE_BYTES)
+        {
+            page.put(current.flip());
+            pages.set(0, page);
+        }
+        else
+        {
+            pages.add(page);
+        }
+        current = page;
+        return true;
+    }
+
+    /**
+     * Moves everything to a temporary file, keeping the last page to write through. The budget
+     * of the other pages goes back to the stores sharing it.
+     */
+    private ByteBuffer spillToFile() throws IOException
+    {
+        Path file = Files.createTempFile(spillDirectory, "kmeans-", ".offheap");
+        spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        if (current == null)
+            current = ByteBuffer.allocateDirect(FIRST_PAGE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (ByteBuffer page : pages)
+        {
+            if (page == current)
+                continue;
+            page.flip();
+            while (page.hasRemaining())
+                spill.write(page);
+            budget.release(page.capacity());
+        }
+        pages.clear();
+        flush();
+        return current;
+    }
+
+    private void flush() throws IOException
+    {
+        current.flip();
+        while (current.hasRemaining())
+            spill.write(current);
+        current.clear();
+    }
+
+    /**
+     * Bytes the stores of a dataset may keep in memory, together.
+     */
+    static final class Budget
+    {
+        private long remaining;
+
+        Budget(long bytes)
+        {
+            if (bytes < 0)
+                throw new IllegalArgumentException("The memory budget can't be negative");
+
+            this.remaining = bytes;
+        }
+
+        synchronized boolean reserve(long bytes)
+        {
+            if (bytes > remaining)
+                return false;
+            remaining -= bytes;
+            return true;
+        }
+
+        synchronized void release(long bytes)
+        {
+            remaining += bytes;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.kmeans.kmeans;
+
+/**
+ * Portable {@link DistanceKernels}, used when the Vector API is not available.
+ */
+class ScalarDistanceKernels implements DistanceKernels
+{
+
+    @Override
+    public double squaredEuclidean(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        float sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredEuclidean(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+        {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public double manhattan(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        return sum;
+    }
+
+    @Override
+    public double manhattan(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        float sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        return sum;
+    }
+
+    @Override
+    public double manhattan(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        return sum;
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    @Override
+    public double dot(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        float sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    @Override
+    public double cosine(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < length; i++)
+        {
+            double x = a[aOffset + i];
+            double y = b[bOffset + i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        return cosineDistance(dot, normA, normB);
+    }
+
+    @Override
+    public double cosine(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        float dot = 0;
+        float normA = 0;
+        float normB = 0;
+        for (int i = 0; i < length; i++)
+        {
+            float x = a[aOffset + i];
+            float y = b[bOffset + i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        return cosineDistance(dot, normA, normB);
+    }
+
+    @Override
+    public double cosine(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < length; i++)
+        {
+            double x = a[aOffset + i];
+            double y = b[bOffset + i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        return cosineDistance(dot, normA, normB);
+    }
+
+    /**
+     * @return the squared Euclidean norm of the vector
+     */
+    static double squaredNorm(double[] a, int offset, int length)
+    {
+        double norm = 0;
+        for (int i = 0; i < length; i++)
+            norm += a[offset + i] * a[offset + i];
+        return norm;
+    }
+
+    /**
+     * Squared Euclidean distance between a sparse row and a dense centroid of known squared norm,
+     * clamped to zero since the expansion may round slightly below it.
+     */
+    static double sparseSquaredEuclidean(double[] values, int[] columns, int from, int to, double[] centroids,
+                                         int offset, double centroidNorm)
+    {
+        double dot = 0;
+        double norm = 0;
+        for (int i = from; i < to; i++)
+        {
+            double v = values[i];
+            dot += v * centroids[offset + columns[i]];
+            norm += v * v;
+        }
+        return Math.max(0, norm - 2 * dot + centroidNorm);
+    }
+
+    /**
+     * @param dot   dot product of both vectors
+     * @param normA squared norm of the first vector
+     * @param normB squared norm of the second vector
+     * @return one minus the cosine similarity, or 1 if one of the vectors is zero
+     */
+    static double cosineDistance(double dot, double normA, double normB)
+    {
+        if (normA == 0 || normB == 0)
+            return 1;
+
+        return 1 - dot / Math.sqrt(normA * normB);
+    }
+}
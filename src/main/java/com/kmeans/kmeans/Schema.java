@@ -0,0 +1,114 @@
+package com.kmeans.kmeans;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps attribute names to the column indexes used by a {@link Dataset}. The schema is
+ * built once from the dataset headers, so the clustering loop never has to hash a
+ * feature name again.
+ */
+public final class Schema
+{
+    /**
+     * Attribute names, ordered by column index.
+     */
+    private final List<String> names;
+
+    /**
+     * Reverse lookup from attribute name to column index.
+     */
+    private final Map<String, Integer> indexes;
+
+    public Schema(List<String> names)
+    {
+        if (names == null || names.isEmpty())
+            throw new IllegalArgumentException("A schema needs at least one attribute");
+
+        this.names = List.copyOf(names);
+        this.indexes = new HashMap<>(names.size());
+        for (int i = 0; i < names.size(); i++)
+        {
+            if (indexes.put(names.get(i), i) != null)
+                throw new IllegalArgumentException("Duplicate attribute " + names.get(i));
+        }
+    }
+
+    /**
+     * Builds a schema from the headers returned by {@link KMeans#getHeaders(String)}. The
+     * first header describes the record identifier and is not a feature.
+     *
+     * @param headers all headers of the dataset file
+     * @return the feature schema
+     */
+    public static Schema fromHeaders(List<String> headers)
+    {
+        if (headers == null || headers.size() < 2)
+            throw new IllegalArgumentException("The dataset needs an identifier and at least one attribute");
+
+        return new Schema(headers.subList(1, headers.size()));
+    }
+
+    /**
+     * @return number of attributes, i.e. the dimensionality of every row
+     */
+    public int dimensions()
+    {
+        return names.size();
+    }
+
+    /**
+     * @param column column index
+     * @return attribute name of the column
+     */
+    public String name(int column)
+    {
+        return names.get(column);
+    }
+
+    /**
+     * @return all attribute names, ordered by column index
+     */
+    public List<String> names()
+    {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param name attribute name
+     * @return column index of the attribute, or -1 if it is unknown
+     */
+    public int indexOf(String name)
+    {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+        return names.equals(((Schema) o).names);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return names.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Schema " + names;
+    }
+}
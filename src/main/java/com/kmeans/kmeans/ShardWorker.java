@@ -0,0 +1,298 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Worker process of {@link DistributedKMeans}. It loads one shard of the dataset, then serves the
+ * coordinator over a local socket: at every iteration it assigns its rows to the broadcast
+ * centroids and returns the per-cluster sums and counts, never the rows themselves, e.g.
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp kmeans.jar com.kmeans.kmeans.ShardWorker \
+ *      --input shard-1.csv --port 7001 --metric euclidean --threads 4
+ * </pre>
+ * A coordinator connection is served at a time. A coordinator that lost its connection can send
+ * the same request again, to this worker or to a restarted one.
+ */
+public final class ShardWorker implements Closeable
+{
+    static final int HELLO = 0;
+    static final int SAMPLE = 1;
+    static final int ASSIGN = 2;
+    static final int LABELS = 3;
+    static final int BYE = 4;
+
+    private final Dataset dataset;
+    private final Distance distance;
+    private final AssignmentEngine engine;
+    private final ServerSocket server;
+
+    /**
+     * Cluster of every row, kept between requests to count the label changes.
+     */
+    private final int[] labels;
+
+    /**
+     * The labels before the last assignment, in case the coordinator resends it.
+     */
+    private final int[] previousLabels;
+    private final double[] distances;
+    private int lastIteration = -1;
+
+    /**
+     * The centroids the labels were assigned to, null until the first assignment.
+     */
+    private double[] assigned;
+
+    /**
+     * @param dataset  the shard
+     * @param distance to calculate the distance between two items, the same as the coordinator's
+     * @param engine   runs the assignments
+     * @param port     local port to listen to, 0 for any free port
+     * @throws IOException if the port can't be listened to
+     */
+    public ShardWorker(Dataset dataset, Distance distance, AssignmentEngine engine, int port) throws IOException
+    {
+        if (dataset == null || distance == null || engine == null)
+            throw new IllegalArgumentException("Dataset, distance and engine are required");
+
+        this.dataset = dataset;
+        this.distance = distance;
+        this.engine = engine;
+        this.labels = new int[dataset.size()];
+        this.previousLabels = new int[dataset.size()];
+        this.distances = new double[dataset.size()];
+        Arrays.fill(labels, -1);
+        this.server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort()
+    {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Serves coordinators, one after the other, until {@link #close()} is called.
+     *
+     * @throws IOException if the socket fails for another reason than being closed
+     */
+    public void serve() throws IOException
+    {
+        while (!server.isClosed())
+        {
+            try (Socket socket = server.accept())
+            {
+                socket.setTcpNoDelay(true);
+                handle(socket);
+            }
+            catch (IOException e)
+            {
+                // the coordinator went away or sent garbage, so wait for the next one
+                if (server.isClosed())
+                    return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        server.close();
+    }
+
+    private void handle(Socket socket) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        while (true)
+        {
+            int request = in.readInt();
+            switch (request)
+            {
+                case HELLO -> hello(out);
+                case SAMPLE -> sample(in, out);
+                case ASSIGN -> assign(in, out);
+                case LABELS -> labels(in, out);
+                case BYE ->
+                {
+                    return;
+                }
+                default -> throw new IOException("Unknown request " + request);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Replies the distance class, the column names and the number of rows.
+     */
+    private void hello(DataOutputStream out) throws IOException
+    {
+        out.writeUTF(distance.getClass().getName());
+        out.writeInt(dataset.dimensions());
+        for (String name : dataset.schema().names())
+            out.writeUTF(name);
+        out.writeInt(dataset.size());
+    }
+
+    /**
+     * Replies uniformly drawn rows, to choose the initial centroids from.
+     */
+    private void sample(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        int rows = Math.min(in.readInt(), dataset.size());
+        SplittableRandom random = new SplittableRandom(in.readLong());
+        out.writeInt(rows);
+        for (int i = 0; i < rows; i++)
+        {
+            int row = random.nextInt(dataset.size());
+            for (int column = 0; column < dataset.dimensions(); column++)
+                out.writeDouble(dataset.get(row, column));
+        }
+    }
+
+    /**
+     * Assigns every row to the received centroids, then replies the number of label changes, the
+     * inertia and the sum and count of the rows of every cluster. An iteration received twice is
+     * assigned again from the labels of the previous one, so the reply is the same.
+     */
+    private void assign(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        int iteration = in.readInt();
+        if (iteration == lastIteration)
+            System.arraycopy(previousLabels, 0, labels, 0, labels.length);
+        else
+            System.arraycopy(labels, 0, previousLabels, 0, labels.length);
+        lastIteration = iteration;
+
+        double[] centroids = readCentroids(in);
+        int k = centroids.length / dataset.dimensions();
+        int changes = assign(centroids);
+
+        // the sums of every cluster, followed by the number of rows of every cluster, merged in a
+        // fixed order so that the reply doesn't depend on the threads
+        int d = dataset.dimensions();
+        double[] partials = engine.reduceChunks(labels.length, d, (from, to) -> {
+            double[] partial = new double[k * d + k];
+            for (int row = from; row < to; row++)
+            {
+                dataset.accumulate(row, partial, labels[row] * d);
+                partial[k * d + labels[row]]++;
+            }
+            return partial;
+        }, (left, right) -> {
+            for (int i = 0; i < left.length; i++)
+                left[i] += right[i];
+            return left;
+        });
+
+        out.writeInt(changes);
+        out.writeDouble(KMeans.inertia(distances, distance));
+        for (int i = 0; i < k; i++)
+            out.writeLong((long) partials[k * d + i]);
+        for (int i = 0; i < k * d; i++)
+            out.writeDouble(partials[i]);
+    }
+
+    /**
+     * Replies the description and the cluster of every row, assigned to the received centroids.
+     * They are the ones of the last assignment unless this worker was restarted since, in which
+     * case the rows are assigned again.
+     */
+    private void labels(DataInputStream in, DataOutputStream out) throws IOException
+    {
+        double[] centroids = readCentroids(in);
+        if (!Arrays.equals(centroids, assigned))
+            assign(centroids);
+
+        out.writeInt(labels.length);
+        for (int row = 0; row < labels.length; row++)
+        {
+            String description = dataset.description(row);
+            out.writeUTF(description == null ? "" : description);
+            out.writeInt(labels[row]);
+        }
+    }
+
+    /**
+     * Reads the number of clusters, then the row-major centroid coordinates.
+     */
+    private double[] readCentroids(DataInputStream in) throws IOException
+    {
+        int k = in.readInt();
+        if (k <= 0 || (long) k * dataset.dimensions() > Integer.MAX_VALUE - 8)
+            throw new IOException("Invalid number of clusters " + k);
+
+        double[] centroids = new double[k * dataset.dimensions()];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = in.readDouble();
+        return centroids;
+    }
+
+    /**
+     * Assigns every row to its nearest centroid and keeps its distance to it.
+     *
+     * @return number of rows whose label changed
+     */
+    private int assign(double[] centroids)
+    {
+        int k = centroids.length / dataset.dimensions();
+        int changes = engine.assign(dataset, CentroidIndex.build(centroids, k, distance), labels, distances);
+        assigned = centroids;
+        return changes;
+    }
+
+    public static void main(String[] args)
+    {
+        Map<String, String> options;
+        Path input;
+        int port;
+        int threads;
+        Distance distance;
+        try
+        {
+            options = BatchRunner.parse(args);
+            input = Path.of(BatchRunner.required(options, "input"));
+            port = Integer.parseInt(BatchRunner.required(options, "port"));
+            threads = Integer.parseInt(options.getOrDefault("threads",
+                    Integer.toString(Runtime.getRuntime().availableProcessors())));
+            distance = Distances.byName(options.getOrDefault("metric", "euclidean"));
+            if (!distance.isMeanRelocation())
+                throw new IllegalArgumentException("The coordinator only averages the rows, which --metric "
+                        + options.get("metric") + " doesn't allow");
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: ShardWorker --input <shard file> --port <port>"
+                    + " [--metric euclidean|squaredEuclidean|manhattan|cosine] [--threads <threads>]");
+            System.err.println("The haversine and fastHaversine metrics need spherical centroids, which only a"
+                    + " single process computes, see BatchRunner --input");
+            System.exit(2);
+            return;
+        }
+
+        try (AssignmentEngine engine = new AssignmentEngine(threads);
+             ShardWorker worker = new ShardWorker(KMeans.loadDataset(input, threads), distance, engine, port))
+        {
+            System.out.println("Serving " + input + " on port " + worker.getPort());
+            worker.serve();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Worker failed : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
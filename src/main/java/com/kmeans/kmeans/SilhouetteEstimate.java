@@ -0,0 +1,64 @@
+package com.kmeans.kmeans;
+
+/**
+ * Mean silhouette estimated from a uniform sample of rows, with a 95% confidence interval.
+ */
+public class SilhouetteEstimate
+{
+    private final double mean;
+
+    private final double lowerBound;
+
+    private final double upperBound;
+
+    private final int sampleSize;
+
+    public SilhouetteEstimate(double mean, double lowerBound, double upperBound, int sampleSize)
+    {
+        if (!(lowerBound <= mean && mean <= upperBound))
+            throw new IllegalArgumentException("The mean should be within its bounds");
+
+        this.mean = mean;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * @return the mean silhouette of the sampled rows
+     */
+    public double getMean()
+    {
+        return mean;
+    }
+
+    /**
+     * @return lower bound of the 95% confidence interval of the mean silhouette of all rows
+     */
+    public double getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * @return upper bound of the 95% confidence interval of the mean silhouette of all rows
+     */
+    public double getUpperBound()
+    {
+        return upperBound;
+    }
+
+    /**
+     * @return number of sampled rows
+     */
+    public int getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%.4f [%.4f, %.4f] (%d rows)", mean, lowerBound, upperBound, sampleSize);
+    }
+}
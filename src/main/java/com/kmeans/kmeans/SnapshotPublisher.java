@@ -0,0 +1,104 @@
+package com.kmeans.kmeans;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the progress of a clustering run to another thread, e.g. a UI thread, at most once
+ * per interval. The run never waits for the consumer: a snapshot is only taken when a frame is
+ * due and none is pending delivery, and a snapshot that the consumer hasn't taken yet is replaced
+ * by a newer one. Intermediate iterations are thus dropped when the consumer is slower than the
+ * run, while the last {@link #publish published} snapshot is always delivered.
+ */
+public final class SnapshotPublisher implements ClusteringListener
+{
+    private final long intervalNanos;
+
+    private final Executor delivery;
+
+    private final Consumer<ClusteringSnapshot> consumer;
+
+    /**
+     * The newest snapshot the consumer hasn't taken yet.
+     */
+    private final AtomicReference<ClusteringSnapshot> latest = new AtomicReference<>();
+
+    /**
+     * Whether a delivery is queued on the executor and hasn't run yet.
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private volatile long lastPublication;
+
+    /**
+     * @param intervalNanos minimum time between two snapshots taken during a run
+     * @param delivery      runs the consumer, e.g. {@code Platform::runLater}
+     * @param consumer      receives the snapshots, on the threads of the executor
+     */
+    public SnapshotPublisher(long intervalNanos, Executor delivery, Consumer<ClusteringSnapshot> consumer)
+    {
+        if (intervalNanos < 0)
+            throw new IllegalArgumentException("The interval shouldn't be negative");
+
+        if (delivery == null || consumer == null)
+            throw new IllegalArgumentException("The executor and the consumer are required");
+
+        this.intervalNanos = intervalNanos;
+        this.delivery = delivery;
+        this.consumer = consumer;
+        this.lastPublication = System.nanoTime() - intervalNanos;
+    }
+
+    @Override
+    public boolean onIteration(IterationMetrics metrics)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean measuresAllocations()
+    {
+        return false;
+    }
+
+    /**
+     * Takes and publishes a snapshot when the interval has elapsed since the previous one and
+     * the consumer took it.
+     */
+    @Override
+    public boolean onIteration(IterationMetrics metrics, Supplier<ClusteringSnapshot> snapshot)
+    {
+        if (!pending.get() && System.nanoTime() - lastPublication >= intervalNanos)
+            publish(snapshot.get());
+        return true;
+    }
+
+    /**
+     * Publishes a snapshot whatever the interval, e.g. the final state of a run. It replaces any
+     * snapshot the consumer hasn't taken yet.
+     *
+     * @param snapshot the snapshot
+     */
+    public void publish(ClusteringSnapshot snapshot)
+    {
+        if (snapshot == null)
+            throw new IllegalArgumentException("The snapshot is required");
+
+        lastPublication = System.nanoTime();
+        latest.set(snapshot);
+        if (pending.compareAndSet(false, true))
+            delivery.execute(this::deliver);
+    }
+
+    private void deliver()
+    {
+        // cleared first, so that a snapshot published meanwhile schedules another delivery
+        pending.set(false);
+        ClusteringSnapshot snapshot = latest.getAndSet(null);
+        if (snapshot != null)
+            consumer.accept(snapshot);
+    }
+}
@@ -0,0 +1,298 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link Dataset} of mostly zero features, e.g. term frequencies, in compressed sparse row
+ * layout: the non-zero values of row {@code i} and their columns are stored in
+ * {@code [rowPointers[i], rowPointers[i + 1])}, by increasing column. Memory, distances and
+ * centroid updates cost time proportional to the non-zero features instead of the
+ * dimensionality, provided the distance has a
+ * {@link Distance#sparseRankingDistance sparse kernel} and the caller passes the precomputed
+ * {@link Distance#centroidNorm centroid norms}. Without them, every distance also pays for the
+ * norm of the centroid.
+ */
+public final class SparseDataset implements Dataset
+{
+    private final Schema schema;
+
+    /**
+     * Row descriptions, e.g. the identifiers of the dataset file.
+     */
+    private final String[] descriptions;
+
+    /**
+     * Non-zero values of all rows, row after row.
+     */
+    private final double[] values;
+
+    /**
+     * Column of every non-zero value.
+     */
+    private final int[] columns;
+
+    /**
+     * n + 1 offsets of the first non-zero value of every row in {@link #values}.
+     */
+    private final int[] rowPointers;
+
+    private final int dimensions;
+
+    /**
+     * @param schema       the attribute names and their column indexes
+     * @param descriptions row descriptions
+     * @param values       non-zero values of all rows, row after row
+     * @param columns      column of every non-zero value, increasing within a row
+     * @param rowPointers  n + 1 offsets of the first non-zero value of every row, then the total
+     */
+    public SparseDataset(Schema schema, String[] descriptions, double[] values, int[] columns, int[] rowPointers)
+    {
+        if (schema == null || descriptions == null || values == null || columns == null || rowPointers == null)
+            throw new IllegalArgumentException("Schema, descriptions, values, columns and row pointers are required");
+
+        int n = descriptions.length;
+        if (rowPointers.length != n + 1 || rowPointers[0] != 0 || rowPointers[n] > values.length
+                || rowPointers[n] > columns.length)
+            throw new IllegalArgumentException("Expected " + (n + 1) + " row pointers within the "
+                    + values.length + " values");
+
+        for (int row = 0; row < n; row++)
+        {
+            if (rowPointers[row] > rowPointers[row + 1])
+                throw new IllegalArgumentException("Row " + row + " ends before it starts");
+
+            for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++)
+            {
+                if (columns[i] < 0 || columns[i] >= schema.dimensions()
+                        || (i > rowPointers[row] && columns[i] <= columns[i - 1]))
+                    throw new IllegalArgumentException("Row " + row + " has invalid or unordered columns");
+            }
+        }
+
+        this.schema = schema;
+        this.descriptions = descriptions;
+        this.values = values;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.dimensions = schema.dimensions();
+    }
+
+    /**
+     * Copies the non-zero features of another dataset.
+     *
+     * @param dataset the dataset
+     * @return the sparse copy
+     */
+    public static SparseDataset copyOf(Dataset dataset)
+    {
+        if (dataset == null)
+            throw new IllegalArgumentException("The dataset is required");
+
+        int n = dataset.size();
+        int d = dataset.dimensions();
+        String[] descriptions = new String[n];
+        int[] rowPointers = new int[n + 1];
+        double[] values = new double[Math.max(16, n)];
+        int[] columns = new int[values.length];
+        int count = 0;
+        for (int row = 0; row < n; row++)
+        {
+            descriptions[row] = dataset.description(row);
+            for (int column = 0; column < d; column++)
+            {
+                double value = dataset.get(row, column);
+                if (value == 0)
+                    continue;
+
+                if (count == values.length)
+                {
+                    values = Arrays.copyOf(values, grow(count));
+                    columns = Arrays.copyOf(columns, values.length);
+                }
+                values[count] = value;
+                columns[count++] = column;
+            }
+            rowPointers[row + 1] = count;
+        }
+        return new SparseDataset(dataset.schema(), descriptions, values, columns, rowPointers);
+    }
+
+    /**
+     * Loads a sparse dataset file. The header is the one of a dense dataset file, and every row
+     * is its description followed by its non-zero features as {@code column:value} pairs, the
+     * columns being zero-based indexes in the header, e.g.
+     * <pre>
+     * id;the;cat;sat
+     * doc1;0:0.5;2:1.25
+     * doc2;1:2
+     * </pre>
+     *
+     * @param file the dataset file
+     * @return the dataset
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public static SparseDataset load(Path file) throws IOException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            String header = reader.readLine();
+            if (header == null)
+                throw new IOException("The dataset " + file + " is empty");
+
+            Schema schema = Schema.fromHeaders(KMeans.getHeaders(header.strip()));
+            List<String> descriptions = new ArrayList<>();
+            List<Integer> rowPointers = new ArrayList<>();
+            double[] values = new double[1024];
+            int[] columns = new int[values.length];
+            int count = 0;
+            rowPointers.add(0);
+
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.isBlank())
+                    continue;
+
+                int row = descriptions.size();
+                String[] fields = line.strip().split(";");
+                descriptions.add(fields[0]);
+                int previous = -1;
+                for (int i = 1; i < fields.length; i++)
+                {
+                    int colon = fields[i].indexOf(':');
+                    int column;
+                    double value;
+                    try
+                    {
+                        column = Integer.parseInt(fields[i].substring(0, Math.max(0, colon)).strip());
+                        value = Double.parseDouble(fields[i].substring(colon + 1).strip());
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new IOException("Row " + (row + 1) + " has an invalid feature '" + fields[i] + "'", e);
+                    }
+
+                    if (column <= previous || column >= schema.dimensions())
+                        throw new IOException("Row " + (row + 1) + " has an invalid or unordered column " + column);
+                    previous = column;
+                    if (value == 0)
+                        continue;
+
+                    if (count == values.length)
+                    {
+                        values = Arrays.copyOf(values, grow(count));
+                        columns = Arrays.copyOf(columns, values.length);
+                    }
+                    values[count] = value;
+                    columns[count++] = column;
+                }
+                rowPointers.add(count);
+            }
+
+            int[] pointers = new int[rowPointers.size()];
+            for (int i = 0; i < pointers.length; i++)
+                pointers[i] = rowPointers.get(i);
+            return new SparseDataset(schema, descriptions.toArray(new String[0]), values, columns, pointers);
+        }
+    }
+
+    private static int grow(int length)
+    {
+        if (length >= Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many non-zero features for a sparse dataset");
+        return (int) Math.min(Integer.MAX_VALUE - 8, length * 2L);
+    }
+
+    @Override
+    public Schema schema()
+    {
+        return schema;
+    }
+
+    @Override
+    public int size()
+    {
+        return descriptions.length;
+    }
+
+    @Override
+    public int dimensions()
+    {
+        return dimensions;
+    }
+
+    @Override
+    public String description(int row)
+    {
+        return descriptions[row];
+    }
+
+    /**
+     * Binary search among the non-zero features of the row.
+     */
+    @Override
+    public double get(int row, int column)
+    {
+        int index = Arrays.binarySearch(columns, rowPointers[row], rowPointers[row + 1], column);
+        return index < 0 ? 0 : values[index];
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return distance(row, centroids, offset, distance.centroidNorm(centroids, offset, dimensions), distance);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, Distance distance)
+    {
+        return rankingDistance(row, centroids, offset, distance.centroidNorm(centroids, offset, dimensions), distance);
+    }
+
+    @Override
+    public double rankingDistance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+    {
+        return distance.sparseRankingDistance(values, columns, rowPointers[row], rowPointers[row + 1], centroids,
+                offset, centroidNorm);
+    }
+
+    @Override
+    public double distance(int row, double[] centroids, int offset, double centroidNorm, Distance distance)
+    {
+        return distance.fromRankingDistance(rankingDistance(row, centroids, offset, centroidNorm, distance));
+    }
+
+    /**
+     * Scatter-adds the non-zero features of the row, the others adding nothing.
+     */
+    @Override
+    public void accumulate(int row, double[] sums, int offset)
+    {
+        for (int i = rowPointers[row]; i < rowPointers[row + 1]; i++)
+            sums[offset + columns[i]] += values[i];
+    }
+
+    /**
+     * @return number of non-zero features of all rows
+     */
+    public int nonZeros()
+    {
+        return rowPointers[descriptions.length];
+    }
+
+    /**
+     * @param row row index
+     * @return number of non-zero features of the row
+     */
+    public int nonZeros(int row)
+    {
+        return rowPointers[row + 1] - rowPointers[row];
+    }
+}
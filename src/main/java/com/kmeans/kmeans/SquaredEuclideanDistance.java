@@ -0,0 +1,73 @@
+package com.kmeans.kmeans;
+
+import java.util.Map;
+
+/**
+ * Calculates the squared Euclidean distance between two items. It ranks items exactly
+ * like {@link EuclideanDistance} without paying for the square root, and its sum over a
+ * cluster is the usual K-Means inertia. It is not a metric, since it breaks the
+ * triangle inequality.
+ */
+public class SquaredEuclideanDistance implements Distance
+{
+    private final DistanceKernels kernels = DistanceKernels.get();
+
+    @Override
+    public double calculate(Map<String, Double> f1, Map<String, Double> f2)
+    {
+        if (f1 == null || f2 == null)
+            throw new IllegalArgumentException("Feature vectors can't be null");
+
+        double sum = 0;
+        for (Map.Entry<String, Double> entry : f1.entrySet())
+        {
+            Double v1 = entry.getValue();
+            Double v2 = f2.get(entry.getKey());
+
+            if (v1 != null && v2 != null)
+                sum += (v1 - v2) * (v1 - v2);
+        }
+
+        return sum;
+    }
+
+    @Override
+    public double calculate(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.squaredEuclidean(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        return kernels.squaredEuclidean(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double calculate(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        return kernels.squaredEuclidean(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * The distance is already squared.
+     */
+    @Override
+    public double squaredError(double distance)
+    {
+        return distance;
+    }
+
+    @Override
+    public double centroidNorm(double[] centroids, int offset, int length)
+    {
+        return ScalarDistanceKernels.squaredNorm(centroids, offset, length);
+    }
+
+    @Override
+    public double sparseRankingDistance(double[] values, int[] columns, int from, int to, double[] centroids,
+                                        int offset, double centroidNorm)
+    {
+        return ScalarDistanceKernels.sparseSquaredEuclidean(values, columns, from, to, centroids, offset, centroidNorm);
+    }
+}
@@ -0,0 +1,112 @@
+package com.kmeans.kmeans;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * K-Means over a dataset file that is never loaded as a whole. Every iteration re-scans the file
+ * in bounded batches: each batch is assigned to the current centroids, then added to per-cluster
+ * sums, so memory usage only depends on the batch size and the number of clusters.
+ * <p>
+ * Since no label is kept between two scans, the algorithm terminates once the centroids stop
+ * moving, which happens exactly when the assignment stops changing.
+ */
+public final class StreamingKMeans
+{
+    private StreamingKMeans()
+    {
+    }
+
+    /**
+     * Performs the K-Means clustering algorithm on the given dataset file.
+     *
+     * @param file          The semicolon-separated dataset file.
+     * @param centroids     The initial centroids, one per cluster.
+     * @param distance      To calculate the distance between two items.
+     * @param maxIterations Upper bound for the number of iterations, i.e. file scans.
+     * @param batchRows     Number of rows read at once.
+     * @param engine        Runs the assignment step, possibly in parallel.
+     * @return the final centroids
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public static KMeansModel runClustering(Path file, List<Centroid> centroids, Distance distance,
+                                            int maxIterations, int batchRows, AssignmentEngine engine) throws IOException
+    {
+        if (centroids == null || centroids.size() <= 1)
+            throw new IllegalArgumentException("It doesn't make sense to have less than or equal to 1 cluster");
+
+        if (distance == null)
+            throw new IllegalArgumentException("The distance calculator is required");
+
+        if (!distance.isMeanRelocation())
+            throw new IllegalArgumentException(distance.getClass().getSimpleName()
+                    + " doesn't relocate the centroids to the mean of their rows");
+
+        if (maxIterations <= 0)
+            throw new IllegalArgumentException("Max iterations should be a positive number");
+
+        if (engine == null)
+            throw new IllegalArgumentException("The assignment engine is required");
+
+        Schema schema = centroids.get(0).schema();
+        int k = centroids.size();
+        int d = schema.dimensions();
+        double[] coordinates = KMeans.toBuffer(centroids, d);
+        double[] sums = new double[k * d];
+        long[] counts = new long[k];
+        int[] labels = new int[batchRows];
+
+        for (int round = 0; round < maxIterations; round++)
+        {
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            long rows = 0;
+
+            try (CsvBatchReader reader = new CsvBatchReader(file, batchRows))
+            {
+                if (!schema.equals(reader.schema()))
+                    throw new IllegalArgumentException("The centroids don't match the dataset schema");
+
+                Dataset batch;
+                while ((batch = reader.next()) != null)
+                {
+                    // 1ST STEP : find the nearest centroid of every row of the batch, the last one may be shorter
+                    int[] batchLabels = batch.size() == labels.length ? labels : new int[batch.size()];
+                    engine.assign(batch, coordinates, k, distance, batchLabels);
+
+                    // 2ND STEP : add the rows to the sums of their clusters
+                    for (int row = 0; row < batch.size(); row++)
+                    {
+                        batch.accumulate(row, sums, batchLabels[row] * d);
+                        counts[batchLabels[row]]++;
+                    }
+                    rows += batch.size();
+                }
+            }
+
+            if (rows == 0)
+                throw new IllegalArgumentException("The dataset can't be empty");
+
+            // if no centroid moves, the next assignment would be the same, so the algorithm terminates
+            boolean moved = false;
+            for (int i = 0; i < k; i++)
+            {
+                if (counts[i] == 0)
+                    continue;
+
+                for (int column = i * d; column < (i + 1) * d; column++)
+                {
+                    double average = sums[column] / counts[i];
+                    moved |= average != coordinates[column];
+                    coordinates[column] = average;
+                }
+            }
+
+            if (!moved)
+                return new KMeansModel(schema, coordinates, round + 1, distance);
+        }
+        return new KMeansModel(schema, coordinates, maxIterations, distance);
+    }
+}
@@ -0,0 +1,270 @@
+package com.kmeans.kmeans;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD {@link DistanceKernels} built on the incubating Vector API. Each kernel runs over
+ * the widest lanes of the platform, then finishes the remaining tail with scalar code.
+ * Only instantiated by {@link DistanceKernels#get()} when the module is present.
+ */
+class VectorDistanceKernels implements DistanceKernels
+{
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Floats of half the preferred width, i.e. as many lanes as {@link #DOUBLES}, widened to
+     * doubles by the mixed-precision kernels.
+     */
+    private static final VectorSpecies<Float> HALF_FLOATS =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    @Override
+    public double squaredEuclidean(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+        {
+            DoubleVector diff = DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                    .sub(DoubleVector.fromArray(DOUBLES, b, bOffset + i));
+            acc = diff.fma(diff, acc);
+        }
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+        {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length())
+        {
+            FloatVector diff = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .sub(FloatVector.fromArray(FLOATS, b, bOffset + i));
+            acc = diff.fma(diff, acc);
+        }
+
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+        {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public double squaredEuclidean(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+        {
+            DoubleVector diff = widen(a, aOffset + i).sub(DoubleVector.fromArray(DOUBLES, b, bOffset + i));
+            acc = diff.fma(diff, acc);
+        }
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+        {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public double manhattan(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+        {
+            acc = acc.add(DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                    .sub(DoubleVector.fromArray(DOUBLES, b, bOffset + i))
+                    .abs());
+        }
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        return sum;
+    }
+
+    @Override
+    public double manhattan(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length())
+        {
+            acc = acc.add(FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .sub(FloatVector.fromArray(FLOATS, b, bOffset + i))
+                    .abs());
+        }
+
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        return sum;
+    }
+
+    @Override
+    public double manhattan(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+            acc = acc.add(widen(a, aOffset + i).sub(DoubleVector.fromArray(DOUBLES, b, bOffset + i)).abs());
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+        return sum;
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+        {
+            acc = DoubleVector.fromArray(DOUBLES, a, aOffset + i)
+                    .fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i), acc);
+        }
+
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    @Override
+    public double dot(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length())
+        {
+            acc = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .fma(FloatVector.fromArray(FLOATS, b, bOffset + i), acc);
+        }
+
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    @Override
+    public double cosine(double[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector dot = DoubleVector.zero(DOUBLES);
+        DoubleVector normA = DoubleVector.zero(DOUBLES);
+        DoubleVector normB = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+        {
+            DoubleVector x = DoubleVector.fromArray(DOUBLES, a, aOffset + i);
+            DoubleVector y = DoubleVector.fromArray(DOUBLES, b, bOffset + i);
+            dot = x.fma(y, dot);
+            normA = x.fma(x, normA);
+            normB = y.fma(y, normB);
+        }
+
+        double sumDot = dot.reduceLanes(VectorOperators.ADD);
+        double sumA = normA.reduceLanes(VectorOperators.ADD);
+        double sumB = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+        {
+            double x = a[aOffset + i];
+            double y = b[bOffset + i];
+            sumDot += x * y;
+            sumA += x * x;
+            sumB += y * y;
+        }
+        return ScalarDistanceKernels.cosineDistance(sumDot, sumA, sumB);
+    }
+
+    @Override
+    public double cosine(float[] a, int aOffset, float[] b, int bOffset, int length)
+    {
+        FloatVector dot = FloatVector.zero(FLOATS);
+        FloatVector normA = FloatVector.zero(FLOATS);
+        FloatVector normB = FloatVector.zero(FLOATS);
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length())
+        {
+            FloatVector x = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            dot = x.fma(y, dot);
+            normA = x.fma(x, normA);
+            normB = y.fma(y, normB);
+        }
+
+        float sumDot = dot.reduceLanes(VectorOperators.ADD);
+        float sumA = normA.reduceLanes(VectorOperators.ADD);
+        float sumB = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+        {
+            float x = a[aOffset + i];
+            float y = b[bOffset + i];
+            sumDot += x * y;
+            sumA += x * x;
+            sumB += y * y;
+        }
+        return ScalarDistanceKernels.cosineDistance(sumDot, sumA, sumB);
+    }
+
+    @Override
+    public double cosine(float[] a, int aOffset, double[] b, int bOffset, int length)
+    {
+        DoubleVector dot = DoubleVector.zero(DOUBLES);
+        DoubleVector normA = DoubleVector.zero(DOUBLES);
+        DoubleVector normB = DoubleVector.zero(DOUBLES);
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(length); i < bound; i += DOUBLES.length())
+        {
+            DoubleVector x = widen(a, aOffset + i);
+            DoubleVector y = DoubleVector.fromArray(DOUBLES, b, bOffset + i);
+            dot = x.fma(y, dot);
+            normA = x.fma(x, normA);
+            normB = y.fma(y, normB);
+        }
+
+        double sumDot = dot.reduceLanes(VectorOperators.ADD);
+        double sumA = normA.reduceLanes(VectorOperators.ADD);
+        double sumB = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+        {
+            double x = a[aOffset + i];
+            double y = b[bOffset + i];
+            sumDot += x * y;
+            sumA += x * x;
+            sumB += y * y;
+        }
+        return ScalarDistanceKernels.cosineDistance(sumDot, sumA, sumB);
+    }
+
+    /**
+     * @return as many floats as {@link #DOUBLES} has lanes, widened to doubles
+     */
+    private static DoubleVector widen(float[] a, int offset)
+    {
+        return (DoubleVector) FloatVector.fromArray(HALF_FLOATS, a, offset).convertShape(VectorOperators.F2D, DOUBLES, 0);
+    }
+}
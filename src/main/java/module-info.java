@@ -4,6 +4,9 @@ module com.kmeans.kmeans {
 
     requires org.controlsfx.controls;
     requires java.desktop;
+    requires jdk.jfr;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
 
     opens com.kmeans.kmeans to javafx.fxml;
     exports com.kmeans.kmeans;
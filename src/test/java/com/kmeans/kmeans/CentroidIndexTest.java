@@ -0,0 +1,119 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CentroidIndexTest
+{
+    private static final int D = 3;
+
+    @Test
+    void treeFindsTheSameCentroidsAsALinearScan()
+    {
+        // integer centroids, some of them duplicated, and rows halfway between them, so that many
+        // rows are exactly as near to several centroids
+        int k = 4 * CentroidIndex.MIN_TREE_CLUSTERS;
+        Random random = new Random(1);
+        double[] centroids = new double[k * D];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = random.nextInt(10);
+        for (int duplicate = k - 20; duplicate < k; duplicate++)
+            System.arraycopy(centroids, random.nextInt(k - 20) * D, centroids, duplicate * D, D);
+
+        double[] values = new double[20_000 * D];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextInt(21) * 0.5 - 0.5 + (i % 7 == 0 ? random.nextGaussian() : 0);
+        Dataset dataset = dataset(values);
+
+        for (Distance distance : new Distance[]{new EuclideanDistance(), new ManhattanDistance()})
+        {
+            CentroidIndex index = CentroidIndex.build(centroids, k, distance);
+            assertTrue(index.isTree());
+            assertSameAsLinearScan(dataset, centroids, k, distance, index);
+        }
+    }
+
+    @Test
+    void fallsBackToALinearScan()
+    {
+        assertFalse(CentroidIndex.build(new double[(CentroidIndex.MIN_TREE_CLUSTERS - 1) * D],
+                CentroidIndex.MIN_TREE_CLUSTERS - 1, new EuclideanDistance()).isTree());
+        assertFalse(CentroidIndex.build(new double[CentroidIndex.MIN_TREE_CLUSTERS * D],
+                CentroidIndex.MIN_TREE_CLUSTERS, new SquaredEuclideanDistance()).isTree());
+    }
+
+    @Test
+    void rebuildDropsATreeThatDoesntPrune()
+    {
+        // in many dimensions, the balls of uniformly drawn centroids overlap every row
+        int k = CentroidIndex.MIN_TREE_CLUSTERS;
+        int d = 64;
+        Random random = new Random(2);
+        double[] centroids = new double[k * d];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = random.nextDouble();
+        double[] values = new double[2_000 * d];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextDouble();
+        Dataset dataset = new DenseDataset(TestData.schema(d), new String[values.length / d], values);
+        Distance distance = new EuclideanDistance();
+
+        CentroidIndex index = CentroidIndex.build(centroids, k, distance);
+        assertTrue(index.isTree());
+        assertSameAsLinearScan(dataset, centroids, k, distance, index);
+
+        double[] relocated = centroids.clone();
+        relocated[0] += 0.01;
+        CentroidIndex rebuilt = index.rebuild(relocated);
+        assertFalse(rebuilt.isTree());
+        assertSameAsLinearScan(dataset, relocated, k, distance, rebuilt);
+        assertFalse(rebuilt.rebuild(centroids).isTree());
+    }
+
+    @Test
+    void rebuildKeepsATreeThatPrunes()
+    {
+        int k = 4 * CentroidIndex.MIN_TREE_CLUSTERS;
+        Random random = new Random(3);
+        double[] centroids = new double[k * D];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = random.nextDouble() * 100;
+        double[] values = new double[5_000 * D];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextDouble() * 100;
+        Dataset dataset = dataset(values);
+        Distance distance = new EuclideanDistance();
+
+        CentroidIndex index = CentroidIndex.build(centroids, k, distance);
+        assertSameAsLinearScan(dataset, centroids, k, distance, index);
+        assertTrue(index.getEvaluations() < (long) dataset.size() * k / 2);
+        assertTrue(index.rebuild(centroids.clone()).isTree());
+    }
+
+    private static void assertSameAsLinearScan(Dataset dataset, double[] centroids, int k, Distance distance,
+                                               CentroidIndex index)
+    {
+        int n = dataset.size();
+        int[] expectedLabels = new int[n];
+        double[] expectedDistances = new double[n];
+        int[] actualLabels = new int[n];
+        double[] actualDistances = new double[n];
+        try (AssignmentEngine engine = new AssignmentEngine(4))
+        {
+            engine.assign(dataset, centroids, k, distance, expectedLabels, expectedDistances);
+            engine.assign(dataset, index, actualLabels, actualDistances);
+        }
+        assertArrayEquals(expectedLabels, actualLabels, distance.getClass().getSimpleName() + " labels");
+        assertArrayEquals(expectedDistances, actualDistances);
+    }
+
+    private static Dataset dataset(double[] values)
+    {
+        return new DenseDataset(TestData.schema(D), new String[values.length / D], values);
+    }
+}
@@ -0,0 +1,100 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CentroidSeedingTest
+{
+    private static final int K = 12;
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    private final DenseDataset dataset = TestData.blobs(30_000, 6, K, 5, new Random(21));
+
+    private final Distance distance = new EuclideanDistance();
+
+    @Test
+    void kMeansPlusPlusDoesntDependOnTheNumberOfThreads() throws InterruptedException
+    {
+        assertSameCentroids(engine -> CentroidSeeding.kMeansPlusPlus(dataset, K, distance, 7, engine));
+    }
+
+    @Test
+    void kMeansParallelDoesntDependOnTheNumberOfThreads() throws InterruptedException
+    {
+        assertSameCentroids(engine -> CentroidSeeding.kMeansParallel(dataset, K, distance,
+                CentroidSeeding.DEFAULT_ROUNDS, 2 * K, 7, engine));
+    }
+
+    @Test
+    void drawsDistinctRowsOfTheDataset()
+    {
+        List<Centroid> centroids = CentroidSeeding.kMeansPlusPlus(dataset, K, distance, 8, AssignmentEngine.common());
+
+        Set<List<Double>> rows = new HashSet<>();
+        for (int row = 0; row < dataset.size(); row++)
+            rows.add(coordinates(dataset, row));
+        Set<List<Double>> chosen = new HashSet<>();
+        for (Centroid centroid : centroids)
+        {
+            List<Double> coordinates = Arrays.stream(centroid.coordinates()).boxed().toList();
+            assertTrue(rows.contains(coordinates), coordinates + " isn't a row of the dataset");
+            chosen.add(coordinates);
+        }
+        assertEquals(K, chosen.size());
+    }
+
+    @Test
+    void fallsBackToUniformDrawsWithFewerDistinctRowsThanClusters() throws InterruptedException
+    {
+        double[] values = new double[600];
+        String[] descriptions = new String[300];
+        for (int row = 0; row < 300; row++)
+        {
+            descriptions[row] = String.valueOf(row);
+            values[row * 2] = row % 3;
+            values[row * 2 + 1] = -(row % 3);
+        }
+        DenseDataset duplicates = new DenseDataset(TestData.schema(2), descriptions, values);
+
+        try (AssignmentEngine engine = new AssignmentEngine(4))
+        {
+            assertEquals(5, CentroidSeeding.kMeansPlusPlus(duplicates, 5, distance, 1, engine).size());
+            assertEquals(5, CentroidSeeding.kMeansParallel(duplicates, 5, distance, 3, 10, 1, engine).size());
+        }
+    }
+
+    private static void assertSameCentroids(Function<AssignmentEngine, List<Centroid>> seeding)
+            throws InterruptedException
+    {
+        List<Centroid> expected = null;
+        for (int threads : THREADS)
+        {
+            try (AssignmentEngine engine = new AssignmentEngine(threads))
+            {
+                List<Centroid> actual = seeding.apply(engine);
+                if (expected == null)
+                    expected = actual;
+                else
+                    assertEquals(expected, actual, threads + " threads");
+            }
+        }
+    }
+
+    private static List<Double> coordinates(Dataset dataset, int row)
+    {
+        Double[] coordinates = new Double[dataset.dimensions()];
+        for (int column = 0; column < coordinates.length; column++)
+            coordinates[column] = dataset.get(row, column);
+        return List.of(coordinates);
+    }
+}
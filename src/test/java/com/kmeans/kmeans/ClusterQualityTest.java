@@ -0,0 +1,96 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClusterQualityTest
+{
+    @Test
+    void scoresDontDependOnTheNumberOfThreads() throws InterruptedException
+    {
+        int n = 50_000;
+        Random random = new Random(1);
+        double[] values = new double[n * 2];
+        String[] descriptions = new String[n];
+        for (int row = 0; row < n; row++)
+        {
+            descriptions[row] = String.valueOf(row);
+            values[row * 2] = row % 5 * 4 + random.nextGaussian();
+            values[row * 2 + 1] = row % 3 * 4 + random.nextGaussian();
+        }
+        Dataset dataset = new DenseDataset(new Schema(List.of("x", "y")), descriptions, values);
+        Distance distance = new EuclideanDistance();
+        ClusteringResult result;
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            result = KMeans.runClustering(dataset, CentroidSeeding.kMeansPlusPlus(dataset, 15, distance, 2, engine),
+                    distance, 30, engine);
+        }
+
+        double silhouette;
+        double daviesBouldin;
+        double calinskiHarabasz;
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            silhouette = ClusterQuality.sampledSilhouette(result, distance, 200, 3, engine).getMean();
+            daviesBouldin = ClusterQuality.daviesBouldin(result, distance, engine);
+            calinskiHarabasz = ClusterQuality.calinskiHarabasz(result, distance, engine);
+        }
+
+        for (int threads : new int[]{2, 3, 8})
+        {
+            try (AssignmentEngine engine = new AssignmentEngine(threads))
+            {
+                assertEquals(silhouette, ClusterQuality.sampledSilhouette(result, distance, 200, 3, engine).getMean());
+                assertEquals(daviesBouldin, ClusterQuality.daviesBouldin(result, distance, engine));
+                assertEquals(calinskiHarabasz, ClusterQuality.calinskiHarabasz(result, distance, engine));
+            }
+        }
+    }
+
+    @Test
+    void exactSilhouetteMatchesItsDefinition()
+    {
+        double[] values = {0, 0, 0, 1, 1, 0, 10, 10, 10, 11, 30, 30};
+        Dataset dataset = new DenseDataset(new Schema(List.of("x", "y")),
+                new String[]{"a", "b", "c", "d", "e", "f"}, values);
+        int[] labels = {0, 0, 0, 1, 1, 2};
+        ClusteringResult result = new ClusteringResult(dataset, new double[]{1 / 3.0, 1 / 3.0, 10, 10.5, 30, 30},
+                labels, 1, 0);
+        Distance distance = new EuclideanDistance();
+
+        double total = 0;
+        for (int row = 0; row < labels.length; row++)
+        {
+            double[] sums = new double[3];
+            int[] sizes = {3, 2, 1};
+            for (int other = 0; other < labels.length; other++)
+            {
+                if (other != row)
+                    sums[labels[other]] += distance.calculate(values, row * 2, values, other * 2, 2);
+            }
+            if (sizes[labels[row]] == 1)
+                continue;
+
+            double own = sums[labels[row]] / (sizes[labels[row]] - 1);
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int cluster = 0; cluster < 3; cluster++)
+            {
+                if (cluster != labels[row])
+                    nearest = Math.min(nearest, sums[cluster] / sizes[cluster]);
+            }
+            total += (nearest - own) / Math.max(own, nearest);
+        }
+
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            assertEquals(total / labels.length, ClusterQuality.silhouette(result, distance, engine), 1e-12);
+            assertEquals(total / labels.length,
+                    ClusterQuality.sampledSilhouette(result, distance, labels.length, 1, engine).getMean(), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarFormatTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsADataset() throws IOException
+    {
+        DenseDataset dataset = dataset(1_000);
+        Path file = directory.resolve("dataset.kmds");
+        ColumnarFormat.write(dataset, file, false);
+
+        assertTrue(ColumnarFormat.isColumnar(file));
+        MappedColumnarDataset mapped = ColumnarFormat.open(file);
+        assertFalse(mapped.isSinglePrecision());
+        assertEquals(dataset.schema(), mapped.schema());
+        assertEquals(dataset.size(), mapped.size());
+        for (int row = 0; row < dataset.size(); row++)
+        {
+            assertEquals(dataset.description(row), mapped.description(row));
+            for (int column = 0; column < dataset.dimensions(); column++)
+                assertEquals(dataset.get(row, column), mapped.get(row, column));
+        }
+    }
+
+    @Test
+    void roundTripsASinglePrecisionDataset() throws IOException
+    {
+        DenseDataset dataset = dataset(100);
+        Path file = directory.resolve("dataset.kmds");
+        ColumnarFormat.write(dataset, file, true);
+
+        MappedColumnarDataset mapped = ColumnarFormat.open(file);
+        assertTrue(mapped.isSinglePrecision());
+        for (int row = 0; row < dataset.size(); row++)
+        {
+            for (int column = 0; column < dataset.dimensions(); column++)
+                assertEquals((float) dataset.get(row, column), mapped.get(row, column));
+        }
+    }
+
+    @Test
+    void roundTripsAnEmptyDataset() throws IOException
+    {
+        Path file = directory.resolve("dataset.kmds");
+        ColumnarFormat.write(dataset(0), file, false);
+
+        assertEquals(0, ColumnarFormat.open(file).size());
+    }
+
+    @Test
+    void convertsACsvFile() throws IOException
+    {
+        Path csv = directory.resolve("dataset.csv");
+        Files.writeString(csv, "id;x;y\na;1.5;-2\nb;3;4e2\n");
+        Path file = directory.resolve("dataset.kmds");
+        ColumnarFormat.convert(csv, file, false);
+
+        MappedColumnarDataset mapped = ColumnarFormat.open(file);
+        assertEquals(new Schema(List.of("x", "y")), mapped.schema());
+        assertEquals("b", mapped.description(1));
+        assertEquals(400.0, mapped.get(1, 1));
+    }
+
+    @Test
+    void rejectsCorruptHeaders() throws IOException
+    {
+        Path file = directory.resolve("dataset.kmds");
+        ColumnarFormat.write(dataset(10), file, false);
+        byte[] valid = Files.readAllBytes(file);
+
+        // magic, version, bytes per value, number of columns, number of rows, first name length
+        assertCorrupt(valid, 0, 0x12345678);
+        assertCorrupt(valid, 4, 2);
+        assertCorrupt(valid, 8, 3);
+        assertCorrupt(valid, 12, 0);
+        assertCorrupt(valid, 16, -1);
+        assertCorrupt(valid, 24, -5);
+        assertCorrupt(valid, 24, Integer.MAX_VALUE);
+
+        Path truncated = directory.resolve("truncated.kmds");
+        Files.write(truncated, Arrays.copyOf(valid, 20));
+        assertThrows(IOException.class, () -> ColumnarFormat.open(truncated));
+        Files.write(truncated, Arrays.copyOf(valid, valid.length / 2));
+        assertThrows(IOException.class, () -> ColumnarFormat.open(truncated));
+    }
+
+    @Test
+    void recognizesOnlyBinaryFiles() throws IOException
+    {
+        Path csv = directory.resolve("dataset.csv");
+        Files.writeString(csv, "id;x\n1;2\n");
+        assertFalse(ColumnarFormat.isColumnar(csv));
+        assertThrows(IOException.class, () -> ColumnarFormat.open(csv));
+    }
+
+    private void assertCorrupt(byte[] valid, int position, int value) throws IOException
+    {
+        byte[] corrupt = valid.clone();
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        Path file = directory.resolve("corrupt.kmds");
+        Files.write(file, corrupt);
+        assertThrows(IOException.class, () -> ColumnarFormat.open(file), "Corrupt int at " + position);
+    }
+
+    private static DenseDataset dataset(int rows)
+    {
+        String[] descriptions = new String[rows];
+        double[] values = new double[rows * 3];
+        for (int row = 0; row < rows; row++)
+        {
+            descriptions[row] = "row " + row + (row % 7 == 0 ? " é" : "");
+            for (int column = 0; column < 3; column++)
+                values[row * 3 + column] = Math.sin(row * 3 + column) * 1e3;
+        }
+        return new DenseDataset(new Schema(List.of("x", "y", "zé")), descriptions, values);
+    }
+}
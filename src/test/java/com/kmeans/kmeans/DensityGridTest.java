@@ -0,0 +1,95 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DensityGridTest
+{
+    @Test
+    void binsPointsIntoPixelsWithTheLowestYAtTheBottom()
+    {
+        DensityGrid grid = new DensityGrid(4, 2, 0, 4, 0, 2);
+
+        grid.add(0, 0, 0);
+        grid.add(0.5, 0.5, 0);
+        grid.add(3.9, 1.9, 1);
+        grid.add(4, 2, 1);
+
+        assertEquals(2, grid.getCount(0, 1));
+        assertEquals(2, grid.getCount(3, 0));
+        assertEquals(0, grid.getCount(0, 0));
+        assertEquals(2, grid.getMaxCount());
+        assertEquals(0, grid.getOutside());
+    }
+
+    @Test
+    void countsPointsOutsideTheBoundsSeparately()
+    {
+        DensityGrid grid = new DensityGrid(2, 2, 0, 1, 0, 1);
+
+        grid.add(-0.1, 0.5, 0);
+        grid.add(0.5, 1.1, 0);
+        grid.add(Double.NaN, 0.5, 0);
+
+        assertEquals(3, grid.getOutside());
+        assertEquals(0, grid.getMaxCount());
+        assertEquals(-1, grid.pixelX(-0.1));
+        assertEquals(-1, grid.pixelY(1.1));
+    }
+
+    @Test
+    void keepsTheMajorityClusterOfEveryPixel()
+    {
+        DensityGrid grid = new DensityGrid(1, 1, 0, 1, 0, 1);
+        for (int cluster : new int[]{2, 1, 2, 0, 2, 1, 2})
+            grid.add(0.5, 0.5, cluster);
+
+        assertEquals(7, grid.getCount(0, 0));
+        assertEquals(2, grid.getCluster(0, 0));
+    }
+
+    @Test
+    void emptyPixelsHaveNoCluster()
+    {
+        DensityGrid grid = new DensityGrid(2, 1, 0, 1, 0, 1);
+        grid.add(0, 0.5, 3);
+
+        assertEquals(3, grid.getCluster(0, 0));
+        assertEquals(-1, grid.getCluster(1, 0));
+    }
+
+    @Test
+    void degenerateRangesMapOntoTheMiddlePixel()
+    {
+        DensityGrid grid = new DensityGrid(5, 3, 1, 1, 2, 2);
+        grid.add(1, 2, 0);
+
+        assertEquals(1, grid.getCount(2, 1));
+    }
+
+    @Test
+    void binsEveryRowOfADataset()
+    {
+        Dataset dataset = new DenseDataset(new Schema(List.of("x", "y")), new String[]{"a", "b", "c", "d"},
+                new double[]{0, 0, 1, 1, 10, 10, 9, 9});
+        DensityGrid grid = DensityGrid.of(dataset, new int[]{0, 0, 1, 1}, 0, 1, 2, 2);
+
+        assertEquals(2, grid.getCount(0, 1));
+        assertEquals(0, grid.getCluster(0, 1));
+        assertEquals(2, grid.getCount(1, 0));
+        assertEquals(1, grid.getCluster(1, 0));
+        assertEquals(0, grid.getOutside());
+    }
+
+    @Test
+    void rejectsInvalidGrids()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new DensityGrid(0, 1, 0, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DensityGrid(1, 1, 1, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DensityGrid(1, 1, 0, 1, Double.NaN, 1));
+    }
+}
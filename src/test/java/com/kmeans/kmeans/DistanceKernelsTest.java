@@ -0,0 +1,144 @@
+package com.kmeans.kmeans;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DistanceKernelsTest
+{
+    /**
+     * The vectors start at these offsets, so that the loads aren't aligned on the buffers.
+     */
+    private static final int A_OFFSET = 3;
+
+    private static final int B_OFFSET = 5;
+
+    private static final double DOUBLE_EPSILON = 0x1.0p-52;
+
+    private static final double FLOAT_EPSILON = 0x1.0p-23;
+
+    private final DistanceKernels vector = new VectorDistanceKernels();
+
+    private final DistanceKernels scalar = new ScalarDistanceKernels();
+
+    /**
+     * Every length up to twice the float lanes, i.e. four times the double lanes, so that every
+     * kernel runs with no full vector, full vectors only, and every tail length.
+     */
+    static IntStream lengths()
+    {
+        int lanes = Math.max(FloatVector.SPECIES_PREFERRED.length(), DoubleVector.SPECIES_PREFERRED.length());
+        return IntStream.rangeClosed(1, 2 * lanes);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lengths")
+    void doublePrecisionMatchesTheScalarKernels(int length)
+    {
+        Random random = new Random(length);
+        double[] a = doubles(A_OFFSET + length, random);
+        double[] b = doubles(B_OFFSET + length, random);
+        double magnitude = magnitude(a, b, length);
+        double tolerance = 4 * length * DOUBLE_EPSILON * magnitude;
+
+        assertEquals(scalar.squaredEuclidean(a, A_OFFSET, b, B_OFFSET, length),
+                vector.squaredEuclidean(a, A_OFFSET, b, B_OFFSET, length), tolerance, "squaredEuclidean " + length);
+        assertEquals(scalar.manhattan(a, A_OFFSET, b, B_OFFSET, length),
+                vector.manhattan(a, A_OFFSET, b, B_OFFSET, length), tolerance, "manhattan " + length);
+        assertEquals(scalar.dot(a, A_OFFSET, b, B_OFFSET, length),
+                vector.dot(a, A_OFFSET, b, B_OFFSET, length), tolerance, "dot " + length);
+        assertEquals(scalar.cosine(a, A_OFFSET, b, B_OFFSET, length),
+                vector.cosine(a, A_OFFSET, b, B_OFFSET, length), 8 * length * DOUBLE_EPSILON, "cosine " + length);
+    }
+
+    @ParameterizedTest
+    @MethodSource("lengths")
+    void singlePrecisionMatchesTheScalarKernels(int length)
+    {
+        Random random = new Random(length);
+        float[] a = floats(A_OFFSET + length, random);
+        float[] b = floats(B_OFFSET + length, random);
+        double magnitude = magnitude(widen(a), widen(b), length);
+        double tolerance = 4 * length * FLOAT_EPSILON * magnitude;
+
+        assertEquals(scalar.squaredEuclidean(a, A_OFFSET, b, B_OFFSET, length),
+                vector.squaredEuclidean(a, A_OFFSET, b, B_OFFSET, length), tolerance, "squaredEuclidean " + length);
+        assertEquals(scalar.manhattan(a, A_OFFSET, b, B_OFFSET, length),
+                vector.manhattan(a, A_OFFSET, b, B_OFFSET, length), tolerance, "manhattan " + length);
+        assertEquals(scalar.dot(a, A_OFFSET, b, B_OFFSET, length),
+                vector.dot(a, A_OFFSET, b, B_OFFSET, length), tolerance, "dot " + length);
+        assertEquals(scalar.cosine(a, A_OFFSET, b, B_OFFSET, length),
+                vector.cosine(a, A_OFFSET, b, B_OFFSET, length), 8 * length * FLOAT_EPSILON, "cosine " + length);
+    }
+
+    /**
+     * The mixed-precision kernels widen the floats, so they must match the double-precision
+     * kernels on the widened row, not only the scalar fallback.
+     */
+    @ParameterizedTest
+    @MethodSource("lengths")
+    void mixedPrecisionMatchesTheWidenedRow(int length)
+    {
+        Random random = new Random(length);
+        float[] a = floats(A_OFFSET + length, random);
+        double[] wide = widen(a);
+        double[] b = doubles(B_OFFSET + length, random);
+        double tolerance = 4 * length * DOUBLE_EPSILON * magnitude(wide, b, length);
+
+        for (DistanceKernels kernels : new DistanceKernels[]{vector, scalar})
+        {
+            String name = kernels.getClass().getSimpleName() + " " + length;
+            assertEquals(scalar.squaredEuclidean(wide, A_OFFSET, b, B_OFFSET, length),
+                    kernels.squaredEuclidean(a, A_OFFSET, b, B_OFFSET, length), tolerance, "squaredEuclidean " + name);
+            assertEquals(scalar.manhattan(wide, A_OFFSET, b, B_OFFSET, length),
+                    kernels.manhattan(a, A_OFFSET, b, B_OFFSET, length), tolerance, "manhattan " + name);
+            assertEquals(scalar.cosine(wide, A_OFFSET, b, B_OFFSET, length),
+                    kernels.cosine(a, A_OFFSET, b, B_OFFSET, length), 8 * length * DOUBLE_EPSILON, "cosine " + name);
+        }
+    }
+
+    /**
+     * @return the sum of the absolute terms of every kernel, which bounds their rounding errors
+     */
+    private static double magnitude(double[] a, double[] b, int length)
+    {
+        double magnitude = 0;
+        for (int i = 0; i < length; i++)
+        {
+            double x = a[A_OFFSET + i];
+            double y = b[B_OFFSET + i];
+            magnitude += (x - y) * (x - y) + Math.abs(x - y) + Math.abs(x * y);
+        }
+        return magnitude;
+    }
+
+    private static double[] doubles(int size, Random random)
+    {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++)
+            values[i] = random.nextGaussian() * 10;
+        return values;
+    }
+
+    private static float[] floats(int size, Random random)
+    {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++)
+            values[i] = (float) (random.nextGaussian() * 10);
+        return values;
+    }
+
+    private static double[] widen(float[] values)
+    {
+        double[] wide = new double[values.length];
+        for (int i = 0; i < values.length; i++)
+            wide[i] = values[i];
+        return wide;
+    }
+}
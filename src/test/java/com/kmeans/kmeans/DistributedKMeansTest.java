@@ -0,0 +1,317 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DistributedKMeansTest
+{
+    private static final Schema SCHEMA = new Schema(List.of("x", "y"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsTheSameCentroidsAsASingleProcess() throws IOException, InterruptedException
+    {
+        DenseDataset first = shard(0, 400);
+        DenseDataset second = shard(400, 300);
+        try (ShardWorker a = start(first); ShardWorker b = start(second);
+             DistributedKMeans coordinator = new DistributedKMeans(List.of(address(a), address(b)), new EuclideanDistance()))
+        {
+            assertEquals(700, coordinator.size());
+            List<Centroid> seeds = KMeans.randomCentroids(first, 4);
+            KMeansModel model = coordinator.runClustering(seeds, ConvergenceCriteria.maxIterations(50));
+
+            ClusteringResult local = KMeans.runClustering(shard(0, 700), seeds, new EuclideanDistance(), 50,
+                    AssignmentEngine.sequential());
+            assertEquals(local.getIterations(), model.getIterations());
+            assertArrayEquals(local.getCentroidCoordinates(), model.getCentroidCoordinates(), 1e-9);
+            assertEquals(local.getInertia(), coordinator.getInertia(), local.getInertia() * 1e-9);
+        }
+    }
+
+    @Test
+    void resendsARequestAfterALostConnection() throws IOException, InterruptedException
+    {
+        DenseDataset first = shard(0, 400);
+        DenseDataset second = shard(400, 300);
+        List<Centroid> seeds = KMeans.randomCentroids(first, 4);
+        try (ShardWorker a = start(first); ShardWorker b = start(second); Proxy proxy = new Proxy(address(b)))
+        {
+            double[] expected;
+            try (DistributedKMeans coordinator = new DistributedKMeans(List.of(address(a), address(b)),
+                    new EuclideanDistance()))
+            {
+                expected = coordinator.runClustering(seeds, ConvergenceCriteria.maxIterations(50)).getCentroidCoordinates();
+            }
+
+            try (DistributedKMeans coordinator = new DistributedKMeans(List.of(address(a), proxy.address()),
+                    new EuclideanDistance()))
+            {
+                // the connection is cut while the first assignment is being sent
+                proxy.failNextRequest();
+                double[] actual = coordinator.runClustering(seeds, ConvergenceCriteria.maxIterations(50))
+                        .getCentroidCoordinates();
+
+                assertEquals(2, proxy.connections());
+                assertArrayEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void reconnectsToARestartedWorker() throws IOException, InterruptedException
+    {
+        DenseDataset first = shard(0, 400);
+        DenseDataset second = shard(400, 300);
+        List<Centroid> seeds = KMeans.randomCentroids(first, 4);
+        try (ShardWorker a = start(first); ShardWorker b = start(second); Proxy proxy = new Proxy(address(b));
+             DistributedKMeans coordinator = new DistributedKMeans(List.of(address(a), proxy.address()),
+                     new EuclideanDistance()))
+        {
+            double[] expected = coordinator.runClustering(seeds, ConvergenceCriteria.maxIterations(50))
+                    .getCentroidCoordinates();
+            Path expectedLabels = directory.resolve("expected.csv");
+            coordinator.writeLabels(expectedLabels);
+
+            try (ShardWorker restarted = start(second))
+            {
+                b.close();
+                proxy.restart(address(restarted));
+                double[] actual = coordinator.runClustering(seeds, ConvergenceCriteria.maxIterations(50))
+                        .getCentroidCoordinates();
+
+                assertArrayEquals(expected, actual);
+
+                // a worker restarted after the last assignment has no labels until it is sent the centroids
+                try (ShardWorker again = start(second))
+                {
+                    restarted.close();
+                    proxy.restart(address(again));
+                    Path actualLabels = directory.resolve("actual.csv");
+                    coordinator.writeLabels(actualLabels);
+
+                    assertEquals(Files.readAllLines(expectedLabels), Files.readAllLines(actualLabels));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsAWorkerBackWithAnotherShard() throws IOException, InterruptedException
+    {
+        DenseDataset first = shard(0, 400);
+        try (ShardWorker a = start(first); ShardWorker b = start(shard(400, 300)); Proxy proxy = new Proxy(address(b));
+             DistributedKMeans coordinator = new DistributedKMeans(List.of(address(a), proxy.address()),
+                     new EuclideanDistance()))
+        {
+            try (ShardWorker other = start(shard(400, 299)))
+            {
+                b.close();
+                proxy.restart(address(other));
+                assertThrows(IllegalStateException.class, () -> coordinator.runClustering(KMeans.randomCentroids(first, 4),
+                        ConvergenceCriteria.maxIterations(50)));
+            }
+        }
+    }
+
+    @Test
+    void rejectsWorkersWithAnotherDistance() throws IOException
+    {
+        try (ShardWorker a = start(shard(0, 100)))
+        {
+            assertThrows(IllegalStateException.class,
+                    () -> new DistributedKMeans(List.of(address(a)), new ManhattanDistance()));
+        }
+    }
+
+    @Test
+    void rejectsSphericalCentroids()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new DistributedKMeans(
+                List.of(new InetSocketAddress(InetAddress.getLoopbackAddress(), 1)), new HaversineDistance()));
+    }
+
+    /**
+     * Rows of four blobs, the same whatever the shard they are drawn in.
+     */
+    private static DenseDataset shard(int firstRow, int rows)
+    {
+        double[] values = new double[rows * 2];
+        String[] descriptions = new String[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            int row = firstRow + i;
+            descriptions[i] = String.valueOf(row);
+            values[i * 2] = row % 4 * 10 + Math.sin(row) * 3;
+            values[i * 2 + 1] = row % 2 * 10 + Math.cos(row * 1.3) * 3;
+        }
+        return new DenseDataset(SCHEMA, descriptions, values);
+    }
+
+    private static ShardWorker start(Dataset shard) throws IOException
+    {
+        ShardWorker worker = new ShardWorker(shard, new EuclideanDistance(), AssignmentEngine.sequential(), 0);
+        Thread thread = new Thread(() -> {
+            try
+            {
+                worker.serve();
+            }
+            catch (IOException e)
+            {
+                // the test closed the worker
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return worker;
+    }
+
+    private static InetSocketAddress address(ShardWorker worker)
+    {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort());
+    }
+
+    /**
+     * Forwards the connections of a coordinator to a worker, and cuts them on demand.
+     */
+    private static final class Proxy implements AutoCloseable
+    {
+        private final ServerSocket server = new ServerSocket(0, 4, InetAddress.getLoopbackAddress());
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+        private volatile InetSocketAddress target;
+        private volatile boolean failNextRequest;
+        private volatile int connections;
+
+        Proxy(InetSocketAddress target) throws IOException
+        {
+            this.target = target;
+            Thread thread = new Thread(this::accept);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        InetSocketAddress address()
+        {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        }
+
+        int connections()
+        {
+            return connections;
+        }
+
+        void failNextRequest()
+        {
+            failNextRequest = true;
+        }
+
+        /**
+         * Cuts the current connections, as if the worker crashed, and forwards the next ones to
+         * another worker.
+         */
+        void restart(InetSocketAddress target)
+        {
+            this.target = target;
+            cut();
+        }
+
+        private void accept()
+        {
+            while (!server.isClosed())
+            {
+                try
+                {
+                    Socket client = server.accept();
+                    Socket worker = new Socket(target.getAddress(), target.getPort());
+                    connections++;
+                    sockets.addAll(Arrays.asList(client, worker));
+                    forward(client, worker, true);
+                    forward(worker, client, false);
+                }
+                catch (IOException e)
+                {
+                    // closed by the test
+                }
+            }
+        }
+
+        private void forward(Socket from, Socket to, boolean requests)
+        {
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[8192];
+                try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream())
+                {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0)
+                    {
+                        if (requests && failNextRequest)
+                        {
+                            failNextRequest = false;
+                            cut();
+                            return;
+                        }
+                        out.write(buffer, 0, read);
+                        out.flush();
+                    }
+                }
+                catch (IOException e)
+                {
+                    // the other side is gone
+                }
+                finally
+                {
+                    closeQuietly(from);
+                    closeQuietly(to);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void cut()
+        {
+            List<Socket> open = new ArrayList<>(sockets);
+            sockets.clear();
+            for (Socket socket : open)
+                closeQuietly(socket);
+        }
+
+        private static void closeQuietly(Socket socket)
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // already closed
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            server.close();
+            cut();
+        }
+    }
+}
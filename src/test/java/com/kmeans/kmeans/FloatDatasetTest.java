@@ -0,0 +1,105 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloatDatasetTest
+{
+    private static final int ROWS = 20_000;
+
+    private static final int DIMENSIONS = 16;
+
+    private static final int K = 8;
+
+    /**
+     * Relative error bound of the single-precision ranking distances, see {@link FloatDataset}.
+     */
+    private static final double TOLERANCE = DIMENSIONS * 6e-8;
+
+    @Test
+    void singlePrecisionFindsTheSameClusters() throws InterruptedException
+    {
+        DenseDataset dense = blobs(new Random(7));
+        FloatDataset single = FloatDataset.copyOf(dense);
+        Distance distance = new EuclideanDistance();
+
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dense, K, distance, 11, engine);
+            ClusteringResult expected = KMeans.runClustering(dense, seeds, distance, 20, engine);
+            ClusteringResult actual = KMeans.runClustering(single, seeds, distance, 20, engine);
+
+            assertArrayEquals(expected.getLabels(), actual.getLabels());
+            assertEquals(expected.getInertia(), actual.getInertia(), expected.getInertia() * TOLERANCE);
+        }
+    }
+
+    @Test
+    void rankingDistancesAreWithinTheRelativeErrorBound()
+    {
+        DenseDataset dense = blobs(new Random(3));
+        FloatDataset single = FloatDataset.copyOf(dense);
+        Random random = new Random(5);
+        double[] centroids = new double[K * DIMENSIONS];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = (float) (random.nextGaussian() * 10);
+
+        for (Distance distance : new Distance[]{new EuclideanDistance(), new SquaredEuclideanDistance()})
+        {
+            for (int row = 0; row < ROWS; row++)
+            {
+                for (int cluster = 0; cluster < K; cluster++)
+                {
+                    double expected = dense.rankingDistance(row, centroids, cluster * DIMENSIONS, distance);
+                    double actual = single.rankingDistance(row, centroids, cluster * DIMENSIONS, distance);
+                    assertEquals(expected, actual, expected * TOLERANCE, "Row " + row + ", cluster " + cluster);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rowsOnlyMoveBetweenNearlyEquidistantCentroids()
+    {
+        DenseDataset dense = blobs(new Random(13));
+        FloatDataset single = FloatDataset.copyOf(dense);
+        Distance distance = new EuclideanDistance();
+        Random random = new Random(17);
+        double[] centroids = new double[K * DIMENSIONS];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = (float) (random.nextGaussian() * 10);
+
+        int[] expected = new int[ROWS];
+        int[] actual = new int[ROWS];
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            engine.assign(dense, centroids, K, distance, expected);
+            engine.assign(single, centroids, K, distance, actual);
+        }
+
+        for (int row = 0; row < ROWS; row++)
+        {
+            if (expected[row] == actual[row])
+                continue;
+
+            double nearest = dense.distance(row, centroids, expected[row] * DIMENSIONS, distance);
+            double other = dense.distance(row, centroids, actual[row] * DIMENSIONS, distance);
+            assertTrue(other - nearest <= 2 * nearest * TOLERANCE, "Row " + row + " moved to a further centroid");
+        }
+    }
+
+    /**
+     * Gaussian blobs whose features are floats, so that both datasets hold the same values and
+     * only the kernels differ.
+     */
+    private static DenseDataset blobs(Random random)
+    {
+        return TestData.roundedToFloats(TestData.blobs(ROWS, DIMENSIONS, K, 10, random));
+    }
+}
@@ -0,0 +1,84 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HamerlyKMeansTest
+{
+    @Test
+    void findsTheSameClustersAsLloyd() throws InterruptedException
+    {
+        Dataset dataset = TestData.blobs(5_000, 8, 12, 5, new Random(1));
+        for (Distance distance : new Distance[]{new EuclideanDistance(), new ManhattanDistance()})
+        {
+            try (AssignmentEngine engine = AssignmentEngine.sequential())
+            {
+                List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, 12, distance, 3, engine);
+                ClusteringResult lloyd = KMeans.runClustering(dataset, seeds, distance, 100, engine);
+                ClusteringResult hamerly = HamerlyKMeans.runClustering(dataset, seeds, distance, 100, engine);
+
+                assertArrayEquals(lloyd.getLabels(), hamerly.getLabels());
+                assertEquals(lloyd.getIterations(), hamerly.getIterations());
+                assertArrayEquals(lloyd.getCentroidCoordinates(), hamerly.getCentroidCoordinates(), 1e-9);
+                assertEquals(lloyd.getInertia(), hamerly.getInertia(), lloyd.getInertia() * 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void stopsLikeLloydWithTolerances() throws InterruptedException
+    {
+        Dataset dataset = TestData.blobs(5_000, 8, 12, 5, new Random(4));
+        Distance distance = new EuclideanDistance();
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, 12, distance, 7, engine);
+            for (ConvergenceCriteria convergence : new ConvergenceCriteria[]{new ConvergenceCriteria(100, 0.05, 0),
+                    new ConvergenceCriteria(100, 0, 1e-3)})
+            {
+                ClusteringResult lloyd = KMeans.runClustering(dataset, seeds, distance, convergence, engine);
+                ClusteringResult hamerly = HamerlyKMeans.runClustering(dataset, seeds, distance, convergence, engine);
+                ClusteringResult converged = KMeans.runClustering(dataset, seeds, distance, 100, engine);
+
+                assertTrue(lloyd.getIterations() < converged.getIterations());
+                assertEquals(lloyd.getIterations(), hamerly.getIterations());
+                assertArrayEquals(lloyd.getLabels(), hamerly.getLabels());
+                assertEquals(lloyd.getInertia(), hamerly.getInertia(), lloyd.getInertia() * 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void prunesDistanceCalculations() throws InterruptedException
+    {
+        Dataset dataset = TestData.blobs(5_000, 4, 16, 5, new Random(2));
+        Distance distance = new EuclideanDistance();
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, 16, distance, 5, engine);
+            ClusteringResult result = HamerlyKMeans.runClustering(dataset, seeds, distance, 100, engine);
+
+            long pruned = 0;
+            for (long iteration : result.getPrunedDistances())
+                pruned += iteration;
+            assertTrue(pruned > 0);
+        }
+    }
+
+    @Test
+    void rejectsDistancesWithoutTheTriangleInequality()
+    {
+        Dataset dataset = TestData.blobs(100, 2, 2, 5, new Random(3));
+        List<Centroid> seeds = KMeans.randomCentroids(dataset, 2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> HamerlyKMeans.runClustering(dataset, seeds, new SquaredEuclideanDistance(), 10));
+    }
+}
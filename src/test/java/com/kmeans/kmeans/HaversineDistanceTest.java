@@ -0,0 +1,140 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HaversineDistanceTest
+{
+    private static final Schema SCHEMA = new Schema(List.of("latitude", "longitude"));
+
+    private final HaversineDistance distance = new HaversineDistance();
+
+    @Test
+    void measuresGreatCircles()
+    {
+        double degree = 2 * Math.PI * HaversineDistance.EARTH_RADIUS_KM / 360;
+        assertEquals(degree, distance.calculate(new double[]{10, 20}, 0, new double[]{11, 20}, 0, 2), 1e-9);
+        assertEquals(degree, distance.calculate(new double[]{0, 179.5}, 0, new double[]{0, -179.5}, 0, 2), 1e-9);
+        assertEquals(degree, distance.calculate(new double[]{89.5, 0}, 0, new double[]{89.5, 180}, 0, 2), 1e-9);
+        assertEquals(distance.fromRankingDistance(distance.rankingDistance(new double[]{48.85, 2.35}, 0,
+                        new double[]{51.51, -0.13}, 0, 2)),
+                distance.calculate(new double[]{48.85, 2.35}, 0, new double[]{51.51, -0.13}, 0, 2), 1e-9);
+    }
+
+    @Test
+    void relocatesAClusterAcrossTheAntimeridian()
+    {
+        DenseDataset dataset = dataset(new double[]{10, 179, 12, -179, 11, 178.5, 11, -178.5});
+        double[] relocated = distance.relocateCentroids(dataset, new int[4], new double[]{0, 0}, 1,
+                AssignmentEngine.common());
+
+        assertEquals(11, relocated[0], 0.01);
+        assertEquals(180, Math.abs(relocated[1]), 0.01);
+    }
+
+    @Test
+    void relocatesAClusterAroundThePole()
+    {
+        DenseDataset dataset = dataset(new double[]{80, 0, 80, 90, 80, 180, 80, -90});
+        double[] relocated = distance.relocateCentroids(dataset, new int[4], new double[]{0, 0}, 1,
+                AssignmentEngine.common());
+
+        assertEquals(90, relocated[0], 1e-9);
+    }
+
+    @Test
+    void keepsTheCentroidsWithoutAMean()
+    {
+        // two antipodal rows in the first cluster, none in the second
+        DenseDataset dataset = dataset(new double[]{0, 0, 0, 180});
+        double[] centroids = {5, 5, -30, 60};
+        double[] relocated = distance.relocateCentroids(dataset, new int[2], centroids, 2, AssignmentEngine.common());
+
+        assertArrayEquals(centroids, relocated, 0);
+    }
+
+    @Test
+    void geoDatasetMatchesThePlainDegrees() throws InterruptedException
+    {
+        DenseDataset dense = cities(new Random(31), 5_000);
+        GeoDataset geo = GeoDataset.copyOf(dense);
+        double[] centroids = {48.85, 2.35, -33.87, 151.21, 40.71, -74.01, 64.15, -21.94, -0.18, 179.9};
+        double[] norms = AssignmentEngine.centroidNorms(centroids, 5, 2, distance);
+
+        for (int row = 0; row < dense.size(); row++)
+        {
+            for (int cluster = 0; cluster < 5; cluster++)
+            {
+                double expected = dense.distance(row, centroids, cluster * 2, distance);
+                assertEquals(expected, geo.distance(row, centroids, cluster * 2, distance), 1e-6);
+                assertEquals(expected, geo.distance(row, centroids, cluster * 2, norms[cluster], distance), 1e-6);
+            }
+        }
+
+        try (AssignmentEngine engine = new AssignmentEngine(4))
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dense, 8, distance, 1, engine);
+            ClusteringResult expected = KMeans.runClustering(dense, seeds, distance, 50, engine);
+            ClusteringResult actual = KMeans.runClustering(geo, seeds, distance, 50, engine);
+
+            assertArrayEquals(expected.getLabels(), actual.getLabels());
+            assertArrayEquals(expected.getCentroidCoordinates(), actual.getCentroidCoordinates(), 1e-9);
+        }
+    }
+
+    @Test
+    void equirectangularIsCloseAtTheScaleOfACity()
+    {
+        HaversineDistance fast = HaversineDistance.equirectangular();
+        double[] paris = {48.8566, 2.3522};
+        double[] versailles = {48.8049, 2.1204};
+        double exact = distance.calculate(paris, 0, versailles, 0, 2);
+        double approximate = fast.fromRankingDistance(fast.rankingDistance(paris, 0, versailles, 0, 2));
+
+        assertEquals(exact, approximate, exact * 1e-3);
+        assertTrue(distance.isMetric());
+        assertFalse(fast.isMetric());
+    }
+
+    @Test
+    void rejectsRowsOutsideTheGlobe()
+    {
+        assertThrows(IllegalArgumentException.class, () -> GeoDataset.copyOf(dataset(new double[]{91, 0})));
+        assertThrows(IllegalArgumentException.class, () -> GeoDataset.copyOf(dataset(new double[]{0, 181})));
+        assertThrows(IllegalArgumentException.class, () -> GeoDataset.copyOf(TestData.blobs(10, 3, 1, 1,
+                new Random(1))));
+    }
+
+    /**
+     * Rows scattered within a few degrees of a handful of places, one of them on the antimeridian.
+     */
+    private static DenseDataset cities(Random random, int rows)
+    {
+        double[] places = {48.85, 2.35, -33.87, 151.21, 40.71, -74.01, 35.68, 139.69, -17.71, 178.06, 78.22, 15.65};
+        double[] values = new double[rows * 2];
+        for (int row = 0; row < rows; row++)
+        {
+            int place = row % (places.length / 2);
+            values[row * 2] = Math.max(-90, Math.min(90, places[place * 2] + random.nextGaussian() * 2));
+            double longitude = places[place * 2 + 1] + random.nextGaussian() * 3;
+            values[row * 2 + 1] = longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+        }
+        return dataset(values);
+    }
+
+    private static DenseDataset dataset(double[] values)
+    {
+        String[] descriptions = new String[values.length / 2];
+        for (int row = 0; row < descriptions.length; row++)
+            descriptions[row] = String.valueOf(row);
+        return new DenseDataset(SCHEMA, descriptions, values);
+    }
+}
@@ -0,0 +1,110 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KMeansModelTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsAModel() throws IOException
+    {
+        Schema schema = new Schema(List.of("latitude", "longitude"));
+        double[] centroids = {43.1, -78.7, 48.85, 2.35, -33.9, 151.2};
+        KMeansModel model = new KMeansModel(schema, centroids, 12, HaversineDistance.equirectangular());
+        Path file = directory.resolve("model.kmm");
+        model.save(file);
+
+        KMeansModel loaded = KMeansModel.load(file);
+        assertEquals(schema, loaded.getSchema());
+        assertEquals(3, loaded.getK());
+        assertEquals(12, loaded.getIterations());
+        assertArrayEquals(centroids, loaded.getCentroidCoordinates());
+        assertEquals("fastHaversine", Distances.nameOf(loaded.getDistance()));
+    }
+
+    @Test
+    void predictsTheLabelsOfTheRunItWasSavedFrom() throws IOException, InterruptedException
+    {
+        double[] values = new double[600];
+        String[] descriptions = new String[300];
+        for (int row = 0; row < 300; row++)
+        {
+            descriptions[row] = String.valueOf(row);
+            values[row * 2] = row % 3 * 10 + Math.sin(row);
+            values[row * 2 + 1] = row % 3 * -5 + Math.cos(row);
+        }
+        Dataset dataset = new DenseDataset(new Schema(List.of("x", "y")), descriptions, values);
+        Distance distance = new ManhattanDistance();
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, 3, distance, 1, engine);
+            ClusteringResult result = KMeans.runClustering(dataset, seeds, distance, 50, engine);
+            Path file = directory.resolve("model.kmm");
+            result.getModel(distance).save(file);
+
+            assertArrayEquals(result.getLabels(), KMeansModel.load(file).predict(dataset, engine));
+        }
+    }
+
+    @Test
+    void rejectsCorruptHeaders() throws IOException
+    {
+        Path file = directory.resolve("model.kmm");
+        new KMeansModel(new Schema(List.of("x", "y")), new double[]{1, 2, 3, 4}, 5).save(file);
+        byte[] valid = Files.readAllBytes(file);
+        int metric = 8;
+        int columns = metric + 2 + "euclidean".length();
+        int centroids = columns + 4 + 2 * 3;
+
+        assertCorrupt(valid, 0, 0x12345678);
+        assertCorrupt(valid, 4, 2);
+        assertCorrupt(valid, columns, 0);
+        assertCorrupt(valid, columns, -1);
+        assertCorrupt(valid, centroids, 0);
+        assertCorrupt(valid, centroids, Integer.MAX_VALUE);
+        assertCorrupt(valid, centroids, 100_000_000);
+
+        byte[] unknownMetric = valid.clone();
+        unknownMetric[metric + 2] = 'x';
+        Files.write(file, unknownMetric);
+        assertThrows(IOException.class, () -> KMeansModel.load(file));
+
+        Files.write(file, Arrays.copyOf(valid, valid.length - 1));
+        assertThrows(IOException.class, () -> KMeansModel.load(file));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException
+    {
+        Path file = directory.resolve("model.kmm");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file)))
+        {
+            out.writeUTF("id;x;y");
+        }
+        assertThrows(IOException.class, () -> KMeansModel.load(file));
+    }
+
+    private void assertCorrupt(byte[] valid, int position, int value) throws IOException
+    {
+        byte[] corrupt = valid.clone();
+        ByteBuffer.wrap(corrupt).putInt(position, value);
+        Path file = directory.resolve("corrupt.kmm");
+        Files.write(file, corrupt);
+        assertThrows(IOException.class, () -> KMeansModel.load(file), "Corrupt int at " + position);
+    }
+}
@@ -0,0 +1,135 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KSweepTest
+{
+    private final Distance distance = new EuclideanDistance();
+
+    private final ConvergenceCriteria convergence = ConvergenceCriteria.maxIterations(100);
+
+    @Test
+    void splitsTheWorstClusterAndKeepsTheOthers() throws InterruptedException
+    {
+        // four blobs on a line, the last two sharing the third centroid
+        DenseDataset dataset = line(new double[]{0, 100, 200, 300}, 200, new Random(41));
+        try (AssignmentEngine engine = new AssignmentEngine(2))
+        {
+            List<Centroid> seeds = List.of(centroid(dataset, 0), centroid(dataset, 100), centroid(dataset, 250));
+            ClusteringResult three = KMeans.runClustering(dataset, seeds, distance, convergence, engine);
+
+            List<Centroid> split = KSweep.splitWorstCluster(three, distance, engine);
+            assertEquals(4, split.size());
+            assertEquals(three.getCentroid(0), split.get(0));
+            assertEquals(three.getCentroid(1), split.get(1));
+            double[] halves = {split.get(2).coordinates()[0], split.get(3).coordinates()[0]};
+            assertEquals(200, Math.min(halves[0], halves[1]), 1);
+            assertEquals(300, Math.max(halves[0], halves[1]), 1);
+
+            // the warm start is already at the optimum
+            ClusteringResult four = KMeans.runClustering(dataset, split, distance, convergence, engine);
+            assertTrue(four.getIterations() <= 2, four.getIterations() + " iterations");
+            assertArrayEquals(new int[]{200, 200, 200, 200}, four.getClusterSizes());
+        }
+    }
+
+    @Test
+    void splitsAClusterOfIdenticalRows() throws InterruptedException
+    {
+        // three distinct rows, each repeated, so that every cluster of the optimum has no error
+        DenseDataset dataset = line(new double[]{0, 10, 20}, 50, null);
+        try (AssignmentEngine engine = new AssignmentEngine(2))
+        {
+            List<Centroid> seeds = List.of(centroid(dataset, 0), centroid(dataset, 10), centroid(dataset, 20));
+            ClusteringResult three = KMeans.runClustering(dataset, seeds, distance, convergence, engine);
+            assertEquals(0, three.getInertia());
+
+            List<Centroid> split = KSweep.splitWorstCluster(three, distance, engine);
+            assertEquals(4, split.size());
+            for (Centroid centroid : split)
+            {
+                for (double coordinate : centroid.coordinates())
+                    assertFalse(Double.isNaN(coordinate), split.toString());
+            }
+
+            KSweepResult sweep = KSweep.run(dataset, 2, 6, distance, convergence, 1, 1, 5, engine);
+            for (int k = 3; k <= 6; k++)
+                assertEquals(0, sweep.getInertia(k), "k = " + k);
+            assertEquals(3, sweep.getRecommendedK());
+        }
+    }
+
+    @Test
+    void recommendsTheNumberOfBlobs() throws InterruptedException
+    {
+        DenseDataset dataset = TestData.blobs(6_000, 4, 5, 20, new Random(42));
+        try (AssignmentEngine engine = new AssignmentEngine(4))
+        {
+            KSweepResult sweep = KSweep.run(dataset, 2, 10, distance, convergence, 1, 1, 6, engine);
+
+            assertEquals(5, sweep.getRecommendedK());
+            for (int k = 3; k <= 10; k++)
+                assertTrue(sweep.getInertia(k) <= sweep.getInertia(k - 1), "k = " + k);
+        }
+    }
+
+    @Test
+    void chainsDontDependOnTheNumberOfWorkers() throws InterruptedException
+    {
+        DenseDataset dataset = TestData.blobs(3_000, 3, 4, 10, new Random(43));
+        try (AssignmentEngine engine = new AssignmentEngine(2))
+        {
+            KSweepResult sequential = KSweep.run(dataset, 2, 9, distance, convergence, 3, 1, 7, engine);
+            KSweepResult concurrent = KSweep.run(dataset, 2, 9, distance, convergence, 3, 3, 7, engine);
+
+            assertArrayEquals(sequential.getInertias(), concurrent.getInertias(), 0);
+            for (int k = 2; k <= 9; k++)
+            {
+                assertArrayEquals(sequential.getModel(k).getCentroidCoordinates(),
+                        concurrent.getModel(k).getCentroidCoordinates(), 0);
+            }
+        }
+    }
+
+    @Test
+    void cutsTheRangeIntoChainsOfSimilarCosts()
+    {
+        assertArrayEquals(new int[]{2, 11}, KSweep.split(2, 10, 1));
+        assertArrayEquals(new int[]{2, 3, 4, 5}, KSweep.split(2, 4, 3));
+        int[] starts = KSweep.split(2, 20, 3);
+        assertEquals(4, starts.length);
+        assertTrue(starts[1] - starts[0] > starts[2] - starts[1]);
+        assertTrue(starts[2] - starts[1] > starts[3] - starts[2]);
+    }
+
+    /**
+     * Rows on the first axis, {@code perCentre} of them around every centre, with a unit noise
+     * unless {@code random} is null.
+     */
+    private static DenseDataset line(double[] centres, int perCentre, Random random)
+    {
+        int rows = centres.length * perCentre;
+        double[] values = new double[rows * 2];
+        String[] descriptions = new String[rows];
+        for (int row = 0; row < rows; row++)
+        {
+            descriptions[row] = String.valueOf(row);
+            values[row * 2] = centres[row / perCentre] + (random == null ? 0 : random.nextGaussian());
+            values[row * 2 + 1] = random == null ? 0 : random.nextGaussian();
+        }
+        return new DenseDataset(TestData.schema(2), descriptions, values);
+    }
+
+    private static Centroid centroid(Dataset dataset, double x)
+    {
+        return new Centroid(dataset.schema(), new double[]{x, 0});
+    }
+}
@@ -0,0 +1,104 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedCsvLoaderTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void parsesNumbersExactlyLikeParseDouble() throws IOException
+    {
+        List<String> numbers = List.of("0", "-0", "+1", "1.", ".5", "0.1", "-78.69313", "43.08926", "1e22", "1e-22",
+                "123456789012345", "0.000000000000001", "1.7976931348623157e308", "4.9e-324", "2.5E+3",
+                "1234567890123456789", "0.30000000000000004", "9007199254740993", "1e23", "12.5e-30");
+        for (String number : numbers)
+            assertParsed(number);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++)
+        {
+            double value = switch (i % 4)
+            {
+                case 0 -> random.nextGaussian() * 1000;
+                case 1 -> random.nextDouble();
+                case 2 -> Double.longBitsToDouble(random.nextLong() & 0x7fefffffffffffffL);
+                default -> Math.round(random.nextDouble() * 1e9) / 1e5;
+            };
+            assertParsed(Double.toString(value));
+            assertParsed(String.format(Locale.ROOT, "%.5f", value));
+        }
+    }
+
+    @Test
+    void rejectsMalformedNumbers()
+    {
+        for (String number : List.of("", "-", ".", "1e", "1.2.3", "abc", "1,5"))
+            assertThrows(IOException.class, () -> parse(number), number);
+    }
+
+    @Test
+    void loadsTheSameValuesAsParseDouble() throws IOException
+    {
+        Random random = new Random(7);
+        StringBuilder csv = new StringBuilder("id;x;y;z\n");
+        double[] expected = new double[3_000 * 3];
+        for (int row = 0; row < 3_000; row++)
+        {
+            csv.append(row);
+            for (int column = 0; column < 3; column++)
+            {
+                String value = Double.toString(random.nextGaussian() * 100);
+                expected[row * 3 + column] = Double.parseDouble(value);
+                csv.append(';').append(value);
+            }
+            csv.append(row % 2 == 0 ? "\n" : "\r\n");
+        }
+        Path file = directory.resolve("dataset.csv");
+        Files.writeString(file, csv);
+
+        DenseDataset dataset = new MappedCsvLoader(3).load(file);
+        assertEquals(3_000, dataset.size());
+        assertEquals(new Schema(List.of("x", "y", "z")), dataset.schema());
+        for (int row = 0; row < 3_000; row++)
+        {
+            assertEquals(String.valueOf(row), dataset.description(row));
+            for (int column = 0; column < 3; column++)
+                assertEquals(expected[row * 3 + column], dataset.get(row, column));
+        }
+    }
+
+    @Test
+    void rejectsRowsWithTheWrongNumberOfColumns() throws IOException
+    {
+        Path file = directory.resolve("dataset.csv");
+        Files.writeString(file, "id;x;y\n1;1;2\n2;3\n");
+
+        assertThrows(IOException.class, () -> new MappedCsvLoader(1).load(file));
+    }
+
+    private static void assertParsed(String number) throws IOException
+    {
+        assertEquals(Double.parseDouble(number), parse(number), number);
+    }
+
+    private static double parse(String number) throws IOException
+    {
+        byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+        return MappedCsvLoader.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length, new byte[64], 0);
+    }
+}
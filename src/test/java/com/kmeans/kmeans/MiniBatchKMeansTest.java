@@ -0,0 +1,75 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MiniBatchKMeansTest
+{
+    private static final int K = 5;
+
+    private final DenseDataset dataset = TestData.blobs(20_000, 8, K, 10, new Random(11));
+
+    private final Distance distance = new EuclideanDistance();
+
+    @Test
+    void convergesCloseToLloyd() throws InterruptedException
+    {
+        try (AssignmentEngine engine = new AssignmentEngine(4))
+        {
+            // one row of every blob, the rows taking turns between them
+            List<Centroid> seeds = IntStream.range(0, K)
+                    .mapToObj(row -> new Centroid(dataset.schema(), IntStream.range(0, dataset.dimensions())
+                            .mapToDouble(column -> dataset.get(row, column))
+                            .toArray()))
+                    .toList();
+            ClusteringResult lloyd = KMeans.runClustering(dataset, seeds, distance, 100, engine);
+            ClusteringResult miniBatch = MiniBatchKMeans.runClustering(dataset, seeds, distance, 500, 1_000, 0.01, 2,
+                    engine);
+
+            assertTrue(miniBatch.getIterations() < 1_000, "stopped after " + miniBatch.getIterations() + " batches");
+            assertTrue(miniBatch.getInertia() <= lloyd.getInertia() * 1.01,
+                    miniBatch.getInertia() + " against " + lloyd.getInertia());
+            assertArrayEquals(lloyd.getLabels(), miniBatch.getLabels());
+        }
+    }
+
+    @Test
+    void runsTheSameBatchesWhateverTheNumberOfThreads() throws InterruptedException
+    {
+        List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, K, distance, 3, AssignmentEngine.common());
+        ClusteringResult expected;
+        try (AssignmentEngine engine = new AssignmentEngine(1))
+        {
+            expected = MiniBatchKMeans.runClustering(dataset, seeds, distance, 300, 200, 0, 4, engine);
+        }
+        for (int threads : new int[]{2, 4, 8})
+        {
+            try (AssignmentEngine engine = new AssignmentEngine(threads))
+            {
+                ClusteringResult actual = MiniBatchKMeans.runClustering(dataset, seeds, distance, 300, 200, 0, 4,
+                        engine);
+                assertEquals(expected.getIterations(), actual.getIterations());
+                assertArrayEquals(expected.getCentroidCoordinates(), actual.getCentroidCoordinates(), 0);
+                assertArrayEquals(expected.getLabels(), actual.getLabels());
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidBatchesAndTolerances()
+    {
+        List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, K, distance, 5, AssignmentEngine.common());
+        assertThrows(IllegalArgumentException.class, () -> MiniBatchKMeans.runClustering(dataset, seeds,
+                distance, 0, 10, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> MiniBatchKMeans.runClustering(dataset, seeds,
+                distance, 100, 10, -1, 1));
+    }
+}
@@ -0,0 +1,70 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MultiStartKMeansTest
+{
+    private static final int K = 6;
+
+    private static final int RESTARTS = 12;
+
+    private static final long SEED = 21;
+
+    private final ConvergenceCriteria convergence = ConvergenceCriteria.maxIterations(100);
+
+    private final Distance distance = new EuclideanDistance();
+
+    @Test
+    void picksTheSameRunWhateverTheNumberOfThreads() throws InterruptedException
+    {
+        Dataset dataset = TestData.blobs(4_000, 3, 10, 3, new Random(1));
+
+        ClusteringResult sequential;
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            sequential = MultiStartKMeans.runClustering(dataset, K, distance, convergence, RESTARTS, 1, SEED, engine);
+        }
+
+        for (int threads : new int[]{2, 4, 8})
+        {
+            try (AssignmentEngine engine = new AssignmentEngine(threads))
+            {
+                ClusteringResult concurrent = MultiStartKMeans.runClustering(dataset, K, distance, convergence,
+                        RESTARTS, threads, SEED, engine);
+
+                assertEquals(sequential.getInertia(), concurrent.getInertia(), threads + " threads");
+                assertArrayEquals(sequential.getLabels(), concurrent.getLabels(), threads + " threads");
+                assertArrayEquals(sequential.getCentroidCoordinates(), concurrent.getCentroidCoordinates());
+            }
+        }
+    }
+
+    @Test
+    void keepsTheLowestInertiaOfAllRuns() throws InterruptedException
+    {
+        Dataset dataset = TestData.blobs(4_000, 3, 10, 3, new Random(2));
+        try (AssignmentEngine engine = AssignmentEngine.sequential())
+        {
+            // every restart run to the end, from the seeds derived like MultiStartKMeans does
+            SplittableRandom random = new SplittableRandom(SEED);
+            double lowest = Double.POSITIVE_INFINITY;
+            for (int restart = 0; restart < RESTARTS; restart++)
+            {
+                List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, K, distance, random.nextLong(), engine);
+                lowest = Math.min(lowest, KMeans.runClustering(dataset, seeds, distance, convergence, engine,
+                        ClusteringListener.NONE).getInertia());
+            }
+
+            ClusteringResult best = MultiStartKMeans.runClustering(dataset, K, distance, convergence, RESTARTS, 4,
+                    SEED, engine);
+            assertEquals(lowest, best.getInertia());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapDatasetTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void spilledRowsMatchTheDenseDataset() throws IOException
+    {
+        // 12.8 MB of values against a budget of 4 MB
+        DenseDataset dense = TestData.blobs(200_000, 8, 5, 10, new Random(51));
+        try (OffHeapDataset offHeap = OffHeapDataset.copyOf(dense, 4 << 20, directory))
+        {
+            assertTrue(offHeap.isSpilled());
+            assertRowsEqual(dense, offHeap);
+        }
+    }
+
+    @Test
+    void rowsWithinTheBudgetStayInMemory() throws IOException
+    {
+        DenseDataset dense = TestData.blobs(1_000, 8, 5, 10, new Random(52));
+        try (OffHeapDataset offHeap = OffHeapDataset.copyOf(dense, 1 << 20, directory))
+        {
+            assertFalse(offHeap.isSpilled());
+            assertRowsEqual(dense, offHeap);
+        }
+    }
+
+    @Test
+    void spillingGivesTheBudgetOfItsPagesBack() throws IOException
+    {
+        OffHeapStore.Budget budget = new OffHeapStore.Budget(40L << 20);
+        byte[] chunk = new byte[1 << 20];
+        try (OffHeapStore store = new OffHeapStore(budget, directory))
+        {
+            // two whole pages fit, the third one spills the store, which keeps the second page
+            for (int i = 0; i < 3 * (OffHeapStore.PAGE_BYTES >> 20); i++)
+                store.append(chunk);
+            assertTrue(store.isSpilled());
+
+            assertTrue(budget.reserve((40L << 20) - OffHeapStore.PAGE_BYTES));
+            assertFalse(budget.reserve(1));
+        }
+    }
+
+    private static void assertRowsEqual(Dataset expected, OffHeapDataset actual)
+    {
+        Distance distance = new EuclideanDistance();
+        double[] centroid = new double[expected.dimensions()];
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.schema(), actual.schema());
+        for (int row = 0; row < expected.size(); row++)
+        {
+            assertEquals(expected.description(row), actual.description(row));
+            for (int column = 0; column < expected.dimensions(); column++)
+                assertEquals(expected.get(row, column), actual.get(row, column), 0);
+            assertEquals(expected.distance(row, centroid, 0, distance), actual.distance(row, centroid, 0, distance), 0);
+        }
+    }
+}
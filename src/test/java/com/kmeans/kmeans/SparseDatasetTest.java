@@ -0,0 +1,96 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SparseDatasetTest
+{
+    private static final int ROWS = 2_000;
+
+    private static final int DIMENSIONS = 50;
+
+    private static final int K = 6;
+
+    private final Distance[] distances = {new EuclideanDistance(), new CosineDistance()};
+
+    @Test
+    void distancesMatchTheDenseRows()
+    {
+        DenseDataset dense = termFrequencies(new Random(1));
+        SparseDataset sparse = SparseDataset.copyOf(dense);
+        Random random = new Random(2);
+        double[] centroids = new double[K * DIMENSIONS];
+        for (int i = 0; i < centroids.length; i++)
+            centroids[i] = random.nextDouble();
+
+        for (Distance distance : distances)
+        {
+            double[] norms = AssignmentEngine.centroidNorms(centroids, K, DIMENSIONS, distance);
+            for (int row = 0; row < ROWS; row++)
+            {
+                for (int cluster = 0; cluster < K; cluster++)
+                {
+                    int offset = cluster * DIMENSIONS;
+                    double expected = dense.distance(row, centroids, offset, distance);
+                    String message = distance.getClass().getSimpleName() + ", row " + row + ", cluster " + cluster;
+                    assertEquals(expected, sparse.distance(row, centroids, offset, distance), 1e-9 * (1 + expected),
+                            message);
+                    assertEquals(expected, sparse.distance(row, centroids, offset, norms[cluster], distance),
+                            1e-9 * (1 + expected), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void clusteringMatchesTheDenseDataset() throws InterruptedException
+    {
+        DenseDataset dense = termFrequencies(new Random(3));
+        SparseDataset sparse = SparseDataset.copyOf(dense);
+        try (AssignmentEngine engine = new AssignmentEngine(2))
+        {
+            for (Distance distance : distances)
+            {
+                List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dense, K, distance, 4, engine);
+                ClusteringResult expected = KMeans.runClustering(dense, seeds, distance, 50, engine);
+                ClusteringResult actual = KMeans.runClustering(sparse, seeds, distance, 50, engine);
+
+                assertArrayEquals(expected.getLabels(), actual.getLabels(), distance.getClass().getSimpleName());
+                assertArrayEquals(expected.getCentroidCoordinates(), actual.getCentroidCoordinates(), 1e-9);
+            }
+
+            // the accelerated algorithm passes the centroid norms to the sparse kernel
+            Distance euclidean = new EuclideanDistance();
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dense, K, euclidean, 5, engine);
+            ClusteringResult expected = HamerlyKMeans.runClustering(dense, seeds, euclidean, 50, engine);
+            ClusteringResult actual = HamerlyKMeans.runClustering(sparse, seeds, euclidean, 50, engine);
+            assertArrayEquals(expected.getLabels(), actual.getLabels());
+            assertEquals(expected.getInertia(), actual.getInertia(), expected.getInertia() * 1e-9);
+        }
+    }
+
+    /**
+     * Rows of a few small counts over a vocabulary, most of them zero, drawn around K topics.
+     */
+    private static DenseDataset termFrequencies(Random random)
+    {
+        double[] values = new double[ROWS * DIMENSIONS];
+        String[] descriptions = new String[ROWS];
+        for (int row = 0; row < ROWS; row++)
+        {
+            descriptions[row] = "doc" + row;
+            int topic = row % K;
+            for (int term = 0; term < 5; term++)
+            {
+                int column = random.nextDouble() < 0.8 ? topic * 8 + random.nextInt(8) : random.nextInt(DIMENSIONS);
+                values[row * DIMENSIONS + column] += 1 + random.nextInt(3);
+            }
+        }
+        return new DenseDataset(TestData.schema(DIMENSIONS), descriptions, values);
+    }
+}
@@ -0,0 +1,88 @@
+package com.kmeans.kmeans;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingKMeansTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsTheSameCentroidsWhenTheLastBatchIsShorter() throws IOException, InterruptedException
+    {
+        // 1003 rows, so that every batch size below leaves a shorter last batch
+        DenseDataset dataset = TestData.blobs(1_003, 4, 5, 5, new Random(1));
+        Path file = directory.resolve("blobs.csv");
+        TestData.writeCsv(dataset, file);
+        Distance distance = new EuclideanDistance();
+
+        try (AssignmentEngine engine = new AssignmentEngine(3))
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, 5, distance, 2, engine);
+            ClusteringResult expected = KMeans.runClustering(dataset, seeds, distance, 100, engine);
+
+            for (int batchRows : new int[]{7, 64, 1_000})
+            {
+                KMeansModel actual = StreamingKMeans.runClustering(file, seeds, distance, 100, batchRows, engine);
+
+                assertEquals(expected.getIterations(), actual.getIterations(), "Batches of " + batchRows);
+                assertArrayEquals(expected.getCentroidCoordinates(), actual.getCentroidCoordinates(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void comparesEveryRowOncePerScan() throws IOException, InterruptedException
+    {
+        DenseDataset dataset = TestData.blobs(1_003, 4, 5, 5, new Random(3));
+        Path file = directory.resolve("blobs.csv");
+        TestData.writeCsv(dataset, file);
+        CountingDistance distance = new CountingDistance();
+
+        try (AssignmentEngine engine = new AssignmentEngine(3))
+        {
+            List<Centroid> seeds = CentroidSeeding.kMeansPlusPlus(dataset, 5, new EuclideanDistance(), 4, engine);
+            KMeansModel model = StreamingKMeans.runClustering(file, seeds, distance, 100, 64, engine);
+
+            // a short last batch must not be assigned past its end, over the rows of the previous batch
+            assertEquals((long) model.getIterations() * dataset.size() * 5, distance.comparisons.sum());
+        }
+    }
+
+    @Test
+    void rejectsSphericalCentroids() throws IOException
+    {
+        DenseDataset dataset = TestData.blobs(10, 2, 2, 5, new Random(2));
+        Path file = directory.resolve("points.csv");
+        TestData.writeCsv(dataset, file);
+
+        assertThrows(IllegalArgumentException.class, () -> StreamingKMeans.runClustering(file,
+                KMeans.randomCentroids(dataset, 2), new HaversineDistance(), 10, 4, AssignmentEngine.sequential()));
+    }
+
+    /**
+     * Euclidean distance that counts the rows compared to a centroid.
+     */
+    private static final class CountingDistance extends EuclideanDistance
+    {
+        private final LongAdder comparisons = new LongAdder();
+
+        @Override
+        public double rankingDistance(double[] a, int aOffset, double[] b, int bOffset, int length)
+        {
+            comparisons.increment();
+            return super.rankingDistance(a, aOffset, b, bOffset, length);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.kmeans.kmeans;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Datasets shared by the tests.
+ */
+final class TestData
+{
+    private TestData()
+    {
+    }
+
+    /**
+     * Gaussian blobs of unit deviation, the rows taking turns between the blobs.
+     *
+     * @param rows       number of rows
+     * @param dimensions number of columns
+     * @param k          number of blobs
+     * @param spread     deviation of the blob centres around the origin
+     * @param random     source of the centres and the noise
+     * @return the dataset
+     */
+    static DenseDataset blobs(int rows, int dimensions, int k, double spread, Random random)
+    {
+        double[] centres = new double[k * dimensions];
+        for (int i = 0; i < centres.length; i++)
+            centres[i] = random.nextGaussian() * spread;
+
+        double[] values = new double[rows * dimensions];
+        String[] descriptions = new String[rows];
+        for (int row = 0; row < rows; row++)
+        {
+            descriptions[row] = String.valueOf(row);
+            for (int column = 0; column < dimensions; column++)
+                values[row * dimensions + column] = centres[row % k * dimensions + column] + random.nextGaussian();
+        }
+        return new DenseDataset(schema(dimensions), descriptions, values);
+    }
+
+    /**
+     * @return a copy of the dataset whose features are rounded to floats, so that a
+     * {@link FloatDataset} of it holds the same values
+     */
+    static DenseDataset roundedToFloats(DenseDataset dataset)
+    {
+        int d = dataset.dimensions();
+        double[] values = new double[dataset.size() * d];
+        String[] descriptions = new String[dataset.size()];
+        for (int row = 0; row < dataset.size(); row++)
+        {
+            descriptions[row] = dataset.description(row);
+            for (int column = 0; column < d; column++)
+                values[row * d + column] = (float) dataset.get(row, column);
+        }
+        return new DenseDataset(dataset.schema(), descriptions, values);
+    }
+
+    /**
+     * Writes a dataset in the semicolon-separated format of the application, every value
+     * written so that it is parsed back exactly.
+     */
+    static void writeCsv(Dataset dataset, Path file) throws IOException
+    {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write("id");
+            for (String name : dataset.schema().names())
+                writer.write(";" + name);
+            writer.newLine();
+
+            for (int row = 0; row < dataset.size(); row++)
+            {
+                writer.write(dataset.description(row));
+                for (int column = 0; column < dataset.dimensions(); column++)
+                    writer.write(";" + dataset.get(row, column));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * @return the schema of the columns f0, f1, ...
+     */
+    static Schema schema(int dimensions)
+    {
+        List<String> names = new ArrayList<>();
+        for (int column = 0; column < dimensions; column++)
+            names.add("f" + column);
+        return new Schema(names);
+    }
+}